@@ -0,0 +1,259 @@
+package Model.Api;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import okhttp3.HttpUrl;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * 每主機的自適應並發限制器（AIMD）
+ * - 請求先進入隊列，並發數低於當前上限時才發出，不會因為限流直接失敗
+ * - 成功回應時上限加法增長（每輪 +1），429 時乘法減半
+ * - 429 帶有 Retry-After 時暫停整個主機直到指定時間，再把該請求放回隊首重試
+ * 同一主機（host:port）的所有調用方共用一個實例，多個頁面共用 Client ID 時也不會超出限流
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final String TAG = "ConcurrencyLimiter";
+
+    private static final double INITIAL_LIMIT = 4;
+    private static final double MIN_LIMIT = 1;
+    private static final double MAX_LIMIT = 16;
+    private static final double BACKOFF_RATIO = 0.5;
+    // 429 沒有 Retry-After 時的默認等待時間，以及等待時間上限
+    private static final long DEFAULT_RETRY_AFTER_MS = 1000;
+    private static final long MAX_RETRY_AFTER_MS = TimeUnit.SECONDS.toMillis(30);
+    // 同一請求最多因 429 重試的次數，超過後把 429 回應交給調用方
+    private static final int MAX_THROTTLE_RETRIES = 3;
+
+    private static final ConcurrentHashMap<String, AdaptiveConcurrencyLimiter> LIMITERS = new ConcurrentHashMap<>();
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ConcurrencyLimiter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String host;
+    private final ArrayDeque<Task<?>> queue = new ArrayDeque<>();
+    private final AtomicLong throttledCount = new AtomicLong();
+
+    private double limit = INITIAL_LIMIT;
+    private int inFlight = 0;
+    private long pausedUntil = 0;
+    private boolean drainScheduled = false;
+
+    AdaptiveConcurrencyLimiter(String host) {
+        this.host = host;
+    }
+
+    /**
+     * 獲取指定主機的限制器
+     */
+    public static AdaptiveConcurrencyLimiter forHost(HttpUrl url) {
+        return LIMITERS.computeIfAbsent(url.host() + ":" + url.port(), AdaptiveConcurrencyLimiter::new);
+    }
+
+    /**
+     * 排隊執行請求
+     * @param call 原始請求，被取消時隊列中的請求不再發出
+     * @param tracker 429 重試時會 clone 出新的請求，交給 tracker 登記以便一併取消
+     * @return 最終回應（429 重試次數用盡時為 429 回應），網絡錯誤或取消時以異常完成
+     */
+    public <T> CompletableFuture<Response<T>> submit(Call<T> call, Consumer<Call<?>> tracker) {
+        return submit(call, tracker, null);
+    }
+
+    /**
+     * 排隊執行請求
+     * @param onDispatch 請求離開隊列、發往網絡時調用（429 後重新發出時會再次調用），可為 null
+     * @see #submit(Call, Consumer)
+     */
+    public <T> CompletableFuture<Response<T>> submit(Call<T> call, Consumer<Call<?>> tracker, Runnable onDispatch) {
+        Task<T> task = new Task<>(call, tracker, onDispatch);
+        synchronized (this) {
+            queue.addLast(task);
+        }
+        drain();
+        return task.future;
+    }
+
+    /**
+     * 在上限和暫停時間允許的範圍內發出隊列中的請求
+     */
+    private void drain() {
+        List<Task<?>> ready = new ArrayList<>();
+        List<Task<?>> canceled = new ArrayList<>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (now < pausedUntil) {
+                scheduleDrain(pausedUntil - now);
+                return;
+            }
+            while (!queue.isEmpty() && inFlight < (int) limit) {
+                Task<?> task = queue.pollFirst();
+                if (task.isCanceled()) {
+                    canceled.add(task);
+                    continue;
+                }
+                inFlight++;
+                ready.add(task);
+            }
+        }
+        for (Task<?> task : canceled) {
+            task.future.completeExceptionally(new IOException("Canceled"));
+        }
+        for (Task<?> task : ready) {
+            dispatch(task);
+        }
+    }
+
+    private void scheduleDrain(long delayMs) {
+        if (drainScheduled) {
+            return;
+        }
+        drainScheduled = true;
+        SCHEDULER.schedule(() -> {
+            synchronized (this) {
+                drainScheduled = false;
+            }
+            drain();
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private <T> void dispatch(Task<T> task) {
+        if (task.onDispatch != null) {
+            task.onDispatch.run();
+        }
+        CallFutures.enqueue(task.nextCall())
+                .whenComplete((response, throwable) -> onResult(task, response, throwable));
+    }
+
+    private <T> void onResult(Task<T> task, Response<T> response, Throwable throwable) {
+        boolean retry = false;
+        synchronized (this) {
+            boolean saturated = inFlight >= (int) limit;
+            inFlight--;
+            if (response != null && response.code() == 429) {
+                throttledCount.incrementAndGet();
+                limit = Math.max(MIN_LIMIT, limit * BACKOFF_RATIO);
+                long waitMs = retryAfterMs(response);
+                pausedUntil = Math.max(pausedUntil, System.currentTimeMillis() + waitMs);
+                Log.w(TAG, host + " 觸發限流，上限降為 " + (int) limit + "，暫停 " + waitMs + "ms");
+                if (task.attempts <= MAX_THROTTLE_RETRIES && !task.isCanceled()) {
+                    // 放回隊首，恢復後優先重試
+                    queue.addFirst(task);
+                    retry = true;
+                }
+            } else if (response != null && saturated) {
+                // 只有在上限被用滿時才增長，避免空閒時上限無意義地膨脹
+                limit = Math.min(MAX_LIMIT, limit + 1.0 / limit);
+            }
+        }
+
+        if (retry) {
+            if (response.errorBody() != null) {
+                response.errorBody().close();
+            }
+        } else if (throwable != null) {
+            task.future.completeExceptionally(throwable);
+        } else {
+            task.future.complete(response);
+        }
+        drain();
+    }
+
+    /**
+     * 解析 Retry-After（秒數或 HTTP 日期）
+     */
+    private static long retryAfterMs(Response<?> response) {
+        String value = response.headers().get("Retry-After");
+        long waitMs = DEFAULT_RETRY_AFTER_MS;
+        if (value != null) {
+            try {
+                waitMs = TimeUnit.SECONDS.toMillis(Long.parseLong(value.trim()));
+            } catch (NumberFormatException e) {
+                Date date = response.headers().getDate("Retry-After");
+                if (date != null) {
+                    waitMs = date.getTime() - System.currentTimeMillis();
+                }
+            }
+        }
+        return Math.max(0, Math.min(MAX_RETRY_AFTER_MS, waitMs));
+    }
+
+    /**
+     * 當前並發上限
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * 排隊等待發出的請求數
+     */
+    public synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    public synchronized int getInFlightCount() {
+        return inFlight;
+    }
+
+    /**
+     * 收到 429 的累計次數
+     */
+    public long getThrottledCount() {
+        return throttledCount.get();
+    }
+
+    /**
+     * 隊列中的一個請求
+     */
+    private static class Task<T> {
+        final Call<T> call;
+        final Consumer<Call<?>> tracker;
+        final Runnable onDispatch;
+        final CompletableFuture<Response<T>> future = new CompletableFuture<>();
+        int attempts = 0;
+
+        Task(Call<T> call, Consumer<Call<?>> tracker, Runnable onDispatch) {
+            this.call = call;
+            this.tracker = tracker;
+            this.onDispatch = onDispatch;
+        }
+
+        /**
+         * 第一次使用原始請求，重試時 clone 一個新的請求
+         */
+        Call<T> nextCall() {
+            Call<T> next = attempts == 0 ? call : call.clone();
+            if (attempts > 0) {
+                // clone 不會帶上原請求的整體超時
+                next.timeout().timeout(call.timeout().timeoutNanos(), TimeUnit.NANOSECONDS);
+                if (tracker != null) {
+                    tracker.accept(next);
+                }
+            }
+            attempts++;
+            return next;
+        }
+
+        boolean isCanceled() {
+            return call.isCanceled();
+        }
+    }
+}
@@ -1,69 +1,337 @@
 package Model.Api;
 
+import android.content.Context;
+
+import java.io.File;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+import com.example.graduationproject.BuildConfig;
+
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
+import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
 /**
- * API Client 單例類
- * 提供 Gemini 和 Spotify API 的 Retrofit 實例
+ * API Client 單例類（整個進程共用的網絡棧）
+ * 所有 API 共用一個 OkHttpClient：同一個連接池、線程池、磁盤緩存和網絡統計。
+ * 各 API 的地址、超時和專用攔截器由 ApiConfig 配置，以 newBuilder() 派生出的客戶端仍共用上述資源。
+ * 調用方通過 getGeminiApiService() / getSpotifyApiService() 獲取服務並注入使用，不應自行創建 OkHttpClient。
+ * 所有方法線程安全
  */
 public class ApiClient {
 
+    /**
+     * 使用網絡棧的 API
+     */
+    public enum Api {
+        GEMINI,
+        SPOTIFY
+    }
+
     private static final String GEMINI_BASE_URL = "https://generativelanguage.googleapis.com/";
     private static final String SPOTIFY_BASE_URL = "https://api.spotify.com/";
 
-    // 超時時間設置為 360 秒
-    private static final long TIMEOUT_SECONDS = 360;
+    // 異步請求的並發上限：Gemini 串流會長時間佔用同一主機的名額，默認的每主機 5 個不夠用
+    private static final int MAX_REQUESTS = 64;
+    private static final int MAX_REQUESTS_PER_HOST = 16;
+
+    // 連接池：一次推薦會同時發出 8 個 Spotify 搜索，HTTP/2 下共用一條連接，
+    // 若伺服器退回 HTTP/1.1 則每個並發請求各需一條，閒置連接上限按這個突發量設置
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    // 閒置連接保留時間，覆蓋用戶調整情緒後再次推薦的間隔
+    static final long KEEP_ALIVE_MINUTES = 5;
 
-    private static Retrofit geminiRetrofit = null;
-    private static Retrofit spotifyRetrofit = null;
+    // 重建 OkHttpClient（例如開始錄製）時沿用同一個連接池和線程池，預熱的連接不會丟失，也不會留下閒置線程
+    private static final ConnectionPool connectionPool =
+            new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES);
+    private static final Dispatcher dispatcher = createDispatcher();
+
+    // Spotify 元數據的磁盤緩存上限，搜索結果每條約數十 KB
+    private static final long HTTP_CACHE_SIZE_BYTES = 10L * 1024 * 1024;
+    private static final String HTTP_CACHE_DIRECTORY = "http";
+
+    private static final Map<Api, ApiConfig> configs = new EnumMap<>(Api.class);
+    private static final Map<Api, Retrofit> retrofits = new EnumMap<>(Api.class);
     private static OkHttpClient okHttpClient = null;
 
-    private static OkHttpClient getOkHttpClient() {
-        if (okHttpClient == null) {
-            HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
-            loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
-
-            okHttpClient = new OkHttpClient.Builder()
-                    .addInterceptor(loggingInterceptor)
-                    .connectTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
-                    .readTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
-                    .writeTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+    private static Interceptor recorder = null;
+    private static Cache httpCache = null;
+    private static HttpCachePolicy cachePolicy = HttpCachePolicy.defaults();
+    // 完整記錄請求和回應內容：每個回應都會先被整個讀入內存再寫日誌，只用於調試
+    private static boolean bodyLoggingEnabled = BuildConfig.DEBUG && BuildConfig.HTTP_BODY_LOGGING;
+
+    static {
+        configs.put(Api.GEMINI, defaultConfig(Api.GEMINI));
+        configs.put(Api.SPOTIFY, defaultConfig(Api.SPOTIFY));
+    }
+
+    /**
+     * 默認配置
+     * 整體時間由每次推薦的 Deadline 通過 Call.timeout() 控制，這裡只限制單次連接和讀寫
+     * - Gemini：讀取超時需要容忍串流的生成停頓
+     * - Spotify：回應小而快，讀取停頓通常意味著連接有問題，由對沖請求補救
+     */
+    private static ApiConfig defaultConfig(Api api) {
+        if (api == Api.GEMINI) {
+            return ApiConfig.builder(GEMINI_BASE_URL)
+                    .connectTimeout(10, TimeUnit.SECONDS)
+                    .readTimeout(30, TimeUnit.SECONDS)
+                    .writeTimeout(15, TimeUnit.SECONDS)
                     .build();
         }
+        return ApiConfig.builder(SPOTIFY_BASE_URL)
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .readTimeout(15, TimeUnit.SECONDS)
+                .writeTimeout(10, TimeUnit.SECONDS)
+                .build();
+    }
+
+    private static Dispatcher createDispatcher() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+        return dispatcher;
+    }
+
+    /**
+     * 啟用磁盤緩存和 Spotify Token 自動續期（在 Activity 創建、獲取任何服務之前調用，重複調用無效果）
+     */
+    public static void init(Context context) {
+        SpotifyTokenRefresher refresher;
+        synchronized (ApiClient.class) {
+            if (httpCache != null) {
+                return;
+            }
+            httpCache = new Cache(new File(context.getApplicationContext().getCacheDir(), HTTP_CACHE_DIRECTORY),
+                    HTTP_CACHE_SIZE_BYTES);
+            invalidateClient();
+
+            refresher = SpotifyTokenRefresher.getInstance(context);
+            SpotifyTokenAuthenticator authenticator = new SpotifyTokenAuthenticator(refresher);
+            configure(Api.SPOTIFY, configs.get(Api.SPOTIFY).toBuilder()
+                    .addInterceptor(authenticator)
+                    .authenticator(authenticator)
+                    .build());
+        }
+        refresher.start();
+    }
+
+    /**
+     * 替換某個 API 的配置，之後獲取的該 API 服務使用新配置
+     */
+    public static synchronized void configure(Api api, ApiConfig config) {
+        configs.put(api, config);
+        retrofits.remove(api);
+    }
+
+    /**
+     * 某個 API 的當前配置
+     */
+    public static synchronized ApiConfig getConfig(Api api) {
+        return configs.get(api);
+    }
+
+    /**
+     * 替換各端點的緩存規則，之後獲取的服務使用新規則
+     */
+    public static synchronized void setCachePolicy(HttpCachePolicy policy) {
+        cachePolicy = policy;
+        invalidateClient();
+    }
+
+    /**
+     * 緩存策略（包含命中率統計）
+     */
+    public static synchronized HttpCachePolicy getCachePolicy() {
+        return cachePolicy;
+    }
+
+    /**
+     * 將 API 指向其他地址（例如重放錄製數據的 MockWebServer）
+     * 已創建的 Retrofit 實例會被丟棄，之後獲取的服務使用新地址
+     */
+    public static synchronized void setBaseUrls(String geminiUrl, String spotifyUrl) {
+        configure(Api.GEMINI, configs.get(Api.GEMINI).withBaseUrl(geminiUrl));
+        configure(Api.SPOTIFY, configs.get(Api.SPOTIFY).withBaseUrl(spotifyUrl));
+    }
+
+    /**
+     * 恢復默認的 API 地址
+     */
+    public static synchronized void resetBaseUrls() {
+        setBaseUrls(GEMINI_BASE_URL, SPOTIFY_BASE_URL);
+    }
+
+    /**
+     * 設置錄製攔截器（傳入 null 停止錄製），之後獲取的服務都會經過它
+     */
+    public static synchronized void setRecorder(RecordingInterceptor interceptor) {
+        recorder = interceptor;
+        invalidateClient();
+    }
+
+    /**
+     * 開關 BODY 級別的日誌（默認由 local.properties 的 HTTP_BODY_LOGGING 決定，只在 debug 構建生效）
+     * 之後獲取的服務使用新設置
+     */
+    public static synchronized void setBodyLoggingEnabled(boolean enabled) {
+        bodyLoggingEnabled = enabled;
+        invalidateClient();
+    }
+
+    /**
+     * 網絡分段耗時統計
+     */
+    public static NetworkTimingMetrics getTimingMetrics() {
+        return NetworkTimingMetrics.getInstance();
+    }
+
+    /**
+     * 連接複用統計
+     */
+    public static ConnectionReuseMetrics getReuseMetrics() {
+        return ConnectionReuseMetrics.getInstance();
+    }
+
+    static synchronized String getGeminiBaseUrl() {
+        return configs.get(Api.GEMINI).getBaseUrl();
+    }
+
+    static synchronized String getSpotifyBaseUrl() {
+        return configs.get(Api.SPOTIFY).getBaseUrl();
+    }
+
+    /**
+     * 丟棄共用客戶端和所有 Retrofit 實例（連接池和線程池保留）
+     */
+    private static void invalidateClient() {
+        okHttpClient = null;
+        retrofits.clear();
+    }
+
+    /**
+     * 所有 API 共用的基礎客戶端
+     */
+    static synchronized OkHttpClient getOkHttpClient() {
+        if (okHttpClient == null) {
+            EventListener.Factory cacheListeners = cachePolicy.eventListenerFactory();
+            OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                    .dispatcher(dispatcher)
+                    .connectionPool(connectionPool)
+                    .eventListenerFactory(call -> ConnectionReuseMetrics.getInstance().create(call)
+                            .plus(NetworkTimingMetrics.getInstance().create(call))
+                            .plus(cacheListeners.create(call)));
+            if (httpCache != null) {
+                builder.cache(httpCache)
+                        .addInterceptor(cachePolicy.applicationInterceptor(ApiClient::getRevalidationClient))
+                        .addNetworkInterceptor(cachePolicy.networkInterceptor());
+            }
+            HttpLoggingInterceptor loggingInterceptor = createLoggingInterceptor();
+            if (loggingInterceptor != null) {
+                builder.addInterceptor(loggingInterceptor);
+            }
+            if (recorder != null) {
+                builder.addInterceptor(recorder);
+            }
+            okHttpClient = builder.build();
+        }
         return okHttpClient;
     }
 
     /**
-     * 獲取 Gemini API Retrofit 實例
+     * 後台重新驗證緩存使用的客戶端
+     * 緩存規則都是 Spotify 的端點，重新驗證必須經過 Spotify 的 Token 攔截器和 Authenticator，
+     * 否則調用方請求中已過期的 Token 會讓每次重新驗證都以 401 失敗
      */
-    public static Retrofit getGeminiRetrofit() {
-        if (geminiRetrofit == null) {
-            geminiRetrofit = new Retrofit.Builder()
-                    .baseUrl(GEMINI_BASE_URL)
-                    .client(getOkHttpClient())
-                    .addConverterFactory(GsonConverterFactory.create())
+    static synchronized OkHttpClient getRevalidationClient() {
+        return (OkHttpClient) getRetrofit(Api.SPOTIFY).callFactory();
+    }
+
+    /**
+     * 換取 Token 的客戶端：共用連接池、線程池和網絡統計，但不帶任何攔截器和緩存。
+     * 請求體帶有 refresh_token、回應體帶有 access_token，不能經過 BODY 日誌和錄製攔截器，
+     * 也不應寫進磁盤緩存
+     */
+    static synchronized OkHttpClient getTokenClient() {
+        OkHttpClient.Builder builder = getOkHttpClient().newBuilder().cache(null);
+        builder.interceptors().clear();
+        builder.networkInterceptors().clear();
+        return builder.build();
+    }
+
+    /**
+     * 按 API 配置派生的客戶端（共用基礎客戶端的連接池、線程池、緩存和攔截器）
+     */
+    private static OkHttpClient clientFor(ApiConfig config) {
+        OkHttpClient.Builder builder = getOkHttpClient().newBuilder()
+                .connectTimeout(config.getConnectTimeoutMs(), TimeUnit.MILLISECONDS)
+                .readTimeout(config.getReadTimeoutMs(), TimeUnit.MILLISECONDS)
+                .writeTimeout(config.getWriteTimeoutMs(), TimeUnit.MILLISECONDS);
+        for (Interceptor interceptor : config.getInterceptors()) {
+            builder.addInterceptor(interceptor);
+        }
+        if (config.getAuthenticator() != null) {
+            builder.authenticator(config.getAuthenticator());
+        }
+        return builder.build();
+    }
+
+    /**
+     * 日誌攔截器：release 構建不記錄；debug 構建默認只記錄請求行和狀態碼，打開 BODY 日誌時記錄完整內容
+     * 耗時數據由 NetworkTimingMetrics 統計，不依賴日誌
+     */
+    private static HttpLoggingInterceptor createLoggingInterceptor() {
+        if (!BuildConfig.DEBUG && !bodyLoggingEnabled) {
+            return null;
+        }
+        HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
+        loggingInterceptor.setLevel(bodyLoggingEnabled
+                ? HttpLoggingInterceptor.Level.BODY : HttpLoggingInterceptor.Level.BASIC);
+        // 不把憑證寫進日誌
+        loggingInterceptor.redactHeader("Authorization");
+        loggingInterceptor.redactQueryParams("key");
+        return loggingInterceptor;
+    }
+
+    /**
+     * 獲取某個 API 的 Retrofit 實例
+     */
+    public static synchronized Retrofit getRetrofit(Api api) {
+        Retrofit retrofit = retrofits.get(api);
+        if (retrofit == null) {
+            ApiConfig config = configs.get(api);
+            retrofit = new Retrofit.Builder()
+                    .baseUrl(config.getBaseUrl())
+                    .client(clientFor(config))
+                    // 直接在 OkHttp 線程上回調 enqueue，避免串流和解析被切換到主線程
+                    .callbackExecutor(Runnable::run)
+                    .addConverterFactory(GsonConverterFactory.create(ApiGson.get()))
                     .build();
+            retrofits.put(api, retrofit);
         }
-        return geminiRetrofit;
+        return retrofit;
+    }
+
+    /**
+     * 獲取 Gemini API Retrofit 實例
+     */
+    public static Retrofit getGeminiRetrofit() {
+        return getRetrofit(Api.GEMINI);
     }
 
     /**
      * 獲取 Spotify API Retrofit 實例
      */
     public static Retrofit getSpotifyRetrofit() {
-        if (spotifyRetrofit == null) {
-            spotifyRetrofit = new Retrofit.Builder()
-                    .baseUrl(SPOTIFY_BASE_URL)
-                    .client(getOkHttpClient())
-                    .addConverterFactory(GsonConverterFactory.create())
-                    .build();
-        }
-        return spotifyRetrofit;
+        return getRetrofit(Api.SPOTIFY);
     }
 
     /**
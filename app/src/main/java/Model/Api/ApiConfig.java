@@ -0,0 +1,142 @@
+package Model.Api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Authenticator;
+import okhttp3.Interceptor;
+
+/**
+ * 單個 API 的網絡配置（地址、超時、專用攔截器和認證器）
+ * 所有 API 共用 ApiClient 的同一個 OkHttpClient（連接池、線程池、緩存和統計），
+ * 只有這裡的設置按 API 區分。對象不可變，修改時以 toBuilder() 創建新配置
+ */
+public final class ApiConfig {
+
+    private final String baseUrl;
+    private final long connectTimeoutMs;
+    private final long readTimeoutMs;
+    private final long writeTimeoutMs;
+    private final List<Interceptor> interceptors;
+    private final Authenticator authenticator;
+
+    private ApiConfig(Builder builder) {
+        this.baseUrl = builder.baseUrl;
+        this.connectTimeoutMs = builder.connectTimeoutMs;
+        this.readTimeoutMs = builder.readTimeoutMs;
+        this.writeTimeoutMs = builder.writeTimeoutMs;
+        this.interceptors = Collections.unmodifiableList(new ArrayList<>(builder.interceptors));
+        this.authenticator = builder.authenticator;
+    }
+
+    /**
+     * @param baseUrl API 地址，以「/」結尾
+     */
+    public static Builder builder(String baseUrl) {
+        return new Builder(baseUrl);
+    }
+
+    /**
+     * 以當前配置為基礎創建構建器
+     */
+    public Builder toBuilder() {
+        return copy(baseUrl);
+    }
+
+    /**
+     * 只更換地址的配置（例如指向 MockWebServer）
+     */
+    public ApiConfig withBaseUrl(String baseUrl) {
+        return copy(baseUrl).build();
+    }
+
+    private Builder copy(String baseUrl) {
+        Builder builder = new Builder(baseUrl)
+                .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+                .writeTimeout(writeTimeoutMs, TimeUnit.MILLISECONDS);
+        builder.interceptors.addAll(interceptors);
+        builder.authenticator = authenticator;
+        return builder;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public long getConnectTimeoutMs() {
+        return connectTimeoutMs;
+    }
+
+    public long getReadTimeoutMs() {
+        return readTimeoutMs;
+    }
+
+    public long getWriteTimeoutMs() {
+        return writeTimeoutMs;
+    }
+
+    /**
+     * 只作用於這個 API 的應用攔截器（在共用攔截器之後執行）
+     */
+    public List<Interceptor> getInterceptors() {
+        return interceptors;
+    }
+
+    /**
+     * 收到 401 時的認證器，為 null 時直接返回 401
+     */
+    public Authenticator getAuthenticator() {
+        return authenticator;
+    }
+
+    /**
+     * 配置構建器，默認超時為 10 秒
+     */
+    public static final class Builder {
+        private final String baseUrl;
+        private long connectTimeoutMs = TimeUnit.SECONDS.toMillis(10);
+        private long readTimeoutMs = TimeUnit.SECONDS.toMillis(10);
+        private long writeTimeoutMs = TimeUnit.SECONDS.toMillis(10);
+        private final List<Interceptor> interceptors = new ArrayList<>();
+        private Authenticator authenticator;
+
+        private Builder(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        public Builder connectTimeout(long timeout, TimeUnit unit) {
+            this.connectTimeoutMs = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * 兩次讀到數據之間的最長間隔
+         */
+        public Builder readTimeout(long timeout, TimeUnit unit) {
+            this.readTimeoutMs = unit.toMillis(timeout);
+            return this;
+        }
+
+        public Builder writeTimeout(long timeout, TimeUnit unit) {
+            this.writeTimeoutMs = unit.toMillis(timeout);
+            return this;
+        }
+
+        public Builder addInterceptor(Interceptor interceptor) {
+            interceptors.add(interceptor);
+            return this;
+        }
+
+        public Builder authenticator(Authenticator authenticator) {
+            this.authenticator = authenticator;
+            return this;
+        }
+
+        public ApiConfig build() {
+            return new ApiConfig(this);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package Model.Api;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * 共用的 Gson 實例
+ * 註冊了 {@link ApiTypeAdapters}，Retrofit 轉換器、Gemini 串流讀取和用戶資訊解析都使用同一個實例，
+ * 適配器只創建一次
+ */
+public final class ApiGson {
+
+    private static volatile Gson instance;
+
+    private ApiGson() {
+    }
+
+    /**
+     * 獲取共用 Gson 實例
+     */
+    public static Gson get() {
+        if (instance == null) {
+            synchronized (ApiGson.class) {
+                if (instance == null) {
+                    instance = new GsonBuilder()
+                            .registerTypeAdapterFactory(ApiTypeAdapters.FACTORY)
+                            .create();
+                }
+            }
+        }
+        return instance;
+    }
+}
@@ -0,0 +1,419 @@
+package Model.Api;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import Model.POJO.GeminiResponse;
+import Model.POJO.GeminiSong;
+import Model.POJO.SpotifySearchResponse;
+import Model.POJO.SpotifyUser;
+
+/**
+ * API 數據模型的手寫 TypeAdapter
+ * 直接以 JsonReader 流式讀取，不經過反射，也不為未知字段構建 JsonElement 樹（skipValue 直接略過）。
+ * 只有讀取是手寫的；寫出（例如測試中構造回應）時才延遲創建反射適配器
+ */
+public final class ApiTypeAdapters implements TypeAdapterFactory {
+
+    public static final ApiTypeAdapters FACTORY = new ApiTypeAdapters();
+
+    private ApiTypeAdapters() {
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+        Reader<?> reader;
+        if (rawType == GeminiResponse.class) {
+            reader = ApiTypeAdapters::readGeminiResponse;
+        } else if (rawType == GeminiSong.class) {
+            reader = ApiTypeAdapters::readGeminiSong;
+        } else if (rawType == SpotifySearchResponse.class) {
+            reader = ApiTypeAdapters::readSearchResponse;
+        } else if (rawType == SpotifyUser.class) {
+            reader = ApiTypeAdapters::readSpotifyUser;
+        } else {
+            return null;
+        }
+        return new StreamingAdapter<>(gson, this, type, (Reader<T>) reader);
+    }
+
+    // ---------- Gemini ----------
+
+    private static GeminiResponse readGeminiResponse(JsonReader in) throws IOException {
+        GeminiResponse response = new GeminiResponse();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "candidates":
+                    response.setCandidates(readList(in, ApiTypeAdapters::readCandidate));
+                    break;
+                case "usageMetadata":
+                    response.setUsageMetadata(readNullable(in, ApiTypeAdapters::readUsageMetadata));
+                    break;
+                default:
+                    // modelVersion、promptFeedback 等字段不需要
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return response;
+    }
+
+    private static GeminiResponse.Candidate readCandidate(JsonReader in) throws IOException {
+        GeminiResponse.Candidate candidate = new GeminiResponse.Candidate();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "content":
+                    candidate.setContent(readNullable(in, ApiTypeAdapters::readContent));
+                    break;
+                case "finishReason":
+                    candidate.setFinishReason(readString(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return candidate;
+    }
+
+    private static GeminiResponse.UsageMetadata readUsageMetadata(JsonReader in) throws IOException {
+        GeminiResponse.UsageMetadata usage = new GeminiResponse.UsageMetadata();
+        in.beginObject();
+        while (in.hasNext()) {
+            if ("candidatesTokenCount".equals(in.nextName())) {
+                usage.setCandidatesTokenCount((int) readLong(in, 0));
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return usage;
+    }
+
+    private static GeminiResponse.Content readContent(JsonReader in) throws IOException {
+        GeminiResponse.Content content = new GeminiResponse.Content();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "parts":
+                    content.setParts(readList(in, ApiTypeAdapters::readPart));
+                    break;
+                case "role":
+                    content.setRole(readString(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return content;
+    }
+
+    private static GeminiResponse.Part readPart(JsonReader in) throws IOException {
+        GeminiResponse.Part part = new GeminiResponse.Part();
+        in.beginObject();
+        while (in.hasNext()) {
+            if ("text".equals(in.nextName())) {
+                part.setText(readString(in));
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return part;
+    }
+
+    private static GeminiSong readGeminiSong(JsonReader in) throws IOException {
+        GeminiSong song = new GeminiSong();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "song_name":
+                    song.setSongName(readString(in));
+                    break;
+                case "artist":
+                    song.setArtist(readString(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return song;
+    }
+
+    // ---------- Spotify ----------
+
+    private static SpotifySearchResponse readSearchResponse(JsonReader in) throws IOException {
+        SpotifySearchResponse response = new SpotifySearchResponse();
+        in.beginObject();
+        while (in.hasNext()) {
+            if ("tracks".equals(in.nextName())) {
+                response.setTracks(readNullable(in, ApiTypeAdapters::readTracks));
+            } else {
+                // type=track 時不會有 albums/artists，其餘字段一律略過
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return response;
+    }
+
+    private static SpotifySearchResponse.Tracks readTracks(JsonReader in) throws IOException {
+        SpotifySearchResponse.Tracks tracks = new SpotifySearchResponse.Tracks();
+        in.beginObject();
+        while (in.hasNext()) {
+            if ("items".equals(in.nextName())) {
+                tracks.setItems(readList(in, ApiTypeAdapters::readTrack));
+            } else {
+                // href、limit、next、offset、total 等分頁字段
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return tracks;
+    }
+
+    private static SpotifySearchResponse.Track readTrack(JsonReader in) throws IOException {
+        SpotifySearchResponse.Track track = new SpotifySearchResponse.Track();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                    track.setId(readString(in));
+                    break;
+                case "name":
+                    track.setName(readString(in));
+                    break;
+                case "artists":
+                    track.setArtists(readList(in, ApiTypeAdapters::readArtist));
+                    break;
+                case "album":
+                    track.setAlbum(readNullable(in, ApiTypeAdapters::readAlbum));
+                    break;
+                case "duration_ms":
+                    track.setDurationMs(readLong(in, 0));
+                    break;
+                default:
+                    // available_markets 等大字段也在這裡略過，不會構建任何對象
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return track;
+    }
+
+    private static SpotifySearchResponse.Artist readArtist(JsonReader in) throws IOException {
+        SpotifySearchResponse.Artist artist = new SpotifySearchResponse.Artist();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                    artist.setId(readString(in));
+                    break;
+                case "name":
+                    artist.setName(readString(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return artist;
+    }
+
+    private static SpotifySearchResponse.Album readAlbum(JsonReader in) throws IOException {
+        SpotifySearchResponse.Album album = new SpotifySearchResponse.Album();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                    album.setId(readString(in));
+                    break;
+                case "name":
+                    album.setName(readString(in));
+                    break;
+                case "images":
+                    album.setImages(readList(in, ApiTypeAdapters::readImage));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return album;
+    }
+
+    private static SpotifySearchResponse.Image readImage(JsonReader in) throws IOException {
+        SpotifySearchResponse.Image image = new SpotifySearchResponse.Image();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "url":
+                    image.setUrl(readString(in));
+                    break;
+                case "height":
+                    image.setHeight((int) readLong(in, 0));
+                    break;
+                case "width":
+                    image.setWidth((int) readLong(in, 0));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return image;
+    }
+
+    private static SpotifyUser readSpotifyUser(JsonReader in) throws IOException {
+        SpotifyUser user = new SpotifyUser();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                    user.id = readString(in);
+                    break;
+                case "display_name":
+                    user.displayName = readString(in);
+                    break;
+                case "email":
+                    user.email = readString(in);
+                    break;
+                case "images":
+                    user.images = readList(in, ApiTypeAdapters::readUserImage);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return user;
+    }
+
+    private static SpotifyUser.SpotifyImage readUserImage(JsonReader in) throws IOException {
+        SpotifyUser.SpotifyImage image = new SpotifyUser.SpotifyImage();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "url":
+                    image.url = readString(in);
+                    break;
+                case "height":
+                    image.height = readInteger(in);
+                    break;
+                case "width":
+                    image.width = readInteger(in);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return image;
+    }
+
+    // ---------- 基本類型 ----------
+
+    private static String readString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    /**
+     * 讀取數值，null 時返回默認值（Spotify 的圖片尺寸可能為 null）
+     */
+    private static long readLong(JsonReader in, long defaultValue) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return defaultValue;
+        }
+        return in.nextLong();
+    }
+
+    private static Integer readInteger(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextInt();
+    }
+
+    private static <T> T readNullable(JsonReader in, Reader<T> reader) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return reader.read(in);
+    }
+
+    private static <T> List<T> readList(JsonReader in, Reader<T> reader) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<T> list = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            list.add(readNullable(in, reader));
+        }
+        in.endArray();
+        return list;
+    }
+
+    /**
+     * 從 JsonReader 讀取一個對象
+     */
+    private interface Reader<T> {
+        T read(JsonReader in) throws IOException;
+    }
+
+    /**
+     * 讀取使用手寫 Reader，寫出委託給反射適配器
+     */
+    private static final class StreamingAdapter<T> extends TypeAdapter<T> {
+        private final Gson gson;
+        private final TypeAdapterFactory skipPast;
+        private final TypeToken<T> type;
+        private final Reader<T> reader;
+        private volatile TypeAdapter<T> writeDelegate;
+
+        StreamingAdapter(Gson gson, TypeAdapterFactory skipPast, TypeToken<T> type, Reader<T> reader) {
+            this.gson = gson;
+            this.skipPast = skipPast;
+            this.type = type;
+            this.reader = reader;
+        }
+
+        @Override
+        public T read(JsonReader in) throws IOException {
+            return readNullable(in, reader);
+        }
+
+        @Override
+        public void write(JsonWriter out, T value) throws IOException {
+            TypeAdapter<T> delegate = writeDelegate;
+            if (delegate == null) {
+                delegate = gson.getDelegateAdapter(skipPast, type);
+                writeDelegate = delegate;
+            }
+            delegate.write(out, value);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package Model.Api;
+
+import java.util.concurrent.CompletableFuture;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Retrofit Call 與 CompletableFuture 的轉接工具
+ * 以 enqueue 異步發出請求，等待回應期間不佔用任何線程；
+ * 回應在 Retrofit 的 callbackExecutor 上完成（ApiClient 配置為直接在 OkHttp 線程上執行）
+ */
+public final class CallFutures {
+
+    private CallFutures() {
+    }
+
+    /**
+     * 異步執行請求
+     * 取消返回的 future 會一併取消 Call
+     * @return 完成時帶有 HTTP 回應（包括非 2xx），網絡錯誤或取消時以異常完成
+     */
+    public static <T> CompletableFuture<Response<T>> enqueue(Call<T> call) {
+        CompletableFuture<Response<T>> future = new CompletableFuture<>();
+        call.enqueue(new Callback<T>() {
+            @Override
+            public void onResponse(Call<T> call, Response<T> response) {
+                future.complete(response);
+            }
+
+            @Override
+            public void onFailure(Call<T> call, Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        future.whenComplete((response, throwable) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return future;
+    }
+}
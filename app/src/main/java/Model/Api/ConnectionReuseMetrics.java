@@ -0,0 +1,130 @@
+package Model.Api;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+
+/**
+ * 連接複用統計
+ * 按主機記錄每次請求使用的是連接池中的現有連接，還是新建立的連接（需要 DNS、TCP、TLS 握手），
+ * 用於評估啟動預熱和連接池配置的效果。預熱請求本身不計入
+ */
+public final class ConnectionReuseMetrics implements EventListener.Factory {
+
+    private static final ConnectionReuseMetrics INSTANCE = new ConnectionReuseMetrics();
+
+    private final Map<String, Counts> hosts = new ConcurrentHashMap<>();
+
+    ConnectionReuseMetrics() {
+    }
+
+    /**
+     * 獲取全局實例（ApiClient 的 OkHttpClient 使用）
+     */
+    public static ConnectionReuseMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public EventListener create(Call call) {
+        if (NetworkWarmup.isWarmupCall(call.request())) {
+            return EventListener.NONE;
+        }
+        return new Listener(counts(call.request().url().host()));
+    }
+
+    /**
+     * 使用現有連接的請求數
+     * @param host 主機名，null 表示所有主機
+     */
+    public long getReusedCount(String host) {
+        long total = 0;
+        for (Counts counts : select(host)) {
+            total += counts.reused.get();
+        }
+        return total;
+    }
+
+    /**
+     * 新建連接的請求數
+     * @param host 主機名，null 表示所有主機
+     */
+    public long getNewCount(String host) {
+        long total = 0;
+        for (Counts counts : select(host)) {
+            total += counts.created.get();
+        }
+        return total;
+    }
+
+    /**
+     * 複用率
+     * @param host 主機名，null 表示所有主機
+     * @return 0 到 1 之間，沒有請求時為 0
+     */
+    public double getReuseRatio(String host) {
+        long reused = getReusedCount(host);
+        long total = reused + getNewCount(host);
+        return total == 0 ? 0 : (double) reused / total;
+    }
+
+    /**
+     * 清空統計
+     */
+    public void reset() {
+        hosts.clear();
+    }
+
+    private Counts counts(String host) {
+        return hosts.computeIfAbsent(host, key -> new Counts());
+    }
+
+    private List<Counts> select(String host) {
+        if (host == null) {
+            return new ArrayList<>(hosts.values());
+        }
+        Counts counts = hosts.get(host);
+        return counts != null ? List.of(counts) : List.of();
+    }
+
+    private static final class Counts {
+        final AtomicLong reused = new AtomicLong();
+        final AtomicLong created = new AtomicLong();
+    }
+
+    /**
+     * 單次請求的監聽器
+     * 取得連接前發生過 connectStart 即為新建連接；重試和重定向只記錄第一次取得的連接
+     */
+    private static final class Listener extends EventListener {
+        private final Counts counts;
+        private boolean connecting = false;
+        private boolean acquired = false;
+
+        Listener(Counts counts) {
+            this.counts = counts;
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            connecting = true;
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            if (acquired) {
+                return;
+            }
+            acquired = true;
+            (connecting ? counts.created : counts.reused).incrementAndGet();
+        }
+    }
+}
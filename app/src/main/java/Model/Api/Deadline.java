@@ -0,0 +1,32 @@
+package Model.Api;
+
+/**
+ * 端到端的時間預算
+ * 一次推薦從發起到完成共用一個 Deadline，所有請求和重試都不能超過它
+ */
+public final class Deadline {
+
+    private final long expiresAtNanos;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    /**
+     * 從現在起 budgetMs 毫秒後到期
+     */
+    public static Deadline after(long budgetMs) {
+        return new Deadline(System.nanoTime() + budgetMs * 1_000_000L);
+    }
+
+    /**
+     * 剩餘時間（毫秒），已到期時為 0
+     */
+    public long remainingMs() {
+        return Math.max(0, (expiresAtNanos - System.nanoTime()) / 1_000_000L);
+    }
+
+    public boolean isExpired() {
+        return remainingMs() == 0;
+    }
+}
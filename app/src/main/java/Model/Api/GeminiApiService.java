@@ -2,10 +2,12 @@ package Model.Api;
 
 import Model.POJO.GeminiRequest;
 import Model.POJO.GeminiResponse;
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.Body;
 import retrofit2.http.POST;
 import retrofit2.http.Query;
+import retrofit2.http.Streaming;
 
 /**
  * Gemini API 服務接口
@@ -17,4 +19,17 @@ public interface GeminiApiService {
             @Query("key") String apiKey,
             @Body GeminiRequest request
     );
+
+    /**
+     * 串流生成內容（SSE）
+     * 回應體不會被整個緩衝，需要由調用方逐行讀取 "data:" 事件
+     * @param alt 固定傳入 "sse"
+     */
+    @Streaming
+    @POST("v1beta/models/gemini-2.5-flash:streamGenerateContent")
+    Call<ResponseBody> streamGenerateContent(
+            @Query("key") String apiKey,
+            @Query("alt") String alt,
+            @Body GeminiRequest request
+    );
 }
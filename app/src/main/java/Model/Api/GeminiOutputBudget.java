@@ -0,0 +1,89 @@
+package Model.Api;
+
+import android.util.Log;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import Model.POJO.GeminiResponse;
+
+/**
+ * Gemini 歌曲列表的輸出 token 上限（maxOutputTokens）
+ * 上限只用來擋住失控的生成：模型寫完陣列就會停止，上限寬鬆不會增加延遲；
+ * 太緊則會在陣列中間截斷，串流解析只拿到前幾首，之後的候選悄悄消失。
+ * 每首歌的 token 數隨歌名長度和語言差別很大（CJK 歌名每個字約一個 token），不使用固定估計：
+ * - 以回應 usageMetadata 的 candidatesTokenCount 除以解析出的歌曲數，按測量到的最大值加餘量設置上限（只升不降）
+ * - finishReason 為 MAX_TOKENS 時記錄截斷並把每首歌的預算加倍，下一次請求不再被截斷
+ */
+public class GeminiOutputBudget {
+
+    private static final String TAG = "GeminiOutputBudget";
+
+    // 陣列括號和首尾空白
+    private static final int BASE_TOKENS = 32;
+    // 尚未有測量時的每首歌預算：{"song_name":"","artist":""}, 的語法約 12 個 token，
+    // 英文歌名加歌手約 15 至 25 個，長的 CJK 歌名會再多一倍
+    static final int DEFAULT_TOKENS_PER_SONG = 64;
+    private static final int MAX_TOKENS_PER_SONG = 256;
+    // 測量值之上的餘量
+    private static final double HEADROOM = 1.5;
+
+    private int tokensPerSong = DEFAULT_TOKENS_PER_SONG;
+    private int maxMeasuredTokensPerSong = 0;
+    private final AtomicLong truncatedCount = new AtomicLong();
+
+    /**
+     * 請求 songs 首歌時的輸出 token 上限
+     */
+    public synchronized int maxOutputTokens(int songs) {
+        return BASE_TOKENS + songs * tokensPerSong;
+    }
+
+    /**
+     * 記錄一次完整回應的用量（請求被主動取消時不調用）
+     * @param response 回應；串流時為最後一個事件，只有它帶有 finishReason 和 usageMetadata
+     * @param songs 從回應中解析出的歌曲數
+     * @return 回應是否因上限被截斷
+     */
+    public synchronized boolean record(GeminiResponse response, int songs) {
+        if (response == null) {
+            return false;
+        }
+        if (response.getUsageMetadata() != null && songs > 0) {
+            int measured = (int) Math.ceil((double) response.getUsageMetadata().getCandidatesTokenCount() / songs);
+            maxMeasuredTokensPerSong = Math.max(maxMeasuredTokensPerSong, measured);
+            grow((int) Math.ceil(measured * HEADROOM));
+        }
+        if (!response.isTruncated()) {
+            return false;
+        }
+        truncatedCount.incrementAndGet();
+        grow(tokensPerSong * 2);
+        Log.w(TAG, "Gemini 輸出達到 token 上限，只解析出 " + songs + " 首；每首歌的預算提高到 " + tokensPerSong);
+        return true;
+    }
+
+    private void grow(int candidate) {
+        tokensPerSong = Math.max(tokensPerSong, Math.min(MAX_TOKENS_PER_SONG, candidate));
+    }
+
+    /**
+     * 當前每首歌的 token 預算
+     */
+    public synchronized int getTokensPerSong() {
+        return tokensPerSong;
+    }
+
+    /**
+     * 測量到的每首歌最大 token 數，尚未測量時為 0
+     */
+    public synchronized int getMaxMeasuredTokensPerSong() {
+        return maxMeasuredTokensPerSong;
+    }
+
+    /**
+     * 因達到上限被截斷的回應數
+     */
+    public long getTruncatedCount() {
+        return truncatedCount.get();
+    }
+}
@@ -0,0 +1,204 @@
+package Model.Api;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gemini 客戶端配額管理
+ * 以兩個令牌桶分別追蹤每分鐘（RPM）和每日（RPD）請求預算，
+ * 每次調用前先預留令牌；預算不足時直接返回 QuotaExhausted，不發出注定被限流的請求。
+ * 令牌桶狀態持久化到 SharedPreferences，應用重啟後仍然有效
+ */
+public class GeminiQuotaManager {
+
+    private static final String TAG = "GeminiQuotaManager";
+
+    private static final String PREF_NAME = "gemini_quota";
+    private static final String KEY_MINUTE_TOKENS = "minute_tokens";
+    private static final String KEY_MINUTE_REFILL = "minute_refill";
+    private static final String KEY_DAY_TOKENS = "day_tokens";
+    private static final String KEY_DAY_REFILL = "day_refill";
+
+    // gemini-2.5-flash 免費層級的限制
+    private static final int REQUESTS_PER_MINUTE = 10;
+    private static final int REQUESTS_PER_DAY = 250;
+
+    private static volatile GeminiQuotaManager instance;
+
+    private final SharedPreferences prefs;
+    private final TokenBucket minuteBucket;
+    private final TokenBucket dayBucket;
+
+    public GeminiQuotaManager(SharedPreferences prefs, int requestsPerMinute, int requestsPerDay) {
+        this.prefs = prefs;
+        this.minuteBucket = new TokenBucket(requestsPerMinute, TimeUnit.MINUTES.toMillis(1));
+        this.dayBucket = new TokenBucket(requestsPerDay, TimeUnit.DAYS.toMillis(1));
+        restore();
+    }
+
+    /**
+     * 獲取單例實例
+     */
+    public static GeminiQuotaManager getInstance(Context context) {
+        if (instance == null) {
+            synchronized (GeminiQuotaManager.class) {
+                if (instance == null) {
+                    instance = new GeminiQuotaManager(
+                            context.getApplicationContext().getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE),
+                            REQUESTS_PER_MINUTE, REQUESTS_PER_DAY);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 預留一次請求的令牌
+     * @return 成功時為 {@link QuotaResult#GRANTED}，否則為帶有等待時間的 {@link QuotaExhausted}
+     */
+    public synchronized QuotaResult tryAcquire() {
+        long now = System.currentTimeMillis();
+        minuteBucket.refill(now);
+        dayBucket.refill(now);
+
+        // 先檢查每日預算，避免消耗了每分鐘令牌卻因每日預算不足而失敗
+        if (dayBucket.tokens < 1) {
+            return exhausted(QuotaExhausted.Scope.DAY, dayBucket.millisUntilNextToken());
+        }
+        if (minuteBucket.tokens < 1) {
+            return exhausted(QuotaExhausted.Scope.MINUTE, minuteBucket.millisUntilNextToken());
+        }
+        minuteBucket.tokens -= 1;
+        dayBucket.tokens -= 1;
+        persist();
+        return QuotaResult.GRANTED;
+    }
+
+    /**
+     * 伺服器仍然返回了限流錯誤（例如其他設備共用同一個 API Key）
+     * 清空每分鐘令牌，使本地預算與伺服器同步
+     * @return 距離下一個令牌的時間
+     */
+    public synchronized long onServerRateLimited() {
+        long now = System.currentTimeMillis();
+        minuteBucket.refill(now);
+        minuteBucket.tokens = 0;
+        persist();
+        return minuteBucket.millisUntilNextToken();
+    }
+
+    private QuotaExhausted exhausted(QuotaExhausted.Scope scope, long retryAfterMs) {
+        Log.w(TAG, "Gemini 配額不足 (" + scope + ")，" + retryAfterMs + "ms 後可用");
+        return new QuotaExhausted(scope, retryAfterMs);
+    }
+
+    private void restore() {
+        if (prefs == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        minuteBucket.restore(prefs.getFloat(KEY_MINUTE_TOKENS, minuteBucket.capacity),
+                prefs.getLong(KEY_MINUTE_REFILL, now));
+        dayBucket.restore(prefs.getFloat(KEY_DAY_TOKENS, dayBucket.capacity),
+                prefs.getLong(KEY_DAY_REFILL, now));
+    }
+
+    private void persist() {
+        if (prefs == null) {
+            return;
+        }
+        prefs.edit()
+                .putFloat(KEY_MINUTE_TOKENS, (float) minuteBucket.tokens)
+                .putLong(KEY_MINUTE_REFILL, minuteBucket.lastRefill)
+                .putFloat(KEY_DAY_TOKENS, (float) dayBucket.tokens)
+                .putLong(KEY_DAY_REFILL, dayBucket.lastRefill)
+                .apply();
+    }
+
+    /**
+     * 令牌桶：容量為 capacity，每個週期勻速補滿
+     */
+    private static class TokenBucket {
+        final int capacity;
+        final double tokensPerMs;
+        double tokens;
+        long lastRefill;
+
+        TokenBucket(int capacity, long periodMs) {
+            this.capacity = capacity;
+            this.tokensPerMs = (double) capacity / periodMs;
+            this.tokens = capacity;
+            this.lastRefill = System.currentTimeMillis();
+        }
+
+        void restore(double tokens, long lastRefill) {
+            this.tokens = Math.max(0, Math.min(capacity, tokens));
+            this.lastRefill = lastRefill;
+        }
+
+        void refill(long now) {
+            // 系統時間被調回時不補充，只重設基準
+            if (now > lastRefill) {
+                tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerMs);
+            }
+            lastRefill = now;
+        }
+
+        long millisUntilNextToken() {
+            if (tokens >= 1) {
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / tokensPerMs);
+        }
+    }
+
+    /**
+     * 預留結果
+     */
+    public static class QuotaResult {
+        public static final QuotaResult GRANTED = new QuotaResult();
+
+        QuotaResult() {
+        }
+
+        public boolean isGranted() {
+            return this == GRANTED;
+        }
+    }
+
+    /**
+     * 配額不足，請求沒有發出
+     */
+    public static final class QuotaExhausted extends QuotaResult {
+
+        /**
+         * 耗盡的預算類型
+         */
+        public enum Scope {
+            MINUTE,
+            DAY
+        }
+
+        private final Scope scope;
+        private final long retryAfterMs;
+
+        QuotaExhausted(Scope scope, long retryAfterMs) {
+            this.scope = scope;
+            this.retryAfterMs = retryAfterMs;
+        }
+
+        public Scope getScope() {
+            return scope;
+        }
+
+        /**
+         * 距離下一個可用令牌的時間（毫秒）
+         */
+        public long getRetryAfterMs() {
+            return retryAfterMs;
+        }
+    }
+}
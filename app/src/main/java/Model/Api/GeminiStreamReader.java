@@ -0,0 +1,79 @@
+package Model.Api;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+
+import java.io.IOException;
+
+import Model.POJO.GeminiResponse;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+/**
+ * Gemini SSE 串流讀取器
+ * 逐行讀取 streamGenerateContent?alt=sse 的回應，
+ * 將每個 "data:" 事件解析為 GeminiResponse，並把其中的文本片段交給監聽器
+ */
+public class GeminiStreamReader {
+
+    private static final String DATA_PREFIX = "data:";
+
+    private final TypeAdapter<GeminiResponse> responseAdapter;
+
+    public GeminiStreamReader(Gson gson) {
+        this.responseAdapter = gson.getAdapter(GeminiResponse.class);
+    }
+
+    /**
+     * 阻塞讀取整個串流，直到伺服器關閉連接
+     * @param body 串流回應體（讀取完畢後自動關閉）
+     * @param listener 文本片段監聽器
+     * @return 最後一個事件（帶有 finishReason 和 usageMetadata），串流為空時為 null
+     */
+    public GeminiResponse read(ResponseBody body, TextChunkListener listener) throws IOException {
+        try (BufferedSource source = body.source()) {
+            StringBuilder eventData = new StringBuilder();
+            GeminiResponse last = null;
+            String line;
+            while ((line = source.readUtf8Line()) != null) {
+                if (line.isEmpty()) {
+                    // 空行表示一個事件結束
+                    last = dispatch(eventData, listener, last);
+                } else if (line.startsWith(DATA_PREFIX)) {
+                    if (eventData.length() > 0) {
+                        eventData.append('\n');
+                    }
+                    eventData.append(line.substring(DATA_PREFIX.length()).trim());
+                }
+                // 其他欄位（event:、id:、註釋行）忽略
+            }
+            // 最後一個事件後可能沒有空行
+            return dispatch(eventData, listener, last);
+        }
+    }
+
+    /**
+     * @return 解析出的事件；沒有待處理的事件時返回 previous
+     */
+    private GeminiResponse dispatch(StringBuilder eventData, TextChunkListener listener, GeminiResponse previous)
+            throws IOException {
+        if (eventData.length() == 0) {
+            return previous;
+        }
+        GeminiResponse chunk = responseAdapter.fromJson(eventData.toString());
+        eventData.setLength(0);
+
+        String text = chunk != null ? chunk.getResponseText() : null;
+        if (text != null && !text.isEmpty()) {
+            listener.onTextChunk(text);
+        }
+        return chunk != null ? chunk : previous;
+    }
+
+    /**
+     * 文本片段監聽器
+     */
+    public interface TextChunkListener {
+        void onTextChunk(String text);
+    }
+}
@@ -0,0 +1,244 @@
+package Model.Api;
+
+import android.util.Log;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import Util.LatencyHistogram;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * 對沖請求（hedged request）策略
+ * 請求在近期延遲的 p90 之內仍未回應時，發出一個相同的副本，採用先返回的結果並取消另一個。
+ * - 閾值來自最近請求的滾動延遲直方圖，樣本不足時不對沖；只統計網絡時間，不包括在限制器中排隊的時間
+ * - 對沖請求數不超過總請求數的 hedgeBudget（例如 10%），避免在整體變慢時放大負載
+ */
+public class HedgingPolicy {
+
+    private static final String TAG = "HedgingPolicy";
+
+    private static final int HISTOGRAM_CAPACITY = 200;
+    // 樣本不足時分位數不可靠
+    private static final int MIN_SAMPLES = 20;
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "HedgingPolicy");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final double quantile;
+    private final double hedgeBudget;
+    private final LatencyHistogram histogram = new LatencyHistogram(HISTOGRAM_CAPACITY);
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong hedgeCount = new AtomicLong();
+    private final AtomicLong hedgeWinCount = new AtomicLong();
+
+    /**
+     * @param quantile 觸發對沖的延遲分位數，例如 0.9
+     * @param hedgeBudget 對沖請求佔總請求數的上限比例，例如 0.1
+     */
+    public HedgingPolicy(double quantile, double hedgeBudget) {
+        this.quantile = quantile;
+        this.hedgeBudget = hedgeBudget;
+    }
+
+    /**
+     * 發出單次請求的方式
+     */
+    public interface Sender<T> {
+        /**
+         * @param onSent 請求真正發往網絡時調用（例如離開並發限制器的隊列），延遲從這裡開始計算
+         */
+        CompletableFuture<Response<T>> send(Call<T> call, Runnable onSent);
+    }
+
+    /**
+     * 發出請求，超過閾值仍未回應時對沖（請求立即發往網絡）
+     * @see #execute(Call, Consumer, Sender, BooleanSupplier)
+     */
+    public <T> CompletableFuture<Response<T>> execute(Call<T> call, Consumer<Call<?>> tracker,
+                                                      Function<Call<T>, CompletableFuture<Response<T>>> sender) {
+        return execute(call, tracker, (attempt, onSent) -> {
+            onSent.run();
+            return sender.apply(attempt);
+        }, () -> true);
+    }
+
+    /**
+     * 發出請求，超過閾值仍未回應時對沖
+     * 原請求只作為模板：實際發出的是它的副本，競賽中取消落後的一方不會把原請求標記為已取消
+     * （RetryPolicy 以原請求的取消狀態判斷調用方是否已放棄）；原請求被取消時不再對沖
+     * @param call 原始請求
+     * @param tracker 發出的副本交給 tracker 登記，以便調用方一併取消
+     * @param sender 發出單次請求的方式
+     * @param canHedge 對沖前檢查，返回 false 時不發出副本（例如限制器已有請求在排隊，副本只會在同一個隊列中等待）
+     * @return 先返回的回應；兩者都失敗時以後失敗者的異常完成
+     */
+    public <T> CompletableFuture<Response<T>> execute(Call<T> call, Consumer<Call<?>> tracker, Sender<T> sender,
+                                                      BooleanSupplier canHedge) {
+        requestCount.incrementAndGet();
+        CompletableFuture<Response<T>> result = new CompletableFuture<>();
+        HedgeRace<T> race = new HedgeRace<>(result);
+        long thresholdMs = histogram.getCount() >= MIN_SAMPLES ? histogram.percentile(quantile) : -1;
+
+        Attempt<T> primary = new Attempt<>(copyOf(call, tracker));
+        race.primary = primary;
+        sender.send(primary.call, () -> {
+            // 閾值是網絡延遲，計時從請求離開隊列開始；429 後重新發出時不再重複安排
+            if (primary.markSent() && thresholdMs >= 0) {
+                ScheduledFuture<?> timer = SCHEDULER.schedule(
+                        () -> hedge(call, tracker, sender, canHedge, race, thresholdMs),
+                        thresholdMs, TimeUnit.MILLISECONDS);
+                result.whenComplete((response, throwable) -> timer.cancel(false));
+            }
+        }).whenComplete((response, throwable) -> race.onAttemptDone(primary, response, throwable));
+        return result;
+    }
+
+    private <T> void hedge(Call<T> call, Consumer<Call<?>> tracker, Sender<T> sender, BooleanSupplier canHedge,
+                           HedgeRace<T> race, long thresholdMs) {
+        if (race.result.isDone() || call.isCanceled() || !canHedge.getAsBoolean() || !reserveHedge()) {
+            return;
+        }
+        Log.d(TAG, "請求超過 p" + Math.round(quantile * 100) + " (" + thresholdMs + "ms)，發出對沖請求");
+        Attempt<T> hedge = new Attempt<>(copyOf(call, tracker));
+        race.hedge = hedge;
+        sender.send(hedge.call, hedge::markSent)
+                .whenComplete((response, throwable) -> race.onAttemptDone(hedge, response, throwable));
+    }
+
+    /**
+     * 複製請求（clone 不會帶上整體超時），交給 tracker 登記
+     */
+    private static <T> Call<T> copyOf(Call<T> call, Consumer<Call<?>> tracker) {
+        Call<T> copy = call.clone();
+        copy.timeout().timeout(call.timeout().timeoutNanos(), TimeUnit.NANOSECONDS);
+        if (tracker != null) {
+            tracker.accept(copy);
+        }
+        return copy;
+    }
+
+    /**
+     * 在預算內預留一次對沖
+     */
+    private boolean reserveHedge() {
+        while (true) {
+            long hedges = hedgeCount.get();
+            if (hedges + 1 > requestCount.get() * hedgeBudget) {
+                return false;
+            }
+            if (hedgeCount.compareAndSet(hedges, hedges + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * 已發出的對沖請求數
+     */
+    public long getHedgeCount() {
+        return hedgeCount.get();
+    }
+
+    /**
+     * 對沖副本先於原請求返回的次數
+     */
+    public long getHedgeWinCount() {
+        return hedgeWinCount.get();
+    }
+
+    /**
+     * 一次發出的嘗試
+     */
+    private static final class Attempt<T> {
+        final Call<T> call;
+        volatile long sentNanos = 0;
+
+        Attempt(Call<T> call) {
+            this.call = call;
+        }
+
+        /**
+         * @return 是否為第一次發出
+         */
+        boolean markSent() {
+            boolean first = sentNanos == 0;
+            sentNanos = System.nanoTime();
+            return first;
+        }
+
+        /**
+         * 發出以來的網絡耗時，尚未發出時為 -1
+         */
+        long elapsedMs() {
+            long sent = sentNanos;
+            return sent == 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sent);
+        }
+    }
+
+    /**
+     * 原請求和對沖副本之間的競賽
+     */
+    private class HedgeRace<T> {
+        final CompletableFuture<Response<T>> result;
+        volatile Attempt<T> primary;
+        volatile Attempt<T> hedge;
+        int failures = 0;
+
+        HedgeRace(CompletableFuture<Response<T>> result) {
+            this.result = result;
+        }
+
+        synchronized void onAttemptDone(Attempt<T> attempt, Response<T> response, Throwable throwable) {
+            if (result.isDone()) {
+                return;
+            }
+            if (response != null) {
+                record(attempt.elapsedMs());
+                if (attempt == hedge) {
+                    hedgeWinCount.incrementAndGet();
+                    // 原請求至少已耗時這麼久（截尾樣本）；只記錄更快的副本會把分位數越拉越低，對沖越來越頻繁
+                    record(primary.elapsedMs());
+                }
+                // 取消落後的一方
+                Attempt<T> loser = attempt == hedge ? primary : hedge;
+                if (loser != null) {
+                    loser.call.cancel();
+                }
+                result.complete(response);
+                return;
+            }
+            failures++;
+            // 還有另一個嘗試在進行中時等待它
+            boolean otherPending = hedge != null && failures < 2;
+            if (!otherPending) {
+                result.completeExceptionally(throwable);
+            }
+        }
+
+        private void record(long elapsedMs) {
+            if (elapsedMs >= 0) {
+                histogram.record(elapsedMs);
+            }
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package Model.Api;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.EventListener;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Spotify 元數據的 HTTP 緩存策略（配合 okhttp3.Cache 使用）
+ * Spotify 的回應帶有「max-age=0」，默認情況下相同的搜索和個人資料請求每次都會走網絡。
+ * 按端點配置三個時間窗口：
+ * - maxAge：新鮮期內直接使用緩存
+ * - staleWhileRevalidate：過期不久的緩存先返回給調用方，同時在後台重新驗證
+ * - staleIfError：網絡不可用時仍可使用的最長過期時間
+ * 規則只作用於 GET 請求，Gemini 的 POST 請求不受影響
+ */
+public final class HttpCachePolicy {
+
+    private static final String TAG = "HttpCachePolicy";
+
+    // OkHttp 返回過期緩存時附加的 Warning 頭
+    private static final String STALE_WARNING = "110";
+
+    // 後台重新驗證請求的標記（Request tag），不再經過緩存策略和統計
+    private static final Revalidation REVALIDATION = new Revalidation();
+
+    private final List<Rule> rules;
+    // 正在後台重新驗證的 URL，同一個 URL 只發出一次
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong conditionalHitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong staleServedCount = new AtomicLong();
+
+    public HttpCachePolicy(List<Rule> rules) {
+        this.rules = new ArrayList<>(rules);
+    }
+
+    /**
+     * 默認規則
+     * - 搜索結果：10 分鐘新鮮，1 天內後台更新，離線可用 7 天
+     * - 個人資料（/v1/me）：5 分鐘新鮮，1 小時內後台更新，離線可用 7 天；按 token 區分用戶
+     * - 歌曲資料（/v1/tracks）：1 天新鮮，7 天內後台更新，離線可用 30 天
+     */
+    public static HttpCachePolicy defaults() {
+        List<Rule> rules = new ArrayList<>();
+        rules.add(new Rule("/v1/search", TimeUnit.MINUTES.toSeconds(10), TimeUnit.DAYS.toSeconds(1),
+                TimeUnit.DAYS.toSeconds(7), false));
+        rules.add(new Rule("/v1/me", TimeUnit.MINUTES.toSeconds(5), TimeUnit.HOURS.toSeconds(1),
+                TimeUnit.DAYS.toSeconds(7), true));
+        rules.add(new Rule("/v1/tracks", TimeUnit.DAYS.toSeconds(1), TimeUnit.DAYS.toSeconds(7),
+                TimeUnit.DAYS.toSeconds(30), false));
+        return new HttpCachePolicy(rules);
+    }
+
+    /**
+     * 查找適用的規則
+     * @return 非 GET 請求或沒有匹配的端點時為 null
+     */
+    Rule ruleFor(Request request) {
+        if (!"GET".equals(request.method())) {
+            return null;
+        }
+        String path = request.url().encodedPath();
+        for (Rule rule : rules) {
+            if (path.equals(rule.pathPrefix) || path.startsWith(rule.pathPrefix + "/")) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 網絡攔截器：以規則的 max-age 覆蓋伺服器的緩存頭，使回應可被緩存
+     */
+    public Interceptor networkInterceptor() {
+        return chain -> {
+            Request request = chain.request();
+            Response response = chain.proceed(request);
+            Rule rule = ruleFor(request);
+            if (rule == null || !response.isSuccessful()) {
+                return response;
+            }
+            Response.Builder builder = response.newBuilder()
+                    .removeHeader("Pragma")
+                    .header("Cache-Control", "private, max-age=" + rule.maxAgeSeconds);
+            if (rule.perUser) {
+                // 緩存鍵只有 URL，個人資料需要按 token 區分，避免切換帳號後讀到上一個用戶的數據
+                builder.header("Vary", "Authorization");
+            }
+            return builder.build();
+        };
+    }
+
+    /**
+     * 應用攔截器：過期不久的緩存直接返回並在後台重新驗證；網絡失敗時退回到過期緩存
+     * @param client 發出後台重新驗證請求的客戶端
+     */
+    public Interceptor applicationInterceptor(Supplier<OkHttpClient> client) {
+        return chain -> {
+            Request request = chain.request();
+            Rule rule = ruleFor(request);
+            if (rule == null || isRevalidation(request)
+                    || request.cacheControl().noCache() || request.cacheControl().onlyIfCached()) {
+                return chain.proceed(request);
+            }
+
+            Response cached = chain.proceed(withCacheControl(request, new CacheControl.Builder()
+                    .onlyIfCached()
+                    .maxStale((int) rule.staleWhileRevalidateSeconds, TimeUnit.SECONDS)
+                    .build()));
+            if (cached.code() != 504) {
+                if (isStale(cached)) {
+                    staleServedCount.incrementAndGet();
+                    revalidate(client.get(), request);
+                }
+                return cached;
+            }
+            cached.close();
+
+            try {
+                return chain.proceed(request);
+            } catch (IOException e) {
+                Response stale = chain.proceed(withCacheControl(request, new CacheControl.Builder()
+                        .onlyIfCached()
+                        .maxStale((int) rule.staleIfErrorSeconds, TimeUnit.SECONDS)
+                        .build()));
+                if (stale.code() == 504) {
+                    stale.close();
+                    throw e;
+                }
+                Log.d(TAG, "網絡不可用，使用過期緩存: " + request.url().encodedPath());
+                staleServedCount.incrementAndGet();
+                return stale;
+            }
+        };
+    }
+
+    /**
+     * 統計緩存命中情況的監聽器（只統計有規則的請求，並排除後台重新驗證）
+     */
+    public EventListener.Factory eventListenerFactory() {
+        return call -> {
+            Request request = call.request();
+            if (ruleFor(request) == null || isRevalidation(request)) {
+                return EventListener.NONE;
+            }
+            return new EventListener() {
+                @Override
+                public void cacheHit(Call call, Response cachedResponse) {
+                    hitCount.incrementAndGet();
+                }
+
+                @Override
+                public void cacheConditionalHit(Call call, Response cachedResponseWithNetworkHeaders) {
+                    conditionalHitCount.incrementAndGet();
+                }
+
+                @Override
+                public void cacheMiss(Call call) {
+                    missCount.incrementAndGet();
+                }
+            };
+        };
+    }
+
+    private static Request withCacheControl(Request request, CacheControl cacheControl) {
+        return request.newBuilder().cacheControl(cacheControl).build();
+    }
+
+    private static boolean isRevalidation(Request request) {
+        return request.tag(Revalidation.class) != null;
+    }
+
+    private static boolean isStale(Response response) {
+        for (String warning : response.headers("Warning")) {
+            if (warning.startsWith(STALE_WARNING)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 後台重新驗證：max-age=0 使 OkHttp 帶上 ETag / Last-Modified 發出條件請求，結果寫回緩存
+     */
+    private void revalidate(OkHttpClient client, Request request) {
+        String key = request.url().toString();
+        if (!revalidating.add(key)) {
+            return;
+        }
+        Request revalidation = request.newBuilder()
+                .cacheControl(new CacheControl.Builder().maxAge(0, TimeUnit.SECONDS).build())
+                .tag(Revalidation.class, REVALIDATION)
+                .build();
+        client.newCall(revalidation).enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                revalidating.remove(key);
+                response.close();
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                revalidating.remove(key);
+                Log.w(TAG, "後台重新驗證失敗: " + request.url().encodedPath() + " - " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 直接從緩存返回（新鮮或過期）的請求數
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * 經條件請求確認未變（304）的請求數
+     */
+    public long getConditionalHitCount() {
+        return conditionalHitCount.get();
+    }
+
+    /**
+     * 沒有可用緩存、完整走網絡的請求數
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * 返回過期緩存的請求數（後台重新驗證或離線）
+     */
+    public long getStaleServedCount() {
+        return staleServedCount.get();
+    }
+
+    public double getHitRatio() {
+        return ratio(hitCount.get());
+    }
+
+    public double getConditionalHitRatio() {
+        return ratio(conditionalHitCount.get());
+    }
+
+    public double getMissRatio() {
+        return ratio(missCount.get());
+    }
+
+    private double ratio(long count) {
+        long total = hitCount.get() + conditionalHitCount.get() + missCount.get();
+        return total == 0 ? 0 : (double) count / total;
+    }
+
+    private static final class Revalidation {
+    }
+
+    /**
+     * 單個端點的緩存規則
+     */
+    public static final class Rule {
+        final String pathPrefix;
+        final long maxAgeSeconds;
+        final long staleWhileRevalidateSeconds;
+        final long staleIfErrorSeconds;
+        final boolean perUser;
+
+        /**
+         * @param pathPrefix 路徑前綴，例如「/v1/search」（同時匹配其子路徑）
+         * @param maxAgeSeconds 新鮮期
+         * @param staleWhileRevalidateSeconds 過期後仍可先返回、同時後台更新的時間
+         * @param staleIfErrorSeconds 網絡不可用時仍可使用的過期時間
+         * @param perUser 是否按 Authorization 區分緩存
+         */
+        public Rule(String pathPrefix, long maxAgeSeconds, long staleWhileRevalidateSeconds,
+                    long staleIfErrorSeconds, boolean perUser) {
+            this.pathPrefix = pathPrefix;
+            this.maxAgeSeconds = maxAgeSeconds;
+            this.staleWhileRevalidateSeconds = staleWhileRevalidateSeconds;
+            this.staleIfErrorSeconds = staleIfErrorSeconds;
+            this.perUser = perUser;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package Model.Api;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import Util.LatencyHistogram;
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Request;
+
+/**
+ * 網絡分段耗時統計
+ * 以 OkHttp EventListener 記錄每次請求各階段的耗時，按主機分別保存到滾動直方圖：
+ * DNS 解析、TCP 連接、TLS 握手、寫入請求、首字節等待（TTFB）、讀取回應內容。
+ * 複用連接的請求沒有前三個階段的樣本。預熱請求不計入
+ */
+public final class NetworkTimingMetrics implements EventListener.Factory {
+
+    /**
+     * 請求階段
+     */
+    public enum Phase {
+        DNS,
+        CONNECT,
+        TLS,
+        REQUEST_WRITE,
+        TTFB,
+        BODY_READ
+    }
+
+    // 每個主機每個階段保留的最近樣本數
+    private static final int SAMPLE_CAPACITY = 256;
+
+    private static final NetworkTimingMetrics INSTANCE = new NetworkTimingMetrics();
+
+    private final Map<String, Map<Phase, LatencyHistogram>> hosts = new ConcurrentHashMap<>();
+
+    NetworkTimingMetrics() {
+    }
+
+    /**
+     * 獲取全局實例（ApiClient 的 OkHttpClient 使用）
+     */
+    public static NetworkTimingMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public EventListener create(Call call) {
+        if (NetworkWarmup.isWarmupCall(call.request())) {
+            return EventListener.NONE;
+        }
+        return new Listener(histograms(call.request().url().host()));
+    }
+
+    /**
+     * 有記錄的主機
+     */
+    public List<String> getHosts() {
+        return new ArrayList<>(hosts.keySet());
+    }
+
+    /**
+     * 某個主機各階段的分位數快照
+     * @return 只包含有樣本的階段，主機沒有記錄時為空
+     */
+    public Map<Phase, Percentiles> snapshot(String host) {
+        Map<Phase, Percentiles> snapshot = new EnumMap<>(Phase.class);
+        Map<Phase, LatencyHistogram> histograms = hosts.get(host);
+        if (histograms == null) {
+            return snapshot;
+        }
+        for (Map.Entry<Phase, LatencyHistogram> entry : histograms.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            int count = histogram.getCount();
+            if (count > 0) {
+                snapshot.put(entry.getKey(), new Percentiles(count, histogram.percentile(0.5),
+                        histogram.percentile(0.9), histogram.percentile(0.99)));
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * 清空統計
+     */
+    public void reset() {
+        hosts.clear();
+    }
+
+    private Map<Phase, LatencyHistogram> histograms(String host) {
+        return hosts.computeIfAbsent(host, key -> {
+            Map<Phase, LatencyHistogram> histograms = new EnumMap<>(Phase.class);
+            for (Phase phase : Phase.values()) {
+                histograms.put(phase, new LatencyHistogram(SAMPLE_CAPACITY));
+            }
+            return histograms;
+        });
+    }
+
+    /**
+     * 分位數快照（毫秒）
+     */
+    public static final class Percentiles {
+        private final int count;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+
+        Percentiles(int count, long p50, long p90, long p99) {
+            this.count = count;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP90() {
+            return p90;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        @Override
+        public String toString() {
+            return "n=" + count + " p50=" + p50 + "ms p90=" + p90 + "ms p99=" + p99 + "ms";
+        }
+    }
+
+    /**
+     * 單次請求的監聽器
+     * 重試和重定向會重複觸發同一階段，每次都記錄一個樣本
+     */
+    private static final class Listener extends EventListener {
+        private final Map<Phase, LatencyHistogram> histograms;
+        private long dnsStart;
+        private long connectStart;
+        private long tlsStart;
+        private boolean secure;
+        private long writeStart;
+        private long writeEnd;
+        private long bodyStart;
+
+        Listener(Map<Phase, LatencyHistogram> histograms) {
+            this.histograms = histograms;
+        }
+
+        private void record(Phase phase, long startNanos, long endNanos) {
+            histograms.get(phase).record(TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos));
+        }
+
+        @Override
+        public void dnsStart(Call call, String domainName) {
+            dnsStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+            record(Phase.DNS, dnsStart, System.nanoTime());
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            connectStart = System.nanoTime();
+            secure = false;
+        }
+
+        @Override
+        public void secureConnectStart(Call call) {
+            // CONNECT 只計 TCP 部分，TLS 單獨記錄
+            tlsStart = System.nanoTime();
+            secure = true;
+            record(Phase.CONNECT, connectStart, tlsStart);
+        }
+
+        @Override
+        public void secureConnectEnd(Call call, Handshake handshake) {
+            record(Phase.TLS, tlsStart, System.nanoTime());
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            if (!secure) {
+                record(Phase.CONNECT, connectStart, System.nanoTime());
+            }
+        }
+
+        @Override
+        public void requestHeadersStart(Call call) {
+            writeStart = System.nanoTime();
+            writeEnd = writeStart;
+        }
+
+        @Override
+        public void requestHeadersEnd(Call call, Request request) {
+            writeEnd = System.nanoTime();
+        }
+
+        @Override
+        public void requestBodyEnd(Call call, long byteCount) {
+            writeEnd = System.nanoTime();
+        }
+
+        @Override
+        public void responseHeadersStart(Call call) {
+            // 首字節到達：此前為寫入請求和等待伺服器處理
+            long now = System.nanoTime();
+            record(Phase.REQUEST_WRITE, writeStart, writeEnd);
+            record(Phase.TTFB, writeEnd, now);
+        }
+
+        @Override
+        public void responseBodyStart(Call call) {
+            bodyStart = System.nanoTime();
+        }
+
+        @Override
+        public void responseBodyEnd(Call call, long byteCount) {
+            record(Phase.BODY_READ, bodyStart, System.nanoTime());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package Model.Api;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 啟動時的網絡預熱
+ * 第一次推薦原本要在用戶等待的路徑上完成 DNS 解析、TCP 和 TLS 握手。
+ * Activity 仍在 inflate 佈局時，預先向各 API 主機發出 HEAD 請求，
+ * 建立的 HTTP/2 連接留在 ApiClient 的共享連接池中，之後的 Gemini 和 Spotify 請求直接複用。
+ * 複用效果見 ConnectionReuseMetrics
+ */
+public final class NetworkWarmup {
+
+    private static final String TAG = "NetworkWarmup";
+
+    // 專輯封面由 Glide 自己的網絡棧加載，無法共享連接，只預先解析 DNS
+    static final String IMAGE_HOST = "i.scdn.co";
+
+    // 兩次預熱的最小間隔：不超過連接的 keep-alive，期間連接仍在池中，無需重複預熱
+    private static final long MIN_INTERVAL_MS = TimeUnit.MINUTES.toMillis(ApiClient.KEEP_ALIVE_MINUTES);
+    // 預熱請求的整體超時，慢網絡下不應長時間佔用連接名額
+    private static final long WARMUP_TIMEOUT_SECONDS = 10;
+
+    // 預熱請求的標記（Request tag）
+    private static final NetworkWarmup MARKER = new NetworkWarmup();
+
+    private static long lastWarmupMs = 0;
+
+    private NetworkWarmup() {
+    }
+
+    /**
+     * 預熱所有 API 主機（不阻塞，可在主線程調用）
+     * 距上次預熱不足 keep-alive 時間時直接返回
+     */
+    public static void warmUp() {
+        synchronized (NetworkWarmup.class) {
+            long now = System.currentTimeMillis();
+            if (lastWarmupMs != 0 && now - lastWarmupMs < MIN_INTERVAL_MS) {
+                return;
+            }
+            lastWarmupMs = now;
+        }
+        List<HttpUrl> urls = new ArrayList<>();
+        urls.add(HttpUrl.get(ApiClient.getGeminiBaseUrl()));
+        urls.add(HttpUrl.get(ApiClient.getSpotifyBaseUrl()));
+        warmUp(ApiClient.getOkHttpClient(), urls, List.of(IMAGE_HOST));
+    }
+
+    /**
+     * 預熱指定地址
+     * @param urls 發出 HEAD 請求的地址，連接留在 client 的連接池中
+     * @param dnsOnlyHosts 只預先解析 DNS 的主機
+     * @return 所有預熱完成（成功或失敗）時完成，不會以異常完成
+     */
+    static CompletableFuture<Void> warmUp(OkHttpClient client, List<HttpUrl> urls, List<String> dnsOnlyHosts) {
+        List<CompletableFuture<?>> pending = new ArrayList<>();
+        for (HttpUrl url : urls) {
+            pending.add(openConnection(client, url));
+        }
+        if (!dnsOnlyHosts.isEmpty()) {
+            // DNS 查詢是阻塞調用，不能在主線程執行
+            pending.add(CompletableFuture.runAsync(() -> {
+                for (String host : dnsOnlyHosts) {
+                    try {
+                        client.dns().lookup(host);
+                    } catch (UnknownHostException e) {
+                        Log.w(TAG, "預先解析 DNS 失敗: " + host);
+                    }
+                }
+            }));
+        }
+        return CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * 是否為預熱請求（統計時排除）
+     */
+    static boolean isWarmupCall(Request request) {
+        return request.tag(NetworkWarmup.class) != null;
+    }
+
+    /**
+     * 以 HEAD 請求建立連接；回應內容無關緊要（通常是 404），只需要握手完成後的連接
+     */
+    private static CompletableFuture<Void> openConnection(OkHttpClient client, HttpUrl url) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        Request request = new Request.Builder()
+                .url(url)
+                .head()
+                .tag(NetworkWarmup.class, MARKER)
+                .build();
+        Call call = client.newCall(request);
+        call.timeout().timeout(WARMUP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        call.enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                response.close();
+                Log.d(TAG, "已預熱 " + url.host() + " (" + response.protocol() + ")");
+                future.complete(null);
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                Log.w(TAG, "預熱失敗: " + url.host() + " - " + e.getMessage());
+                future.complete(null);
+            }
+        });
+        return future;
+    }
+}
@@ -0,0 +1,92 @@
+package Model.Api;
+
+import com.google.gson.annotations.SerializedName;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 一次錄製的 HTTP 交換
+ * 由 {@link RecordingInterceptor} 寫入錄製文件（每行一個 JSON），測試中由重放伺服器讀取。
+ * API Key 和 Authorization 不會被錄製
+ */
+public class RecordedExchange {
+
+    @SerializedName("method")
+    private String method;
+
+    // 不含查詢參數的路徑，例如 /v1/search
+    @SerializedName("path")
+    private String path;
+
+    @SerializedName("query")
+    private Map<String, String> query = new LinkedHashMap<>();
+
+    @SerializedName("status")
+    private int status;
+
+    @SerializedName("headers")
+    private Map<String, String> headers = new LinkedHashMap<>();
+
+    @SerializedName("body")
+    private String body;
+
+    // 從發出請求到收到回應頭的時間
+    @SerializedName("headers_ms")
+    private long headersMs;
+
+    // 從收到回應頭到讀完回應體的時間（Gemini 串流的生成時間）
+    @SerializedName("body_ms")
+    private long bodyMs;
+
+    public RecordedExchange() {
+    }
+
+    public RecordedExchange(String method, String path, int status, String body, long headersMs, long bodyMs) {
+        this.method = method;
+        this.path = path;
+        this.status = status;
+        this.body = body;
+        this.headersMs = headersMs;
+        this.bodyMs = bodyMs;
+    }
+
+    /**
+     * 匹配用的 key：方法 + 路徑
+     */
+    public String endpoint() {
+        return method + " " + path;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public Map<String, String> getQuery() {
+        return query;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public long getHeadersMs() {
+        return headersMs;
+    }
+
+    public long getBodyMs() {
+        return bodyMs;
+    }
+}
@@ -0,0 +1,91 @@
+package Model.Api;
+
+import android.util.Log;
+
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+/**
+ * HTTP 錄製攔截器
+ * 把經過的每次請求和回應（含延遲）追加到錄製文件，用於離線重放和端到端延遲基準測試。
+ * 回應體會被完整讀入內存後才交給調用方，串流在錄製期間不再逐段到達，只應在調試時啟用：
+ * <pre>
+ * ApiClient.setRecorder(new RecordingInterceptor(new File(context.getFilesDir(), "exchanges.jsonl")));
+ * </pre>
+ * 之後用 adb pull 取出文件，放到 app/src/test/resources/replay/ 即可重放
+ */
+public class RecordingInterceptor implements Interceptor {
+
+    private static final String TAG = "RecordingInterceptor";
+
+    // 不錄製的憑證
+    private static final Set<String> REDACTED_QUERY = new HashSet<>(Arrays.asList("key"));
+    // 重放時需要的回應頭
+    private static final Set<String> RECORDED_HEADERS = new HashSet<>(Arrays.asList(
+            "content-type", "retry-after", "cache-control", "etag"));
+
+    private final File file;
+    private final Gson gson = new Gson();
+
+    public RecordingInterceptor(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        long start = System.nanoTime();
+        Response response = chain.proceed(request);
+        long headersMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        ResponseBody body = response.body();
+        BufferedSource source = body.source();
+        // 讀完整個回應體，數據留在 source 的緩衝區中，調用方照常讀取
+        source.request(Long.MAX_VALUE);
+        long bodyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) - headersMs;
+        String bodyText = source.getBuffer().clone().readString(StandardCharsets.UTF_8);
+
+        HttpUrl url = request.url();
+        RecordedExchange exchange = new RecordedExchange(request.method(), url.encodedPath(),
+                response.code(), bodyText, headersMs, bodyMs);
+        for (String name : url.queryParameterNames()) {
+            if (!REDACTED_QUERY.contains(name)) {
+                exchange.getQuery().put(name, url.queryParameter(name));
+            }
+        }
+        for (String name : response.headers().names()) {
+            if (RECORDED_HEADERS.contains(name.toLowerCase())) {
+                exchange.getHeaders().put(name, response.header(name));
+            }
+        }
+        append(exchange);
+        return response;
+    }
+
+    private synchronized void append(RecordedExchange exchange) {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8)) {
+            writer.write(gson.toJson(exchange));
+            writer.write('\n');
+        } catch (IOException e) {
+            // 錄製失敗不影響請求本身
+            Log.w(TAG, "寫入錄製文件失敗: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package Model.Api;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * 請求重試策略
+ * - 只重試暫時性錯誤：網絡異常（連接重置、超時等）和 408 / 500 / 502 / 503 / 504
+ * - 退避時間為帶上限的指數退避加完全抖動（full jitter）：random(0, min(cap, base * 2^n))
+ * - 每次嘗試的整體超時設為 Deadline 的剩餘時間；剩餘時間不足以等待下一次退避時停止重試
+ * 429 不在這裡處理，由 AdaptiveConcurrencyLimiter 和 GeminiQuotaManager 負責
+ */
+public class RetryPolicy {
+
+    private static final String TAG = "RetryPolicy";
+
+    public static final RetryPolicy DEFAULT = new RetryPolicy(3, 200, 2000);
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "RetryPolicy");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+
+    /**
+     * @param maxAttempts 最多嘗試次數（包括第一次）
+     * @param baseDelayMs 第一次重試的退避上限
+     * @param maxDelayMs 退避時間的上限
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMs, long maxDelayMs) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+    }
+
+    /**
+     * 以 enqueue 執行請求，失敗時按策略重試
+     */
+    public <T> CompletableFuture<Response<T>> execute(Call<T> call, Deadline deadline, Consumer<Call<?>> tracker) {
+        return execute(call, deadline, tracker, CallFutures::enqueue);
+    }
+
+    /**
+     * 執行請求，失敗時按策略重試
+     * @param call 原始請求，被取消後不再重試
+     * @param deadline 端到端時間預算
+     * @param tracker 重試時 clone 出的新請求交給 tracker 登記，以便調用方一併取消
+     * @param sender 發出單次請求的方式（例如經過並發限制器排隊）
+     * @return 最後一次嘗試的回應（可能仍是 5xx），或最後一次的網絡異常
+     */
+    public <T> CompletableFuture<Response<T>> execute(Call<T> call, Deadline deadline, Consumer<Call<?>> tracker,
+                                                      Function<Call<T>, CompletableFuture<Response<T>>> sender) {
+        CompletableFuture<Response<T>> result = new CompletableFuture<>();
+        attempt(call, call, 1, deadline, tracker, sender, result);
+        return result;
+    }
+
+    private <T> void attempt(Call<T> original, Call<T> call, int attempt, Deadline deadline,
+                             Consumer<Call<?>> tracker, Function<Call<T>, CompletableFuture<Response<T>>> sender,
+                             CompletableFuture<Response<T>> result) {
+        long remainingMs = deadline.remainingMs();
+        if (remainingMs == 0) {
+            result.completeExceptionally(new InterruptedIOException("deadline exceeded"));
+            return;
+        }
+        // 單次嘗試不能超過剩餘預算
+        call.timeout().timeout(remainingMs, TimeUnit.MILLISECONDS);
+
+        sender.apply(call).whenComplete((response, throwable) -> {
+            Throwable error = unwrap(throwable);
+            boolean retryable = response != null ? isRetryable(response.code()) : isRetryable(error);
+            if (!retryable || attempt >= maxAttempts || original.isCanceled()) {
+                complete(result, response, error);
+                return;
+            }
+
+            long delayMs = backoffMs(attempt);
+            if (delayMs >= deadline.remainingMs()) {
+                // 等待後已沒有時間再發出請求
+                complete(result, response, error);
+                return;
+            }
+
+            if (response != null && response.errorBody() != null) {
+                response.errorBody().close();
+            }
+            Log.w(TAG, "第 " + attempt + " 次請求失敗（" + (response != null ? response.code() : error) +
+                    "），" + delayMs + "ms 後重試");
+            SCHEDULER.schedule(() -> {
+                if (original.isCanceled()) {
+                    complete(result, response, error);
+                    return;
+                }
+                Call<T> next = original.clone();
+                if (tracker != null) {
+                    tracker.accept(next);
+                }
+                attempt(original, next, attempt + 1, deadline, tracker, sender, result);
+            }, delayMs, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    /**
+     * 第 attempt 次失敗後的退避時間（完全抖動）
+     */
+    long backoffMs(int attempt) {
+        long exponential = baseDelayMs << Math.min(attempt - 1, 20);
+        long cap = Math.min(maxDelayMs, exponential);
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    private static boolean isRetryable(int code) {
+        return code == 408 || code == 500 || code == 502 || code == 503 || code == 504;
+    }
+
+    private static boolean isRetryable(Throwable error) {
+        // 超過 Deadline 的整體超時（InterruptedIOException）不重試，連接級別的超時和重置可以重試
+        return error instanceof IOException
+                && (!(error instanceof InterruptedIOException) || error instanceof SocketTimeoutException);
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        while (throwable instanceof CompletionException && throwable.getCause() != null) {
+            throwable = throwable.getCause();
+        }
+        return throwable;
+    }
+
+    private static <T> void complete(CompletableFuture<Response<T>> result, Response<T> response, Throwable error) {
+        if (error != null) {
+            result.completeExceptionally(error);
+        } else {
+            result.complete(response);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package Model.Api;
 
 import Model.POJO.SpotifySearchResponse;
+import Model.POJO.SpotifyUser;
 import retrofit2.Call;
 import retrofit2.http.GET;
 import retrofit2.http.Header;
@@ -25,4 +26,11 @@ public interface SpotifyApiService {
             @Query("type") String type,
             @Query("limit") int limit
     );
+
+    /**
+     * 獲取當前登入用戶的資料
+     * @param authorization Bearer token
+     */
+    @GET("v1/me")
+    Call<SpotifyUser> getCurrentUser(@Header("Authorization") String authorization);
 }
@@ -0,0 +1,58 @@
+package Model.Api;
+
+import java.io.IOException;
+
+import okhttp3.Authenticator;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.Route;
+
+/**
+ * Spotify Bearer Token 的自動續期
+ * 同時作為應用攔截器和 Authenticator 安裝在 Spotify 的客戶端上：
+ * - 攔截器：請求發出前把 Authorization 換成當前有效的 Token（即將過期時先刷新），
+ *   調用方在推薦開始時讀取的 Token 即使中途被刷新也不會過時
+ * - Authenticator：仍然收到 401 時刷新一次並重發；同一批並發的 401 只觸發一次刷新
+ * 沒有 Bearer Authorization 頭的請求不受影響
+ */
+public class SpotifyTokenAuthenticator implements Authenticator, Interceptor {
+
+    private static final String AUTHORIZATION = "Authorization";
+    private static final String BEARER = "Bearer ";
+
+    private final SpotifyTokenRefresher refresher;
+
+    public SpotifyTokenAuthenticator(SpotifyTokenRefresher refresher) {
+        this.refresher = refresher;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String header = request.header(AUTHORIZATION);
+        if (header == null || !header.startsWith(BEARER)) {
+            return chain.proceed(request);
+        }
+        String token = refresher.getValidToken();
+        if (token != null && !header.equals(BEARER + token)) {
+            request = request.newBuilder().header(AUTHORIZATION, BEARER + token).build();
+        }
+        return chain.proceed(request);
+    }
+
+    @Override
+    public Request authenticate(Route route, Response response) {
+        Request request = response.request();
+        String header = request.header(AUTHORIZATION);
+        // 刷新後重發仍然 401 時放棄，避免無限重試
+        if (header == null || !header.startsWith(BEARER) || response.priorResponse() != null) {
+            return null;
+        }
+        String token = refresher.refreshAfterUnauthorized(header.substring(BEARER.length()));
+        if (token == null) {
+            return null;
+        }
+        return request.newBuilder().header(AUTHORIZATION, BEARER + token).build();
+    }
+}
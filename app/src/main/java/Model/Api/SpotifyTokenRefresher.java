@@ -0,0 +1,241 @@
+package Model.Api;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.graduationproject.BuildConfig;
+import com.google.gson.annotations.SerializedName;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import Util.TokenManager;
+import Util.TokenStore;
+import okhttp3.FormBody;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Spotify Access Token 刷新
+ * 以保存的 Refresh Token 向 accounts.spotify.com/api/token 換取新的 Access Token。
+ * - 單飛：同一時間只有一個刷新請求，並發的調用等待並共用它的結果
+ * - 提前刷新：剩餘有效期少於緩衝時間（與 TokenManager.isLoggedIn 相同的 5 分鐘）時，
+ *   請求發出前先刷新；另有後台定時任務在到期前自動刷新
+ * - 刷新失敗後一段時間內不再重試，避免離線時每個請求都發出刷新
+ */
+public class SpotifyTokenRefresher {
+
+    private static final String TAG = "SpotifyTokenRefresher";
+
+    private static final String TOKEN_URL = "https://accounts.spotify.com/api/token";
+    // 刷新失敗後再次嘗試的間隔
+    private static final long RETRY_DELAY_MS = TimeUnit.MINUTES.toMillis(1);
+
+    // 定時刷新的線程（守護線程，不阻止進程退出）
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "spotify-token-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static volatile SpotifyTokenRefresher instance;
+
+    private final TokenStore store;
+    private final Supplier<OkHttpClient> client;
+    private final HttpUrl tokenUrl;
+    private final String clientId;
+    private final long marginMs;
+
+    // 刷新和定時任務的狀態都在 lock 中修改
+    private final Object lock = new Object();
+    private volatile ScheduledFuture<?> scheduledRefresh;
+    private long retryNotBefore = 0;
+    private final AtomicLong refreshCount = new AtomicLong();
+
+    /**
+     * @param client 發出刷新請求的客戶端，不能帶有本類的認證器，否則 401 會遞歸刷新；
+     *               也不能帶有日誌和錄製攔截器，否則 Token 會被寫出
+     * @param marginMs 過期前預留的緩衝時間
+     */
+    SpotifyTokenRefresher(TokenStore store, Supplier<OkHttpClient> client, HttpUrl tokenUrl, String clientId,
+                          long marginMs) {
+        this.store = store;
+        this.client = client;
+        this.tokenUrl = tokenUrl;
+        this.clientId = clientId;
+        this.marginMs = marginMs;
+    }
+
+    /**
+     * 獲取單例實例
+     */
+    public static SpotifyTokenRefresher getInstance(Context context) {
+        if (instance == null) {
+            synchronized (SpotifyTokenRefresher.class) {
+                if (instance == null) {
+                    instance = new SpotifyTokenRefresher(new TokenManager(context.getApplicationContext()),
+                            ApiClient::getTokenClient, HttpUrl.get(TOKEN_URL), BuildConfig.SPOTIFY_CLIENT_ID,
+                            TokenManager.EXPIRY_MARGIN_MS);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 啟動到期前的定時刷新（不阻塞）
+     * 尚未登入時不做任何事，登入後第一個請求會再次檢查
+     */
+    public void start() {
+        SCHEDULER.execute(this::ensureScheduled);
+    }
+
+    /**
+     * 請求發出前調用：Token 即將過期時先刷新
+     * @return 可用的 Access Token；刷新失敗時返回現有的 Token（可能仍在緩衝期內有效）
+     */
+    public String getValidToken() {
+        if (!isExpiring()) {
+            if (scheduledRefresh == null) {
+                ensureScheduled();
+            }
+            return store.getAccessToken();
+        }
+        synchronized (lock) {
+            // 等待期間其他請求可能已經刷新
+            if (isExpiring()) {
+                String refreshed = refresh();
+                if (refreshed != null) {
+                    return refreshed;
+                }
+            }
+            return store.getAccessToken();
+        }
+    }
+
+    /**
+     * 收到 401 後調用
+     * @param rejectedToken 被拒絕的 Token
+     * @return 新的 Token；無法刷新時為 null
+     */
+    public String refreshAfterUnauthorized(String rejectedToken) {
+        synchronized (lock) {
+            String current = store.getAccessToken();
+            // 並發的 401 中已有一個完成了刷新，直接使用新 Token
+            if (current != null && !current.equals(rejectedToken)) {
+                return current;
+            }
+            return refresh();
+        }
+    }
+
+    /**
+     * 成功刷新的次數
+     */
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    private boolean isExpiring() {
+        long expiry = store.getTokenExpiry();
+        return expiry > 0 && System.currentTimeMillis() >= expiry - marginMs;
+    }
+
+    private static boolean isEmpty(String text) {
+        return text == null || text.isEmpty();
+    }
+
+    /**
+     * 發出刷新請求（調用方持有 lock）
+     */
+    private String refresh() {
+        String refreshToken = store.getRefreshToken();
+        if (isEmpty(refreshToken) || System.currentTimeMillis() < retryNotBefore) {
+            return null;
+        }
+        Request request = new Request.Builder()
+                .url(tokenUrl)
+                .post(new FormBody.Builder()
+                        .add("grant_type", "refresh_token")
+                        .add("refresh_token", refreshToken)
+                        .add("client_id", clientId)
+                        .build())
+                .build();
+        try (Response response = client.get().newCall(request).execute()) {
+            TokenResponse token = response.isSuccessful()
+                    ? ApiGson.get().fromJson(response.body().charStream(), TokenResponse.class) : null;
+            if (token == null || isEmpty(token.accessToken)) {
+                Log.w(TAG, "刷新 Token 失敗: HTTP " + response.code());
+                retryNotBefore = System.currentTimeMillis() + RETRY_DELAY_MS;
+                return null;
+            }
+            long expiry = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(token.expiresIn);
+            store.saveTokens(token.accessToken, token.refreshToken, expiry);
+            refreshCount.incrementAndGet();
+            retryNotBefore = 0;
+            schedule(expiry - marginMs);
+            Log.d(TAG, "已刷新 Token，有效期 " + token.expiresIn + " 秒");
+            return token.accessToken;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "刷新 Token 失敗: " + e.getMessage());
+            retryNotBefore = System.currentTimeMillis() + RETRY_DELAY_MS;
+            return null;
+        }
+    }
+
+    /**
+     * 已登入但沒有定時任務時安排一次
+     */
+    private void ensureScheduled() {
+        synchronized (lock) {
+            long expiry = store.getTokenExpiry();
+            if (scheduledRefresh == null && expiry > 0 && !isEmpty(store.getRefreshToken())) {
+                schedule(expiry - marginMs);
+            }
+        }
+    }
+
+    /**
+     * 在指定時間刷新（調用方持有 lock）
+     */
+    private void schedule(long atMillis) {
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+        }
+        long delay = Math.max(0, atMillis - System.currentTimeMillis());
+        scheduledRefresh = SCHEDULER.schedule(this::refreshInBackground, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void refreshInBackground() {
+        synchronized (lock) {
+            scheduledRefresh = null;
+            if (!isExpiring()) {
+                // Token 已被請求路徑上的刷新更新
+                ensureScheduled();
+                return;
+            }
+            if (refresh() == null && !isEmpty(store.getRefreshToken())) {
+                schedule(System.currentTimeMillis() + RETRY_DELAY_MS);
+            }
+        }
+    }
+
+    /**
+     * Token 端點的回應
+     */
+    private static final class TokenResponse {
+        @SerializedName("access_token")
+        String accessToken;
+        @SerializedName("refresh_token")
+        String refreshToken;
+        @SerializedName("expires_in")
+        long expiresIn;
+    }
+}
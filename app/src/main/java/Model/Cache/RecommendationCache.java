@@ -0,0 +1,190 @@
+package Model.Cache;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import Model.Api.ApiGson;
+import Model.Dao.RecommendationCacheDao;
+import Model.Database.AppDatabase;
+import Model.Entity.RecommendationCacheEntity;
+import Model.POJO.EmotionInput;
+import Model.POJO.MusicItem;
+
+/**
+ * 推薦結果緩存（兩級）
+ * 以量化後的 5 維情緒向量為 key：滑桿只移動一兩格時落在同一區間，直接返回上次的歌單，
+ * 不再請求 Gemini 和 Spotify
+ * - 第一級：內存 LruCache，毫秒級返回
+ * - 第二級：Room 持久化，跨進程重啟保留
+ * 兩級共用同一個 TTL。get/put 會訪問數據庫，必須在後台線程調用
+ */
+public class RecommendationCache {
+
+    private static final String TAG = "RecommendationCache";
+
+    private static final int DEFAULT_BUCKET_WIDTH = 10;
+    private static final long TTL_MS = TimeUnit.HOURS.toMillis(6);
+    private static final int MEMORY_ENTRIES = 32;
+    private static final int PERSISTED_ENTRIES = 200;
+
+    private static volatile RecommendationCache instance;
+
+    private final RecommendationCacheDao dao;
+    private final LruCache<String, Entry> memoryCache;
+    // 以共用的 Gson 預先建立歌單適配器，讀寫時不再查找
+    private final TypeAdapter<List<MusicItem>> itemsAdapter =
+            ApiGson.get().getAdapter(new TypeToken<List<MusicItem>>(){});
+
+    private volatile int bucketWidth = DEFAULT_BUCKET_WIDTH;
+
+    private final AtomicLong memoryHitCount = new AtomicLong();
+    private final AtomicLong persistedHitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * @param dao 持久化層，為 null 時只使用內存緩存
+     */
+    public RecommendationCache(RecommendationCacheDao dao) {
+        this.dao = dao;
+        this.memoryCache = new LruCache<>(MEMORY_ENTRIES);
+    }
+
+    /**
+     * 獲取單例實例
+     */
+    public static RecommendationCache getInstance(Context context) {
+        if (instance == null) {
+            synchronized (RecommendationCache.class) {
+                if (instance == null) {
+                    instance = new RecommendationCache(AppDatabase.getInstance(context).recommendationCacheDao());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 設置量化區間寬度（例如 10 表示每 10 分為一個區間）
+     * key 中包含寬度，修改後舊區間的條目不會被誤用
+     */
+    public void setBucketWidth(int bucketWidth) {
+        this.bucketWidth = Math.max(1, bucketWidth);
+    }
+
+    /**
+     * 計算情緒輸入對應的緩存 key
+     */
+    public String keyFor(EmotionInput emotionInput) {
+        int width = bucketWidth;
+        return "w" + width + ":" + emotionInput.toQuantizedKey(width);
+    }
+
+    /**
+     * 查詢緩存（先內存後數據庫，數據庫命中時回填內存）
+     * @return 歌單副本，未命中或已過期返回 null
+     */
+    public List<MusicItem> get(String key) {
+        long now = System.currentTimeMillis();
+
+        Entry entry = memoryCache.get(key);
+        if (entry != null && now - entry.createdTimestamp <= TTL_MS) {
+            memoryHitCount.incrementAndGet();
+            return copyItems(entry.items);
+        }
+
+        if (dao != null) {
+            try {
+                RecommendationCacheEntity entity = dao.get(key);
+                if (entity != null && now - entity.getCreatedTimestamp() <= TTL_MS) {
+                    List<MusicItem> items = itemsAdapter.fromJson(entity.getItemsJson());
+                    if (items != null && !items.isEmpty()) {
+                        memoryCache.put(key, new Entry(copyItems(items), entity.getCreatedTimestamp()));
+                        persistedHitCount.incrementAndGet();
+                        return items;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // 數據庫或 JSON 異常時退化為未命中
+                Log.e(TAG, "查詢推薦緩存失敗: " + key, e);
+            }
+        }
+
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 寫入緩存（兩級同時寫入），空歌單不緩存
+     */
+    public void put(String key, List<MusicItem> items) {
+        if (items == null || items.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<MusicItem> snapshot = copyItems(items);
+        memoryCache.put(key, new Entry(snapshot, now));
+
+        if (dao != null) {
+            try {
+                dao.insert(RecommendationCacheEntity.create(key, itemsAdapter.toJson(snapshot), now));
+                dao.deleteOlderThan(now - TTL_MS);
+                dao.trimToSize(PERSISTED_ENTRIES);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "寫入推薦緩存失敗: " + key, e);
+            }
+        }
+    }
+
+    /**
+     * 深拷貝歌單，避免播放狀態等可變字段在調用方和緩存之間共享
+     */
+    private static List<MusicItem> copyItems(List<MusicItem> items) {
+        List<MusicItem> copies = new ArrayList<>(items.size());
+        for (MusicItem item : items) {
+            copies.add(new MusicItem(
+                    item.getSongName(),
+                    item.getArtistName(),
+                    item.getAlbumImageUrl(),
+                    item.getLargeImageUrl(),
+                    item.getSpotifyTrackId(),
+                    item.getDurationMs()
+            ));
+        }
+        return copies;
+    }
+
+    public long getMemoryHitCount() {
+        return memoryHitCount.get();
+    }
+
+    public long getPersistedHitCount() {
+        return persistedHitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * 內存緩存條目
+     */
+    private static class Entry {
+        final List<MusicItem> items;
+        final long createdTimestamp;
+
+        Entry(List<MusicItem> items, long createdTimestamp) {
+            this.items = items;
+            this.createdTimestamp = createdTimestamp;
+        }
+    }
+}
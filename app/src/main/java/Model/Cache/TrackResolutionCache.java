@@ -0,0 +1,189 @@
+package Model.Cache;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import Model.Dao.TrackCacheDao;
+import Model.Database.AppDatabase;
+import Model.Entity.TrackCacheEntity;
+import Model.POJO.MusicItem;
+
+/**
+ * Spotify 歌曲解析緩存
+ * 以 Room 持久化 (歌名, 藝術家) -> Spotify Track 的映射，跨會話重用搜索結果
+ * - 正向和負向（搜索無結果）緩存分別設置 TTL
+ * - 超過容量時淘汰最久未訪問的條目
+ * 所有方法會訪問數據庫，必須在後台線程調用
+ */
+public class TrackResolutionCache {
+
+    private static final String TAG = "TrackResolutionCache";
+
+    private static final long POSITIVE_TTL_MS = TimeUnit.DAYS.toMillis(30);
+    private static final long NEGATIVE_TTL_MS = TimeUnit.DAYS.toMillis(1);
+    private static final int MAX_ENTRIES = 2000;
+    // 每寫入多少次執行一次過期清理和容量淘汰
+    private static final int TRIM_INTERVAL_WRITES = 50;
+
+    private static volatile TrackResolutionCache instance;
+
+    private final TrackCacheDao dao;
+    private final AtomicInteger writesSinceTrim = new AtomicInteger();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong negativeHitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public TrackResolutionCache(TrackCacheDao dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * 獲取單例實例
+     */
+    public static TrackResolutionCache getInstance(Context context) {
+        if (instance == null) {
+            synchronized (TrackResolutionCache.class) {
+                if (instance == null) {
+                    instance = new TrackResolutionCache(AppDatabase.getInstance(context).trackCacheDao());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 查詢緩存
+     * @return null 表示未命中（或已過期），需要發出網絡請求
+     */
+    public Lookup lookup(String songName, String artist) {
+        String key = buildKey(songName, artist);
+        long now = System.currentTimeMillis();
+        try {
+            TrackCacheEntity entity = dao.get(key);
+            if (entity == null || isExpired(entity, now)) {
+                missCount.incrementAndGet();
+                return null;
+            }
+            dao.touch(key, now);
+            if (entity.isNotFound()) {
+                negativeHitCount.incrementAndGet();
+                return Lookup.NOT_FOUND;
+            }
+            hitCount.incrementAndGet();
+            return new Lookup(entity.toMusicItem());
+        } catch (RuntimeException e) {
+            // 數據庫異常時退化為未命中，不影響推薦流程
+            Log.e(TAG, "查詢緩存失敗: " + key, e);
+            missCount.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * 寫入搜索成功的結果
+     */
+    public void putResolved(String songName, String artist, MusicItem item) {
+        if (item == null || item.getSpotifyTrackId() == null) {
+            return;
+        }
+        write(TrackCacheEntity.fromMusicItem(buildKey(songName, artist), item, System.currentTimeMillis()));
+    }
+
+    /**
+     * 寫入「搜索無結果」的負向緩存
+     */
+    public void putNotFound(String songName, String artist) {
+        write(TrackCacheEntity.notFound(buildKey(songName, artist), System.currentTimeMillis()));
+    }
+
+    private void write(TrackCacheEntity entity) {
+        try {
+            dao.insert(entity);
+            if (writesSinceTrim.incrementAndGet() >= TRIM_INTERVAL_WRITES) {
+                writesSinceTrim.set(0);
+                trim();
+            }
+        } catch (RuntimeException e) {
+            Log.e(TAG, "寫入緩存失敗: " + entity.getCacheKey(), e);
+        }
+    }
+
+    /**
+     * 清理過期條目，並將總數限制在 MAX_ENTRIES 以內
+     */
+    public void trim() {
+        long now = System.currentTimeMillis();
+        int expired = dao.deleteExpired(now - POSITIVE_TTL_MS, now - NEGATIVE_TTL_MS);
+        int excess = dao.getCount() - MAX_ENTRIES;
+        int evicted = excess > 0 ? dao.deleteLeastRecentlyUsed(excess) : 0;
+        Log.d(TAG, "清理緩存: 過期 " + expired + " 條, 淘汰 " + evicted + " 條");
+    }
+
+    private boolean isExpired(TrackCacheEntity entity, long now) {
+        long ttl = entity.isNotFound() ? NEGATIVE_TTL_MS : POSITIVE_TTL_MS;
+        return now - entity.getCachedTimestamp() > ttl;
+    }
+
+    /**
+     * 構建標準化的緩存 key："歌名|藝術家"
+     * Unicode NFKC 標準化、忽略大小寫、合併空白
+     */
+    static String buildKey(String songName, String artist) {
+        return normalize(songName) + "|" + normalize(artist);
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return Normalizer.normalize(value, Normalizer.Form.NFKC)
+                .toLowerCase(Locale.ROOT)
+                .trim()
+                .replaceAll("\\s+", " ");
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getNegativeHitCount() {
+        return negativeHitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * 緩存查詢結果
+     */
+    public static class Lookup {
+        static final Lookup NOT_FOUND = new Lookup(null);
+
+        private final MusicItem item;
+
+        Lookup(MusicItem item) {
+            this.item = item;
+        }
+
+        /**
+         * 是否為負向緩存（之前搜索無結果）
+         */
+        public boolean isNotFound() {
+            return item == null;
+        }
+
+        /**
+         * 緩存的歌曲（每次查詢都是新實例，可以安全修改播放狀態）
+         */
+        public MusicItem getItem() {
+            return item;
+        }
+    }
+}
@@ -58,6 +58,12 @@ public interface FavoriteDao {
     @Query("SELECT * FROM favorites ORDER BY savedTimestamp DESC LIMIT 50")
     List<FavoriteEntity> getRecentSync();
 
+    /**
+     * 獲取所有收藏的 trackId（同步版本，用於離線推薦對齊收藏表）
+     */
+    @Query("SELECT trackId FROM favorites")
+    List<String> getAllTrackIdsSync();
+
     /**
      * 獲取收藏總數
      */
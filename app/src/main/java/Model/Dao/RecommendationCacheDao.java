@@ -0,0 +1,42 @@
+package Model.Dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import Model.Entity.RecommendationCacheEntity;
+
+/**
+ * 推薦結果緩存 DAO 接口
+ * 所有方法均為同步調用，需在後台線程執行
+ */
+@Dao
+public interface RecommendationCacheDao {
+
+    /**
+     * 寫入緩存
+     * 衝突策略：替換（同一情緒區間只保留最新的歌單）
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insert(RecommendationCacheEntity entity);
+
+    /**
+     * 根據量化 key 查詢
+     */
+    @Query("SELECT * FROM recommendation_cache WHERE cacheKey = :cacheKey")
+    RecommendationCacheEntity get(String cacheKey);
+
+    /**
+     * 刪除早於指定時間的條目
+     */
+    @Query("DELETE FROM recommendation_cache WHERE createdTimestamp < :cutoff")
+    int deleteOlderThan(long cutoff);
+
+    /**
+     * 只保留最新的若干條
+     */
+    @Query("DELETE FROM recommendation_cache WHERE cacheKey NOT IN " +
+            "(SELECT cacheKey FROM recommendation_cache ORDER BY createdTimestamp DESC LIMIT :keep)")
+    int trimToSize(int keep);
+}
@@ -0,0 +1,121 @@
+package Model.Dao;
+
+import androidx.room.Dao;
+import androidx.room.Embedded;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import Model.Entity.HistoryEntryEntity;
+import Model.Entity.HistoryTrackEntity;
+import Model.Entity.RecommendationHistoryEntity;
+
+/**
+ * 推薦歷史 DAO 接口
+ * 歷史按 (createdTimestamp, id) 倒序排列，分頁使用 keyset（以上一頁最後一筆為游標），
+ * 不使用 OFFSET，翻到多深都只掃描一頁的行數。
+ * 所有方法均為同步調用，需在後台線程執行
+ */
+@Dao
+public interface RecommendationHistoryDao {
+
+    @Insert
+    long insertHistory(RecommendationHistoryEntity history);
+
+    /**
+     * 寫入歌曲
+     * 衝突策略：替換（以最新的名稱和封面為準）
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsertTracks(List<HistoryTrackEntity> tracks);
+
+    @Insert
+    void insertEntries(List<HistoryEntryEntity> entries);
+
+    /**
+     * 寫入一次推薦及其歌單
+     * @param tracks 按歌單順序排列的歌曲
+     * @return 新歷史記錄的 id
+     */
+    @Transaction
+    default long insertSession(RecommendationHistoryEntity history, List<HistoryTrackEntity> tracks) {
+        long historyId = insertHistory(history);
+        upsertTracks(tracks);
+        List<HistoryEntryEntity> entries = new ArrayList<>(tracks.size());
+        for (int i = 0; i < tracks.size(); i++) {
+            entries.add(new HistoryEntryEntity(historyId, i, tracks.get(i).getTrackId()));
+        }
+        insertEntries(entries);
+        return historyId;
+    }
+
+    /**
+     * 第一頁
+     */
+    @Query("SELECT * FROM recommendation_history ORDER BY createdTimestamp DESC, id DESC LIMIT :limit")
+    List<RecommendationHistoryEntity> getFirstPage(int limit);
+
+    /**
+     * 游標之後的一頁（游標為上一頁最後一筆的時間和 id）
+     */
+    @Query("SELECT * FROM recommendation_history " +
+            "WHERE createdTimestamp < :beforeTimestamp " +
+            "OR (createdTimestamp = :beforeTimestamp AND id < :beforeId) " +
+            "ORDER BY createdTimestamp DESC, id DESC LIMIT :limit")
+    List<RecommendationHistoryEntity> getPageBefore(long beforeTimestamp, long beforeId, int limit);
+
+    /**
+     * 多次推薦的歌單（一次查詢，按歷史和位置排序）
+     */
+    @Query("SELECT e.historyId AS historyId, e.position AS position, t.* FROM history_entries e " +
+            "INNER JOIN history_tracks t ON t.trackId = e.trackId " +
+            "WHERE e.historyId IN (:historyIds) ORDER BY e.historyId, e.position")
+    List<HistoryTrackRow> getTracks(List<Long> historyIds);
+
+    /**
+     * 更新推薦時間（重複的推薦合併到已有的一筆）
+     */
+    @Query("UPDATE recommendation_history SET createdTimestamp = :timestamp WHERE id = :id")
+    int touch(long id, long timestamp);
+
+    @Query("DELETE FROM recommendation_history WHERE createdTimestamp < :cutoff")
+    int deleteOlderThan(long cutoff);
+
+    /**
+     * 只保留最新的若干次推薦
+     */
+    @Query("DELETE FROM recommendation_history WHERE id NOT IN " +
+            "(SELECT id FROM recommendation_history ORDER BY createdTimestamp DESC, id DESC LIMIT :keep)")
+    int trimToSize(int keep);
+
+    @Query("DELETE FROM history_entries WHERE historyId NOT IN (SELECT id FROM recommendation_history)")
+    int deleteOrphanEntries();
+
+    @Query("DELETE FROM history_tracks WHERE trackId NOT IN (SELECT trackId FROM history_entries)")
+    int deleteOrphanTracks();
+
+    /**
+     * 保留策略：刪除過期和超出數量的推薦，再清理不再被引用的條目和歌曲
+     */
+    @Transaction
+    default void applyRetention(long cutoff, int keep) {
+        deleteOlderThan(cutoff);
+        trimToSize(keep);
+        deleteOrphanEntries();
+        deleteOrphanTracks();
+    }
+
+    /**
+     * 歌單查詢的結果行
+     */
+    class HistoryTrackRow {
+        public long historyId;
+        public int position;
+        @Embedded
+        public HistoryTrackEntity track;
+    }
+}
@@ -0,0 +1,57 @@
+package Model.Dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import Model.Entity.TrackCacheEntity;
+
+/**
+ * Spotify 歌曲解析緩存 DAO 接口
+ * 所有方法均為同步調用，需在後台線程執行
+ */
+@Dao
+public interface TrackCacheDao {
+
+    /**
+     * 寫入緩存
+     * 衝突策略：替換（同一 cacheKey 以最新結果為準）
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insert(TrackCacheEntity entity);
+
+    /**
+     * 根據標準化的 key 查詢
+     */
+    @Query("SELECT * FROM track_cache WHERE cacheKey = :cacheKey")
+    TrackCacheEntity get(String cacheKey);
+
+    /**
+     * 更新最近訪問時間（LRU）
+     */
+    @Query("UPDATE track_cache SET lastAccessTimestamp = :time WHERE cacheKey = :cacheKey")
+    void touch(String cacheKey, long time);
+
+    /**
+     * 刪除過期條目，正向和負向緩存使用不同的 TTL
+     * @param positiveCutoff 早於此時間的正向緩存過期
+     * @param negativeCutoff 早於此時間的負向緩存過期
+     */
+    @Query("DELETE FROM track_cache WHERE (notFound = 0 AND cachedTimestamp < :positiveCutoff) " +
+            "OR (notFound = 1 AND cachedTimestamp < :negativeCutoff)")
+    int deleteExpired(long positiveCutoff, long negativeCutoff);
+
+    /**
+     * 刪除最久未訪問的若干條目
+     */
+    @Query("DELETE FROM track_cache WHERE cacheKey IN " +
+            "(SELECT cacheKey FROM track_cache ORDER BY lastAccessTimestamp ASC LIMIT :count)")
+    int deleteLeastRecentlyUsed(int count);
+
+    /**
+     * 獲取緩存條目總數
+     */
+    @Query("SELECT COUNT(*) FROM track_cache")
+    int getCount();
+}
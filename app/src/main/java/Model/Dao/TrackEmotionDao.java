@@ -0,0 +1,44 @@
+package Model.Dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+import Model.Entity.TrackEmotionEntity;
+
+/**
+ * 歌曲情緒向量 DAO 接口
+ * 所有方法均為同步調用，需在後台線程執行
+ */
+@Dao
+public interface TrackEmotionDao {
+
+    /**
+     * 寫入記錄
+     * 衝突策略：替換（同一首歌、同一來源只保留最新的情緒向量）
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insert(TrackEmotionEntity entity);
+
+    /**
+     * 刪除指定來源的記錄（例如取消收藏）
+     */
+    @Query("DELETE FROM track_emotions WHERE trackId = :trackId AND source = :source")
+    void delete(String trackId, int source);
+
+    /**
+     * 獲取最新的若干條記錄（用於載入近鄰索引）
+     */
+    @Query("SELECT * FROM track_emotions ORDER BY timestamp DESC LIMIT :limit")
+    List<TrackEmotionEntity> getRecentSync(int limit);
+
+    /**
+     * 只保留最新的若干條
+     */
+    @Query("DELETE FROM track_emotions WHERE id NOT IN " +
+            "(SELECT id FROM track_emotions ORDER BY timestamp DESC LIMIT :keep)")
+    int trimToSize(int keep);
+}
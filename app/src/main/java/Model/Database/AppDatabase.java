@@ -1,27 +1,136 @@
 package Model.Database;
 
 import android.content.Context;
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 import Model.Dao.FavoriteDao;
+import Model.Dao.RecommendationCacheDao;
+import Model.Dao.RecommendationHistoryDao;
+import Model.Dao.TrackCacheDao;
+import Model.Dao.TrackEmotionDao;
 import Model.Entity.FavoriteEntity;
+import Model.Entity.HistoryEntryEntity;
+import Model.Entity.HistoryTrackEntity;
+import Model.Entity.RecommendationCacheEntity;
+import Model.Entity.RecommendationHistoryEntity;
+import Model.Entity.TrackCacheEntity;
+import Model.Entity.TrackEmotionEntity;
 
 /**
  * Room 數據庫單例
  * 管理應用程序的本地數據庫
  */
-@Database(entities = {FavoriteEntity.class}, version = 1, exportSchema = false)
+@Database(entities = {FavoriteEntity.class, TrackCacheEntity.class, RecommendationCacheEntity.class,
+        TrackEmotionEntity.class, RecommendationHistoryEntity.class, HistoryTrackEntity.class,
+        HistoryEntryEntity.class},
+        version = 5, exportSchema = false)
 public abstract class AppDatabase extends RoomDatabase {
 
     private static final String DATABASE_NAME = "graduation_project_db";
     private static volatile AppDatabase INSTANCE;
 
+    /**
+     * v1 -> v2：新增 Spotify 歌曲解析緩存表
+     */
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `track_cache` (" +
+                    "`cacheKey` TEXT NOT NULL, `trackId` TEXT, `trackName` TEXT, `artistName` TEXT, " +
+                    "`thumbnailUrl` TEXT, `largeImageUrl` TEXT, `durationMs` INTEGER NOT NULL, " +
+                    "`notFound` INTEGER NOT NULL, `cachedTimestamp` INTEGER NOT NULL, " +
+                    "`lastAccessTimestamp` INTEGER NOT NULL, PRIMARY KEY(`cacheKey`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_track_cache_lastAccessTimestamp` " +
+                    "ON `track_cache` (`lastAccessTimestamp`)");
+        }
+    };
+
+    /**
+     * v2 -> v3：新增推薦結果緩存表
+     */
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `recommendation_cache` (" +
+                    "`cacheKey` TEXT NOT NULL, `itemsJson` TEXT, `createdTimestamp` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`cacheKey`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_recommendation_cache_createdTimestamp` " +
+                    "ON `recommendation_cache` (`createdTimestamp`)");
+        }
+    };
+
+    /**
+     * v3 -> v4：新增歌曲情緒向量表（離線推薦）
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `track_emotions` (" +
+                    "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `trackId` TEXT NOT NULL, " +
+                    "`songName` TEXT, `artistName` TEXT, `albumImageUrl` TEXT, `largeImageUrl` TEXT, " +
+                    "`durationMs` INTEGER NOT NULL, `happy` INTEGER NOT NULL, `sad` INTEGER NOT NULL, " +
+                    "`angry` INTEGER NOT NULL, `disgust` INTEGER NOT NULL, `fear` INTEGER NOT NULL, " +
+                    "`source` INTEGER NOT NULL, `timestamp` INTEGER NOT NULL)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_track_emotions_trackId_source` " +
+                    "ON `track_emotions` (`trackId`, `source`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_track_emotions_timestamp` " +
+                    "ON `track_emotions` (`timestamp`)");
+        }
+    };
+
+    /**
+     * v4 -> v5：新增推薦歷史（歷史、歌曲、歌單條目三張表）
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `recommendation_history` (" +
+                    "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `inputType` INTEGER NOT NULL, " +
+                    "`happy` INTEGER NOT NULL, `sad` INTEGER NOT NULL, `angry` INTEGER NOT NULL, " +
+                    "`disgust` INTEGER NOT NULL, `fear` INTEGER NOT NULL, `emotionText` TEXT, " +
+                    "`trackCount` INTEGER NOT NULL, `createdTimestamp` INTEGER NOT NULL)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_recommendation_history_createdTimestamp_id` " +
+                    "ON `recommendation_history` (`createdTimestamp`, `id`)");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `history_tracks` (" +
+                    "`trackId` TEXT NOT NULL, `songName` TEXT, `artistName` TEXT, `albumImageUrl` TEXT, " +
+                    "`largeImageUrl` TEXT, `durationMs` INTEGER NOT NULL, PRIMARY KEY(`trackId`))");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `history_entries` (" +
+                    "`historyId` INTEGER NOT NULL, `position` INTEGER NOT NULL, `trackId` TEXT NOT NULL, " +
+                    "PRIMARY KEY(`historyId`, `position`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_history_entries_trackId` " +
+                    "ON `history_entries` (`trackId`)");
+        }
+    };
+
     /**
      * 獲取 FavoriteDao
      */
     public abstract FavoriteDao favoriteDao();
 
+    /**
+     * 獲取 TrackCacheDao
+     */
+    public abstract TrackCacheDao trackCacheDao();
+
+    /**
+     * 獲取 RecommendationCacheDao
+     */
+    public abstract RecommendationCacheDao recommendationCacheDao();
+
+    /**
+     * 獲取 TrackEmotionDao
+     */
+    public abstract TrackEmotionDao trackEmotionDao();
+
+    /**
+     * 獲取 RecommendationHistoryDao
+     */
+    public abstract RecommendationHistoryDao recommendationHistoryDao();
+
     /**
      * 獲取數據庫實例（單例模式，雙重檢查鎖定）
      */
@@ -33,7 +142,9 @@ public abstract class AppDatabase extends RoomDatabase {
                             context.getApplicationContext(),
                             AppDatabase.class,
                             DATABASE_NAME
-                    ).build();
+                    )
+                    .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5)
+                    .build();
                 }
             }
         }
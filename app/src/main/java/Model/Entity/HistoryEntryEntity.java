@@ -0,0 +1,55 @@
+package Model.Entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+
+/**
+ * 推薦歷史的歌單條目
+ * 一次推薦（historyId）中第 position 首歌是哪個 track
+ */
+@Entity(tableName = "history_entries", primaryKeys = {"historyId", "position"},
+        indices = {@Index(value = "trackId")})
+public class HistoryEntryEntity {
+
+    private long historyId;     // recommendation_history.id
+    private int position;       // 在歌單中的位置（從 0 開始）
+    @NonNull
+    private String trackId;     // history_tracks.trackId
+
+    public HistoryEntryEntity() {
+        this.trackId = "";
+    }
+
+    public HistoryEntryEntity(long historyId, int position, @NonNull String trackId) {
+        this.historyId = historyId;
+        this.position = position;
+        this.trackId = trackId;
+    }
+
+    // Getters and Setters
+    public long getHistoryId() {
+        return historyId;
+    }
+
+    public void setHistoryId(long historyId) {
+        this.historyId = historyId;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    @NonNull
+    public String getTrackId() {
+        return trackId;
+    }
+
+    public void setTrackId(@NonNull String trackId) {
+        this.trackId = trackId;
+    }
+}
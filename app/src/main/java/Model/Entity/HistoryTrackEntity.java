@@ -0,0 +1,96 @@
+package Model.Entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+import Model.POJO.MusicItem;
+
+/**
+ * 推薦歷史中的歌曲
+ * 每首歌只保存一次，多次出現在不同歌單中時由 history_entries 引用
+ */
+@Entity(tableName = "history_tracks")
+public class HistoryTrackEntity {
+
+    @PrimaryKey
+    @NonNull
+    private String trackId;         // Spotify Track ID
+    private String songName;
+    private String artistName;
+    private String albumImageUrl;
+    private String largeImageUrl;
+    private long durationMs;
+
+    public HistoryTrackEntity() {
+        this.trackId = "";
+    }
+
+    public static HistoryTrackEntity fromMusicItem(MusicItem item) {
+        HistoryTrackEntity entity = new HistoryTrackEntity();
+        entity.trackId = item.getSpotifyTrackId();
+        entity.songName = item.getSongName();
+        entity.artistName = item.getArtistName();
+        entity.albumImageUrl = item.getAlbumImageUrl();
+        entity.largeImageUrl = item.getLargeImageUrl();
+        entity.durationMs = item.getDurationMs();
+        return entity;
+    }
+
+    /**
+     * 轉換為 MusicItem
+     */
+    public MusicItem toMusicItem() {
+        return new MusicItem(songName, artistName, albumImageUrl, largeImageUrl, trackId, durationMs);
+    }
+
+    // Getters and Setters
+    @NonNull
+    public String getTrackId() {
+        return trackId;
+    }
+
+    public void setTrackId(@NonNull String trackId) {
+        this.trackId = trackId;
+    }
+
+    public String getSongName() {
+        return songName;
+    }
+
+    public void setSongName(String songName) {
+        this.songName = songName;
+    }
+
+    public String getArtistName() {
+        return artistName;
+    }
+
+    public void setArtistName(String artistName) {
+        this.artistName = artistName;
+    }
+
+    public String getAlbumImageUrl() {
+        return albumImageUrl;
+    }
+
+    public void setAlbumImageUrl(String albumImageUrl) {
+        this.albumImageUrl = albumImageUrl;
+    }
+
+    public String getLargeImageUrl() {
+        return largeImageUrl;
+    }
+
+    public void setLargeImageUrl(String largeImageUrl) {
+        this.largeImageUrl = largeImageUrl;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+}
@@ -0,0 +1,58 @@
+package Model.Entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * 推薦結果緩存實體
+ * 以量化後的情緒向量為 key，保存一次推薦的完整歌單（JSON）
+ */
+@Entity(tableName = "recommendation_cache", indices = {@Index(value = "createdTimestamp")})
+public class RecommendationCacheEntity {
+
+    @PrimaryKey
+    @NonNull
+    private String cacheKey;        // 量化後的情緒向量 key
+    private String itemsJson;       // List<MusicItem> 的 JSON
+    private long createdTimestamp;  // 寫入時間（毫秒），用於 TTL
+
+    public RecommendationCacheEntity() {
+        this.cacheKey = "";
+    }
+
+    public static RecommendationCacheEntity create(@NonNull String cacheKey, String itemsJson, long now) {
+        RecommendationCacheEntity entity = new RecommendationCacheEntity();
+        entity.cacheKey = cacheKey;
+        entity.itemsJson = itemsJson;
+        entity.createdTimestamp = now;
+        return entity;
+    }
+
+    // Getters and Setters
+    @NonNull
+    public String getCacheKey() {
+        return cacheKey;
+    }
+
+    public void setCacheKey(@NonNull String cacheKey) {
+        this.cacheKey = cacheKey;
+    }
+
+    public String getItemsJson() {
+        return itemsJson;
+    }
+
+    public void setItemsJson(String itemsJson) {
+        this.itemsJson = itemsJson;
+    }
+
+    public long getCreatedTimestamp() {
+        return createdTimestamp;
+    }
+
+    public void setCreatedTimestamp(long createdTimestamp) {
+        this.createdTimestamp = createdTimestamp;
+    }
+}
@@ -0,0 +1,157 @@
+package Model.Entity;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import java.util.Objects;
+
+import Model.POJO.EmotionInput;
+
+/**
+ * 推薦歷史實體
+ * 一次推薦的輸入（情緒數值或直接輸入的文字）和時間，歌單保存在 history_entries 中
+ */
+@Entity(tableName = "recommendation_history", indices = {@Index(value = {"createdTimestamp", "id"})})
+public class RecommendationHistoryEntity {
+
+    // 輸入類型：情緒數值
+    public static final int INPUT_EMOTION = 0;
+    // 輸入類型：直接輸入文字
+    public static final int INPUT_TEXT = 1;
+
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+    private int inputType;          // INPUT_EMOTION 或 INPUT_TEXT
+    private int happy;              // 情緒指數（僅 INPUT_EMOTION）
+    private int sad;
+    private int angry;
+    private int disgust;
+    private int fear;
+    private String emotionText;     // 直接輸入的文字（僅 INPUT_TEXT）
+    private int trackCount;         // 歌單長度
+    private long createdTimestamp;  // 推薦時間（毫秒）
+
+    public RecommendationHistoryEntity() {
+    }
+
+    public static RecommendationHistoryEntity forEmotion(EmotionInput emotionInput, int trackCount, long now) {
+        RecommendationHistoryEntity entity = new RecommendationHistoryEntity();
+        entity.inputType = INPUT_EMOTION;
+        entity.happy = emotionInput.getHappy();
+        entity.sad = emotionInput.getSad();
+        entity.angry = emotionInput.getAngry();
+        entity.disgust = emotionInput.getDisgust();
+        entity.fear = emotionInput.getFear();
+        entity.trackCount = trackCount;
+        entity.createdTimestamp = now;
+        return entity;
+    }
+
+    public static RecommendationHistoryEntity forText(String emotionText, int trackCount, long now) {
+        RecommendationHistoryEntity entity = new RecommendationHistoryEntity();
+        entity.inputType = INPUT_TEXT;
+        entity.emotionText = emotionText;
+        entity.trackCount = trackCount;
+        entity.createdTimestamp = now;
+        return entity;
+    }
+
+    /**
+     * 情緒輸入，直接輸入模式時為 null
+     */
+    public EmotionInput toEmotionInput() {
+        return inputType == INPUT_EMOTION ? new EmotionInput(happy, sad, angry, disgust, fear) : null;
+    }
+
+    /**
+     * 兩次推薦的輸入是否相同（類型、情緒數值或文字）
+     */
+    public boolean hasSameInput(RecommendationHistoryEntity other) {
+        return inputType == other.inputType
+                && happy == other.happy && sad == other.sad && angry == other.angry
+                && disgust == other.disgust && fear == other.fear
+                && Objects.equals(emotionText, other.emotionText);
+    }
+
+    // Getters and Setters
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public int getInputType() {
+        return inputType;
+    }
+
+    public void setInputType(int inputType) {
+        this.inputType = inputType;
+    }
+
+    public int getHappy() {
+        return happy;
+    }
+
+    public void setHappy(int happy) {
+        this.happy = happy;
+    }
+
+    public int getSad() {
+        return sad;
+    }
+
+    public void setSad(int sad) {
+        this.sad = sad;
+    }
+
+    public int getAngry() {
+        return angry;
+    }
+
+    public void setAngry(int angry) {
+        this.angry = angry;
+    }
+
+    public int getDisgust() {
+        return disgust;
+    }
+
+    public void setDisgust(int disgust) {
+        this.disgust = disgust;
+    }
+
+    public int getFear() {
+        return fear;
+    }
+
+    public void setFear(int fear) {
+        this.fear = fear;
+    }
+
+    public String getEmotionText() {
+        return emotionText;
+    }
+
+    public void setEmotionText(String emotionText) {
+        this.emotionText = emotionText;
+    }
+
+    public int getTrackCount() {
+        return trackCount;
+    }
+
+    public void setTrackCount(int trackCount) {
+        this.trackCount = trackCount;
+    }
+
+    public long getCreatedTimestamp() {
+        return createdTimestamp;
+    }
+
+    public void setCreatedTimestamp(long createdTimestamp) {
+        this.createdTimestamp = createdTimestamp;
+    }
+}
@@ -0,0 +1,156 @@
+package Model.Entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import Model.POJO.MusicItem;
+
+/**
+ * Spotify 歌曲解析緩存實體
+ * 將標準化後的 (歌名, 藝術家) 映射到 Spotify 搜索結果；
+ * notFound 為 true 時表示「搜索無結果」的負向緩存
+ */
+@Entity(tableName = "track_cache", indices = {@Index(value = "lastAccessTimestamp")})
+public class TrackCacheEntity {
+
+    @PrimaryKey
+    @NonNull
+    private String cacheKey;            // 標準化的 "歌名|藝術家"
+    private String trackId;             // Spotify Track ID，負向緩存時為 null
+    private String trackName;           // Spotify 返回的歌曲名稱
+    private String artistName;          // Spotify 返回的藝術家名稱
+    private String thumbnailUrl;        // 專輯封面縮略圖
+    private String largeImageUrl;       // 專輯封面高清圖
+    private long durationMs;            // 歌曲時長（毫秒）
+    private boolean notFound;           // 是否為負向緩存
+    private long cachedTimestamp;       // 寫入時間（毫秒），用於 TTL
+    private long lastAccessTimestamp;   // 最近訪問時間（毫秒），用於 LRU 淘汰
+
+    public TrackCacheEntity() {
+        this.cacheKey = "";
+    }
+
+    /**
+     * 從搜索結果創建正向緩存
+     */
+    public static TrackCacheEntity fromMusicItem(@NonNull String cacheKey, MusicItem item, long now) {
+        TrackCacheEntity entity = new TrackCacheEntity();
+        entity.cacheKey = cacheKey;
+        entity.trackId = item.getSpotifyTrackId();
+        entity.trackName = item.getSongName();
+        entity.artistName = item.getArtistName();
+        entity.thumbnailUrl = item.getAlbumImageUrl();
+        entity.largeImageUrl = item.getLargeImageUrl();
+        entity.durationMs = item.getDurationMs();
+        entity.notFound = false;
+        entity.cachedTimestamp = now;
+        entity.lastAccessTimestamp = now;
+        return entity;
+    }
+
+    /**
+     * 創建「搜索無結果」的負向緩存
+     */
+    public static TrackCacheEntity notFound(@NonNull String cacheKey, long now) {
+        TrackCacheEntity entity = new TrackCacheEntity();
+        entity.cacheKey = cacheKey;
+        entity.notFound = true;
+        entity.cachedTimestamp = now;
+        entity.lastAccessTimestamp = now;
+        return entity;
+    }
+
+    /**
+     * 轉換為 MusicItem（負向緩存返回 null）
+     */
+    public MusicItem toMusicItem() {
+        if (notFound) {
+            return null;
+        }
+        return new MusicItem(trackName, artistName, thumbnailUrl, largeImageUrl, trackId, durationMs);
+    }
+
+    // Getters and Setters
+    @NonNull
+    public String getCacheKey() {
+        return cacheKey;
+    }
+
+    public void setCacheKey(@NonNull String cacheKey) {
+        this.cacheKey = cacheKey;
+    }
+
+    public String getTrackId() {
+        return trackId;
+    }
+
+    public void setTrackId(String trackId) {
+        this.trackId = trackId;
+    }
+
+    public String getTrackName() {
+        return trackName;
+    }
+
+    public void setTrackName(String trackName) {
+        this.trackName = trackName;
+    }
+
+    public String getArtistName() {
+        return artistName;
+    }
+
+    public void setArtistName(String artistName) {
+        this.artistName = artistName;
+    }
+
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    public void setThumbnailUrl(String thumbnailUrl) {
+        this.thumbnailUrl = thumbnailUrl;
+    }
+
+    public String getLargeImageUrl() {
+        return largeImageUrl;
+    }
+
+    public void setLargeImageUrl(String largeImageUrl) {
+        this.largeImageUrl = largeImageUrl;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public boolean isNotFound() {
+        return notFound;
+    }
+
+    public void setNotFound(boolean notFound) {
+        this.notFound = notFound;
+    }
+
+    public long getCachedTimestamp() {
+        return cachedTimestamp;
+    }
+
+    public void setCachedTimestamp(long cachedTimestamp) {
+        this.cachedTimestamp = cachedTimestamp;
+    }
+
+    public long getLastAccessTimestamp() {
+        return lastAccessTimestamp;
+    }
+
+    public void setLastAccessTimestamp(long lastAccessTimestamp) {
+        this.lastAccessTimestamp = lastAccessTimestamp;
+    }
+}
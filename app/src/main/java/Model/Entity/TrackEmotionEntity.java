@@ -0,0 +1,186 @@
+package Model.Entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import Model.POJO.EmotionInput;
+import Model.POJO.MusicItem;
+
+/**
+ * 歌曲與情緒向量的關聯
+ * 記錄用戶在哪個情緒下收藏或播放了某首歌，供離線推薦做近鄰查詢。
+ * 同一首歌、同一來源只保留最新的一筆
+ */
+@Entity(tableName = "track_emotions",
+        indices = {@Index(value = {"trackId", "source"}, unique = true), @Index(value = "timestamp")})
+public class TrackEmotionEntity {
+
+    // 來源：收藏
+    public static final int SOURCE_FAVORITE = 0;
+    // 來源：播放
+    public static final int SOURCE_PLAYED = 1;
+    // 來源：推薦歷史（只存在於離線推薦的內存索引，推薦歷史本身已保存在 recommendation_history）
+    public static final int SOURCE_RECOMMENDED = 2;
+
+    @PrimaryKey(autoGenerate = true)
+    private int id;
+    @NonNull
+    private String trackId;         // Spotify Track ID
+    private String songName;
+    private String artistName;
+    private String albumImageUrl;
+    private String largeImageUrl;
+    private long durationMs;
+    private int happy;              // 產生這首推薦時的情緒指數（0-100）
+    private int sad;
+    private int angry;
+    private int disgust;
+    private int fear;
+    private int source;             // SOURCE_FAVORITE 或 SOURCE_PLAYED
+    private long timestamp;         // 記錄時間（毫秒）
+
+    public TrackEmotionEntity() {
+        this.trackId = "";
+    }
+
+    public static TrackEmotionEntity create(EmotionInput emotionInput, MusicItem item, int source, long now) {
+        TrackEmotionEntity entity = new TrackEmotionEntity();
+        entity.trackId = item.getSpotifyTrackId();
+        entity.songName = item.getSongName();
+        entity.artistName = item.getArtistName();
+        entity.albumImageUrl = item.getAlbumImageUrl();
+        entity.largeImageUrl = item.getLargeImageUrl();
+        entity.durationMs = item.getDurationMs();
+        entity.happy = emotionInput.getHappy();
+        entity.sad = emotionInput.getSad();
+        entity.angry = emotionInput.getAngry();
+        entity.disgust = emotionInput.getDisgust();
+        entity.fear = emotionInput.getFear();
+        entity.source = source;
+        entity.timestamp = now;
+        return entity;
+    }
+
+    /**
+     * 轉換為 MusicItem
+     */
+    public MusicItem toMusicItem() {
+        return new MusicItem(songName, artistName, albumImageUrl, largeImageUrl, trackId, durationMs);
+    }
+
+    // Getters and Setters
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    @NonNull
+    public String getTrackId() {
+        return trackId;
+    }
+
+    public void setTrackId(@NonNull String trackId) {
+        this.trackId = trackId;
+    }
+
+    public String getSongName() {
+        return songName;
+    }
+
+    public void setSongName(String songName) {
+        this.songName = songName;
+    }
+
+    public String getArtistName() {
+        return artistName;
+    }
+
+    public void setArtistName(String artistName) {
+        this.artistName = artistName;
+    }
+
+    public String getAlbumImageUrl() {
+        return albumImageUrl;
+    }
+
+    public void setAlbumImageUrl(String albumImageUrl) {
+        this.albumImageUrl = albumImageUrl;
+    }
+
+    public String getLargeImageUrl() {
+        return largeImageUrl;
+    }
+
+    public void setLargeImageUrl(String largeImageUrl) {
+        this.largeImageUrl = largeImageUrl;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public int getHappy() {
+        return happy;
+    }
+
+    public void setHappy(int happy) {
+        this.happy = happy;
+    }
+
+    public int getSad() {
+        return sad;
+    }
+
+    public void setSad(int sad) {
+        this.sad = sad;
+    }
+
+    public int getAngry() {
+        return angry;
+    }
+
+    public void setAngry(int angry) {
+        this.angry = angry;
+    }
+
+    public int getDisgust() {
+        return disgust;
+    }
+
+    public void setDisgust(int disgust) {
+        this.disgust = disgust;
+    }
+
+    public int getFear() {
+        return fear;
+    }
+
+    public void setFear(int fear) {
+        this.fear = fear;
+    }
+
+    public int getSource() {
+        return source;
+    }
+
+    public void setSource(int source) {
+        this.source = source;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+}
@@ -61,8 +61,21 @@ public class EmotionInput {
         this.fear = fear;
     }
 
+    /**
+     * 將情緒向量按區間寬度量化為字串 key
+     * 例如寬度為 10 時，happy=73 與 happy=78 落在同一區間
+     * @param bucketWidth 區間寬度（1 表示不量化）
+     * @return 形如 "7/0/0/1/0" 的 key
+     */
+    public String toQuantizedKey(int bucketWidth) {
+        int width = Math.max(1, bucketWidth);
+        return (happy / width) + "/" + (sad / width) + "/" + (angry / width) + "/" +
+                (disgust / width) + "/" + (fear / width);
+    }
+
     /**
      * 構建發送給 Gemini 的 Prompt
+     * 輸出格式由請求的 responseSchema 約束，Prompt 只描述推薦內容
      */
     public String buildPrompt() {
         return "Based on the following emotion indices (scale 0-100, higher means stronger emotion), " +
@@ -72,10 +85,6 @@ public class EmotionInput {
                 "- Sad: " + sad + "\n" +
                 "- Angry: " + angry + "\n" +
                 "- Disgust: " + disgust + "\n" +
-                "- Fear: " + fear + "\n\n" +
-                "IMPORTANT: You MUST respond with ONLY a pure JSON array, no markdown, no explanation, no code blocks. " +
-                "The response must start with '[' and end with ']'. " +
-                "Each object must have exactly two fields: \"song_name\" and \"artist\". " +
-                "Example format: [{\"song_name\":\"Song Title\",\"artist\":\"Artist Name\"}]";
+                "- Fear: " + fear;
     }
 }
@@ -2,7 +2,10 @@ package Model.POJO;
 
 import com.google.gson.annotations.SerializedName;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Gemini API 請求數據模型
@@ -12,13 +15,30 @@ public class GeminiRequest {
     @SerializedName("contents")
     private List<Content> contents;
 
+    @SerializedName("generationConfig")
+    private GenerationConfig generationConfig;
+
     public GeminiRequest(String text) {
+        this(text, null);
+    }
+
+    public GeminiRequest(String text, GenerationConfig generationConfig) {
         this.contents = new ArrayList<>();
         Content content = new Content();
         Part part = new Part();
         part.setText(text);
         content.getParts().add(part);
         this.contents.add(content);
+        this.generationConfig = generationConfig;
+    }
+
+    /**
+     * 歌曲推薦請求：以結構化輸出模式要求 Gemini 直接返回符合 GeminiSong 結構的 JSON 陣列
+     * @param maxSongs 陣列最多的歌曲數
+     * @param maxOutputTokens 輸出 token 上限（見 GeminiOutputBudget）
+     */
+    public static GeminiRequest forSongList(String prompt, int maxSongs, int maxOutputTokens) {
+        return new GeminiRequest(prompt, GenerationConfig.songList(maxSongs, maxOutputTokens));
     }
 
     public List<Content> getContents() {
@@ -29,6 +49,14 @@ public class GeminiRequest {
         this.contents = contents;
     }
 
+    public GenerationConfig getGenerationConfig() {
+        return generationConfig;
+    }
+
+    public void setGenerationConfig(GenerationConfig generationConfig) {
+        this.generationConfig = generationConfig;
+    }
+
     public static class Content {
         @SerializedName("parts")
         private List<Part> parts = new ArrayList<>();
@@ -54,4 +82,137 @@ public class GeminiRequest {
             this.text = text;
         }
     }
+
+    /**
+     * 生成參數
+     */
+    public static class GenerationConfig {
+        @SerializedName("responseMimeType")
+        private String responseMimeType;
+
+        @SerializedName("responseSchema")
+        private Schema responseSchema;
+
+        @SerializedName("maxOutputTokens")
+        private Integer maxOutputTokens;
+
+        @SerializedName("thinkingConfig")
+        private ThinkingConfig thinkingConfig;
+
+        /**
+         * 歌曲列表的結構化輸出配置
+         * gemini-2.5-flash 的思考 token 也計入 maxOutputTokens，這裡關閉思考，
+         * 否則較小的上限會在輸出 JSON 之前就被思考用完
+         */
+        public static GenerationConfig songList(int maxSongs, int maxOutputTokens) {
+            GenerationConfig config = new GenerationConfig();
+            config.responseMimeType = "application/json";
+            config.responseSchema = Schema.songList(maxSongs);
+            config.maxOutputTokens = maxOutputTokens;
+            config.thinkingConfig = new ThinkingConfig(0);
+            return config;
+        }
+
+        public String getResponseMimeType() {
+            return responseMimeType;
+        }
+
+        public Schema getResponseSchema() {
+            return responseSchema;
+        }
+
+        public Integer getMaxOutputTokens() {
+            return maxOutputTokens;
+        }
+
+        public ThinkingConfig getThinkingConfig() {
+            return thinkingConfig;
+        }
+    }
+
+    /**
+     * 思考配置，thinkingBudget 為 0 表示不思考
+     */
+    public static class ThinkingConfig {
+        @SerializedName("thinkingBudget")
+        private int thinkingBudget;
+
+        public ThinkingConfig(int thinkingBudget) {
+            this.thinkingBudget = thinkingBudget;
+        }
+
+        public int getThinkingBudget() {
+            return thinkingBudget;
+        }
+    }
+
+    /**
+     * 回應結構（OpenAPI Schema 子集）
+     */
+    public static class Schema {
+        @SerializedName("type")
+        private String type;
+
+        @SerializedName("items")
+        private Schema items;
+
+        @SerializedName("properties")
+        private Map<String, Schema> properties;
+
+        @SerializedName("required")
+        private List<String> required;
+
+        @SerializedName("propertyOrdering")
+        private List<String> propertyOrdering;
+
+        @SerializedName("maxItems")
+        private Integer maxItems;
+
+        public Schema(String type) {
+            this.type = type;
+        }
+
+        /**
+         * GeminiSong 陣列：[{"song_name": string, "artist": string}]
+         * 固定屬性順序，保證 song_name 先於 artist 生成，串流解析時每個物件都完整
+         * @param maxItems 陣列最多的元素數，避免模型生成超過 Prompt 要求的歌曲而用完 token 上限
+         */
+        public static Schema songList(int maxItems) {
+            Schema song = new Schema("OBJECT");
+            song.properties = new LinkedHashMap<>();
+            song.properties.put("song_name", new Schema("STRING"));
+            song.properties.put("artist", new Schema("STRING"));
+            song.required = Arrays.asList("song_name", "artist");
+            song.propertyOrdering = Arrays.asList("song_name", "artist");
+
+            Schema list = new Schema("ARRAY");
+            list.items = song;
+            list.maxItems = maxItems;
+            return list;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public Schema getItems() {
+            return items;
+        }
+
+        public Map<String, Schema> getProperties() {
+            return properties;
+        }
+
+        public List<String> getRequired() {
+            return required;
+        }
+
+        public List<String> getPropertyOrdering() {
+            return propertyOrdering;
+        }
+
+        public Integer getMaxItems() {
+            return maxItems;
+        }
+    }
 }
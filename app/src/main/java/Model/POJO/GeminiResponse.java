@@ -8,9 +8,17 @@ import java.util.List;
  */
 public class GeminiResponse {
 
+    /**
+     * 因達到 maxOutputTokens 而中止時的 finishReason
+     */
+    public static final String FINISH_REASON_MAX_TOKENS = "MAX_TOKENS";
+
     @SerializedName("candidates")
     private List<Candidate> candidates;
 
+    @SerializedName("usageMetadata")
+    private UsageMetadata usageMetadata;
+
     public List<Candidate> getCandidates() {
         return candidates;
     }
@@ -19,6 +27,31 @@ public class GeminiResponse {
         this.candidates = candidates;
     }
 
+    public UsageMetadata getUsageMetadata() {
+        return usageMetadata;
+    }
+
+    public void setUsageMetadata(UsageMetadata usageMetadata) {
+        this.usageMetadata = usageMetadata;
+    }
+
+    /**
+     * 生成結束的原因（STOP、MAX_TOKENS 等），串流中只有最後一個事件帶有
+     */
+    public String getFinishReason() {
+        if (candidates != null && !candidates.isEmpty()) {
+            return candidates.get(0).getFinishReason();
+        }
+        return null;
+    }
+
+    /**
+     * 是否因輸出 token 上限被截斷
+     */
+    public boolean isTruncated() {
+        return FINISH_REASON_MAX_TOKENS.equals(getFinishReason());
+    }
+
     /**
      * 獲取回應文本
      */
@@ -38,6 +71,9 @@ public class GeminiResponse {
         @SerializedName("content")
         private Content content;
 
+        @SerializedName("finishReason")
+        private String finishReason;
+
         public Content getContent() {
             return content;
         }
@@ -45,6 +81,33 @@ public class GeminiResponse {
         public void setContent(Content content) {
             this.content = content;
         }
+
+        public String getFinishReason() {
+            return finishReason;
+        }
+
+        public void setFinishReason(String finishReason) {
+            this.finishReason = finishReason;
+        }
+    }
+
+    /**
+     * token 用量
+     */
+    public static class UsageMetadata {
+        @SerializedName("candidatesTokenCount")
+        private int candidatesTokenCount;
+
+        /**
+         * 輸出的 token 數（不包括思考 token）
+         */
+        public int getCandidatesTokenCount() {
+            return candidatesTokenCount;
+        }
+
+        public void setCandidatesTokenCount(int candidatesTokenCount) {
+            this.candidatesTokenCount = candidatesTokenCount;
+        }
     }
 
     public static class Content {
@@ -0,0 +1,35 @@
+package Model.POJO;
+
+import java.util.List;
+
+/**
+ * 推薦歷史的一頁（按時間倒序）
+ * 下一頁以本頁最後一筆為游標查詢
+ */
+public class HistoryPage {
+    private final List<HistorySession> sessions;
+    private final boolean hasMore;
+
+    public HistoryPage(List<HistorySession> sessions, boolean hasMore) {
+        this.sessions = sessions;
+        this.hasMore = hasMore;
+    }
+
+    public List<HistorySession> getSessions() {
+        return sessions;
+    }
+
+    /**
+     * 是否還有更早的記錄
+     */
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    /**
+     * 下一頁的游標（本頁最後一筆），本頁為空時為 null
+     */
+    public HistorySession getLastSession() {
+        return sessions.isEmpty() ? null : sessions.get(sessions.size() - 1);
+    }
+}
@@ -0,0 +1,50 @@
+package Model.POJO;
+
+import java.util.List;
+
+/**
+ * 一次歷史推薦
+ * 輸入為情緒數值或直接輸入的文字（二選一），歌單按推薦時的順序排列
+ */
+public class HistorySession {
+    private final long id;
+    private final long createdTimestamp;
+    private final EmotionInput emotionInput;
+    private final String emotionText;
+    private final List<MusicItem> items;
+
+    public HistorySession(long id, long createdTimestamp, EmotionInput emotionInput, String emotionText,
+                          List<MusicItem> items) {
+        this.id = id;
+        this.createdTimestamp = createdTimestamp;
+        this.emotionInput = emotionInput;
+        this.emotionText = emotionText;
+        this.items = items;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getCreatedTimestamp() {
+        return createdTimestamp;
+    }
+
+    /**
+     * 情緒輸入，直接輸入模式時為 null
+     */
+    public EmotionInput getEmotionInput() {
+        return emotionInput;
+    }
+
+    /**
+     * 直接輸入的文字，情緒數值模式時為 null
+     */
+    public String getEmotionText() {
+        return emotionText;
+    }
+
+    public List<MusicItem> getItems() {
+        return items;
+    }
+}
@@ -0,0 +1,163 @@
+package Model.Repository;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import Model.POJO.GeminiSong;
+
+/**
+ * 候選歌曲正規化與模糊去重（NORMALIZE 階段）
+ * Gemini 經常以不同寫法重複推薦同一首歌：大小寫、「feat. xxx」、「(Remastered)」、重音符號、全形字元等。
+ * 比較前先做 Unicode 折疊、去除括號和版本後綴，再以詞集合的 Jaccard 相似度判斷是否重複，
+ * 重複的候選在搜索前丟棄，不會浪費 Spotify 請求。
+ * 不同語言的譯名（例如日文原名與羅馬字）無法以字面比較，由 FirstNCollector 按 track ID 二次去重
+ */
+class CandidateDeduplicator implements MusicRecommendationProcessor.NormalizeStage {
+
+    // 歌名相似度達到此值且歌手相近時視為同一首歌
+    static final double TITLE_THRESHOLD = 0.8;
+    static final double ARTIST_THRESHOLD = 0.5;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+    // 各種括號內的內容：(Remastered 2011)、[Live]、（完整版）、【MV】
+    private static final Pattern BRACKETS = Pattern.compile("\\([^)]*\\)|\\[[^]]*]|\\{[^}]*}|（[^）]*）|【[^】]*】");
+    // 「 - Remastered 2011」、「 - Radio Edit」等版本後綴
+    private static final Pattern VERSION_SUFFIX = Pattern.compile(
+            "\\s+[-–—]\\s+.*\\b(remaster(ed)?|live|version|edit|mix|mono|stereo|acoustic|deluxe)\\b.*$",
+            Pattern.CASE_INSENSITIVE);
+    // 「feat. xxx」、「ft. xxx」、「featuring xxx」
+    private static final Pattern FEATURING = Pattern.compile(
+            "\\s+(feat\\.?|ft\\.?|featuring)\\s+.*$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    @Override
+    public Session newSession() {
+        List<Key> accepted = new ArrayList<>();
+        return song -> {
+            if (song == null || isBlank(song.getSongName())) {
+                return null;
+            }
+            Key key = Key.of(song);
+            // NORMALIZE 可以在多線程執行器上並發執行，檢查和加入必須是一個原子操作
+            synchronized (accepted) {
+                for (Key previous : accepted) {
+                    if (previous.matches(key)) {
+                        return null;
+                    }
+                }
+                accepted.add(key);
+            }
+            // 搜索時只保留主歌手，「feat.」會讓 artist: 篩選找不到結果
+            String artist = song.getArtist() != null
+                    ? FEATURING.matcher(song.getArtist().trim()).replaceFirst("") : null;
+            return new GeminiSong(song.getSongName().trim(), artist);
+        };
+    }
+
+    /**
+     * Unicode 折疊：全形轉半形、去除重音符號、轉小寫
+     */
+    static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 去除括號內容、版本後綴和合作歌手
+     */
+    static String stripDecorations(String text) {
+        String stripped = BRACKETS.matcher(text).replaceAll(" ");
+        stripped = VERSION_SUFFIX.matcher(stripped).replaceFirst("");
+        return FEATURING.matcher(stripped).replaceFirst("");
+    }
+
+    /**
+     * 分詞：以非字母數字分隔；中日韓文字沒有空格，逐字作為一個詞
+     */
+    static Set<String> tokens(String text) {
+        String stripped = stripDecorations(text);
+        // 整個名稱都在括號內（例如「(Intro)」）時保留原文
+        if (SEPARATORS.matcher(stripped).replaceAll("").isEmpty()) {
+            stripped = text;
+        }
+        Set<String> tokens = new HashSet<>();
+        for (String word : SEPARATORS.split(fold(stripped))) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (isIdeographic(word)) {
+                for (int i = 0; i < word.length(); ) {
+                    int codePoint = word.codePointAt(i);
+                    tokens.add(new String(Character.toChars(codePoint)));
+                    i += Character.charCount(codePoint);
+                }
+            } else {
+                tokens.add(word);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Jaccard 相似度：交集大小 / 聯集大小
+     */
+    static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() && b.isEmpty()) {
+            return 1.0;
+        }
+        int intersection = 0;
+        for (String token : a) {
+            if (b.contains(token)) {
+                intersection++;
+            }
+        }
+        return (double) intersection / (a.size() + b.size() - intersection);
+    }
+
+    private static boolean isIdeographic(String word) {
+        int codePoint = word.codePointAt(0);
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private static boolean isBlank(String text) {
+        return text == null || text.trim().isEmpty();
+    }
+
+    /**
+     * 候選的比較鍵
+     */
+    private static final class Key {
+        final Set<String> title;
+        final Set<String> artist;
+
+        private Key(Set<String> title, Set<String> artist) {
+            this.title = title;
+            this.artist = artist;
+        }
+
+        static Key of(GeminiSong song) {
+            return new Key(tokens(song.getSongName()),
+                    song.getArtist() != null ? tokens(song.getArtist()) : new HashSet<>());
+        }
+
+        /**
+         * 歌名相似且歌手相近；任一方沒有歌手時只比較歌名
+         */
+        boolean matches(Key other) {
+            if (jaccard(title, other.title) < TITLE_THRESHOLD) {
+                return false;
+            }
+            return artist.isEmpty() || other.artist.isEmpty()
+                    || jaccard(artist, other.artist) >= ARTIST_THRESHOLD;
+        }
+    }
+}
@@ -14,22 +14,27 @@ import Model.Cache.FavoriteCache;
 import Model.Dao.FavoriteDao;
 import Model.Database.AppDatabase;
 import Model.Entity.FavoriteEntity;
+import Model.Entity.TrackEmotionEntity;
+import Model.POJO.EmotionInput;
 import Model.POJO.MusicItem;
 
 /**
  * 收藏功能 Repository
- * 實現「寫入穿透」策略：同時維護 Cache 和 Room
+ * 實現「寫入穿透」策略：同時維護 Cache 和 Room，
+ * 並同步離線推薦的收藏記錄（無論在哪個頁面收藏或取消）
  */
 public class FavoriteRepository {
 
     private final FavoriteDao dao;
     private final FavoriteCache cache;
+    private final OfflineRecommender offlineRecommender;
     private final ExecutorService executor;
     private final Handler mainHandler;
 
     public FavoriteRepository(Context context) {
         this.dao = AppDatabase.getInstance(context).favoriteDao();
         this.cache = FavoriteCache.getInstance();
+        this.offlineRecommender = OfflineRecommender.getInstance(context);
         this.executor = Executors.newSingleThreadExecutor();
         this.mainHandler = new Handler(Looper.getMainLooper());
 
@@ -52,6 +57,14 @@ public class FavoriteRepository {
      * 寫入穿透：同時寫入 Cache 和 Room
      */
     public void addFavorite(MusicItem item, Runnable onComplete) {
+        addFavorite(item, null, onComplete);
+    }
+
+    /**
+     * 添加收藏，並記錄收藏時的情緒輸入（供離線推薦）
+     * @param emotionInput 產生這首推薦的情緒輸入，不知道時為 null（改用播放時的情緒向量）
+     */
+    public void addFavorite(MusicItem item, EmotionInput emotionInput, Runnable onComplete) {
         if (item == null || item.getSpotifyTrackId() == null) {
             if (onComplete != null) {
                 mainHandler.post(onComplete);
@@ -66,6 +79,7 @@ public class FavoriteRepository {
                 dao.insert(entity);
                 // 寫入緩存
                 cache.put(entity.getTrackId(), entity);
+                offlineRecommender.recordFavorite(item, emotionInput);
             }
             // 回調主線程
             if (onComplete != null) {
@@ -91,6 +105,7 @@ public class FavoriteRepository {
             dao.deleteByTrackId(trackId);
             // 從緩存移除
             cache.remove(trackId);
+            offlineRecommender.forget(trackId, TrackEmotionEntity.SOURCE_FAVORITE);
             // 回調主線程
             if (onComplete != null) {
                 mainHandler.post(onComplete);
@@ -0,0 +1,218 @@
+package Model.Repository;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+import Model.Api.Deadline;
+import Model.POJO.GeminiSong;
+import Model.POJO.MusicItem;
+import retrofit2.Call;
+
+/**
+ * 「M 選 N」結果收集器
+ * 所有候選歌曲並發搜索，一旦湊滿 N 首有效結果立即完成，
+ * 並取消其餘仍在進行中的請求；勝出者按 Gemini 排名（slot）排序。
+ * 如果候選全部結束仍不足 N 首，則以現有結果完成。
+ * 超出上限的候選暫存為後備（最多 target 首），不同候選解析到同一個 Spotify track 時
+ * 只保留先到的一首，並多接受一個候選補位（已暫存的後備立即派發）。
+ * 登記的請求同時交給所屬的 RecommendationFlight，調用方取消時一併取消
+ */
+class FirstNCollector {
+
+    /**
+     * 為一個候選發起 RESOLVE
+     */
+    interface CandidateDispatcher {
+        void dispatch(GeminiSong candidate, int slot, FirstNCollector collector);
+    }
+
+    private final int target;
+    private int maxCandidates;
+    private final RecommendationFlight listener;
+    private final CandidateDispatcher dispatcher;
+
+    private final TreeMap<Integer, MusicItem> winners = new TreeMap<>();
+    private final Set<String> winnerTrackIds = new HashSet<>();
+    private final List<Call<?>> trackedCalls = new ArrayList<>();
+    private final ArrayDeque<Spare> spares = new ArrayDeque<>();
+    private final CompletableFuture<List<MusicItem>> result = new CompletableFuture<>();
+
+    private int parsedCount = 0;
+    private int candidateCount = 0;
+    private int pendingCount = 0;
+    private boolean closed = false;
+
+    /**
+     * @param target 需要的有效結果數量 N
+     * @param maxCandidates 最多接受的候選數量 M
+     * @param listener 所屬的推薦請求，每個勝出者產生時回調 onItemResolved
+     * @param dispatcher 為接受的候選（包括補位的後備）發起搜索，在鎖外調用
+     */
+    FirstNCollector(int target, int maxCandidates, RecommendationFlight listener, CandidateDispatcher dispatcher) {
+        this.target = target;
+        this.maxCandidates = maxCandidates;
+        this.listener = listener;
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * PARSE 階段解析出一首歌（去重之前）
+     */
+    synchronized void onParsed() {
+        parsedCount++;
+    }
+
+    /**
+     * 加入一個候選：未達上限時立即派發搜索，否則暫存為後備
+     * @param slot 該歌曲在 Gemini 推薦中的排名
+     */
+    void offer(GeminiSong candidate, int slot) {
+        if (accept(candidate, slot)) {
+            dispatcher.dispatch(candidate, slot, this);
+        }
+    }
+
+    private synchronized boolean accept(GeminiSong candidate, int slot) {
+        if (result.isDone() || closed) {
+            return false;
+        }
+        if (candidateCount >= maxCandidates) {
+            if (spares.size() < target) {
+                spares.add(new Spare(candidate, slot));
+            }
+            return false;
+        }
+        candidateCount++;
+        pendingCount++;
+        return true;
+    }
+
+    /**
+     * 登記一個進行中的請求，完成時統一取消
+     * 如果已經完成，立即取消
+     */
+    synchronized void track(Call<?> call) {
+        if (result.isDone()) {
+            call.cancel();
+        } else {
+            trackedCalls.add(call);
+            listener.track(call);
+        }
+    }
+
+    /**
+     * 一個候選的搜索結束（item 為 null 表示失敗或無結果）
+     */
+    void onResolved(int slot, MusicItem item) {
+        Spare spare = settle(slot, item);
+        if (spare != null) {
+            dispatcher.dispatch(spare.candidate, spare.slot, this);
+        }
+    }
+
+    /**
+     * @return 需要補位的後備，沒有則為 null
+     */
+    private synchronized Spare settle(int slot, MusicItem item) {
+        pendingCount--;
+        Spare spare = null;
+        if (!result.isDone() && winners.size() < target && MusicRepository.isValidItem(item)) {
+            if (winnerTrackIds.add(item.getSpotifyTrackId())) {
+                winners.put(slot, item);
+                // 在鎖內回調，保證所有 onItemResolved 都先於結果完成
+                listener.onItemResolved(item, slot);
+            } else {
+                // 與已勝出的歌曲重複（例如不同譯名），多接受一個候選補位：
+                // 已有後備時立即派發，否則由之後解析出的候選補上。
+                // 在釋放鎖之前計入 pending，結果不會在補位的搜索結束前完成
+                maxCandidates++;
+                spare = spares.poll();
+                if (spare != null) {
+                    candidateCount++;
+                    pendingCount++;
+                }
+            }
+        }
+        maybeComplete();
+        return spare;
+    }
+
+    /**
+     * 不會再有新的候選
+     */
+    synchronized void close() {
+        closed = true;
+        maybeComplete();
+    }
+
+    /**
+     * 流水線失敗：不再接受候選，並取消仍在進行中的請求
+     */
+    synchronized void abort() {
+        closed = true;
+        spares.clear();
+        for (Call<?> call : trackedCalls) {
+            call.cancel();
+        }
+        trackedCalls.clear();
+    }
+
+    synchronized boolean isDone() {
+        return result.isDone();
+    }
+
+    /**
+     * 所屬推薦請求的時間預算
+     */
+    Deadline getDeadline() {
+        return listener.getDeadline();
+    }
+
+    synchronized int getCandidateCount() {
+        return candidateCount;
+    }
+
+    /**
+     * 從 LLM 輸出中解析出的歌曲數（包括被去重丟棄的）
+     */
+    synchronized int getParsedCount() {
+        return parsedCount;
+    }
+
+    /**
+     * 勝出者列表（按 slot 升序）
+     */
+    CompletableFuture<List<MusicItem>> getResult() {
+        return result;
+    }
+
+    private void maybeComplete() {
+        if (result.isDone()) {
+            return;
+        }
+        if (winners.size() >= target || (closed && pendingCount == 0)) {
+            // 取消仍在進行中的請求（已完成的請求取消無副作用）
+            for (Call<?> call : trackedCalls) {
+                call.cancel();
+            }
+            trackedCalls.clear();
+            spares.clear();
+            result.complete(new ArrayList<>(winners.values()));
+        }
+    }
+
+    private static final class Spare {
+        final GeminiSong candidate;
+        final int slot;
+
+        Spare(GeminiSong candidate, int slot) {
+            this.candidate = candidate;
+            this.slot = slot;
+        }
+    }
+}
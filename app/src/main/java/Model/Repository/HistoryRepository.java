@@ -0,0 +1,242 @@
+package Model.Repository;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import Model.Dao.RecommendationHistoryDao;
+import Model.Database.AppDatabase;
+import Model.Entity.HistoryTrackEntity;
+import Model.Entity.RecommendationHistoryEntity;
+import Model.POJO.EmotionInput;
+import Model.POJO.HistoryPage;
+import Model.POJO.HistorySession;
+import Model.POJO.MusicItem;
+
+/**
+ * 推薦歷史 Repository
+ * 每次推薦完成後保存（輸入、時間、按順序的歌曲），歌曲本身只保存一次。
+ * 與最近一筆的輸入和歌單完全相同時（例如推薦緩存的回放）只更新那一筆的時間，不佔用保留名額。
+ * 冷啟動時可立即恢復最近一次的歌單，不需要重新請求 Gemini 和 Spotify；
+ * 歷史可按時間倒序分頁瀏覽，並按保留策略（時間和數量）自動清理。
+ * 情緒推薦的歌單同時交給離線推薦，作為近鄰查詢的一個來源
+ */
+public class HistoryRepository {
+
+    private static final String TAG = "HistoryRepository";
+
+    // 保留最近 90 天、最多 200 次推薦
+    private static final long RETENTION_MS = TimeUnit.DAYS.toMillis(90);
+    private static final int MAX_SESSIONS = 200;
+
+    private final RecommendationHistoryDao dao;
+    private final ExecutorService executor;
+    private final Executor callbackExecutor;
+    private final OfflineRecommender offlineRecommender;
+
+    public HistoryRepository(Context context) {
+        this(AppDatabase.getInstance(context).recommendationHistoryDao(), Executors.newSingleThreadExecutor(),
+                new Handler(Looper.getMainLooper())::post, OfflineRecommender.getInstance(context));
+    }
+
+    HistoryRepository(RecommendationHistoryDao dao, ExecutorService executor, Executor callbackExecutor) {
+        this(dao, executor, callbackExecutor, null);
+    }
+
+    /**
+     * @param callbackExecutor 回調執行的線程（默認主線程）
+     * @param offlineRecommender 離線推薦，為 null 時不把歷史交給它
+     */
+    HistoryRepository(RecommendationHistoryDao dao, ExecutorService executor, Executor callbackExecutor,
+                      OfflineRecommender offlineRecommender) {
+        this.dao = dao;
+        this.executor = executor;
+        this.callbackExecutor = callbackExecutor;
+        this.offlineRecommender = offlineRecommender;
+    }
+
+    /**
+     * 保存一次情緒數值推薦
+     */
+    public void recordEmotion(EmotionInput emotionInput, List<MusicItem> items) {
+        List<HistoryTrackEntity> tracks = toTracks(items);
+        if (!tracks.isEmpty()) {
+            Runnable onInserted = null;
+            if (offlineRecommender != null) {
+                List<MusicItem> copy = new ArrayList<>(tracks.size());
+                for (HistoryTrackEntity track : tracks) {
+                    copy.add(track.toMusicItem());
+                }
+                onInserted = () -> offlineRecommender.recordRecommended(emotionInput, copy);
+            }
+            insert(RecommendationHistoryEntity.forEmotion(emotionInput, tracks.size(), System.currentTimeMillis()),
+                    tracks, onInserted);
+        }
+    }
+
+    /**
+     * 保存一次直接輸入推薦
+     */
+    public void recordText(String emotionText, List<MusicItem> items) {
+        List<HistoryTrackEntity> tracks = toTracks(items);
+        if (!tracks.isEmpty()) {
+            insert(RecommendationHistoryEntity.forText(emotionText, tracks.size(), System.currentTimeMillis()),
+                    tracks, null);
+        }
+    }
+
+    /**
+     * 在調用線程上複製歌單，之後列表被修改也不影響寫入
+     */
+    private static List<HistoryTrackEntity> toTracks(List<MusicItem> items) {
+        List<HistoryTrackEntity> tracks = new ArrayList<>();
+        if (items != null) {
+            for (MusicItem item : items) {
+                if (MusicRepository.isValidItem(item)) {
+                    tracks.add(HistoryTrackEntity.fromMusicItem(item));
+                }
+            }
+        }
+        return tracks;
+    }
+
+    /**
+     * @param onInserted 寫入新的一筆後在後台線程執行，合併到已有的一筆時不執行
+     */
+    private void insert(RecommendationHistoryEntity history, List<HistoryTrackEntity> tracks, Runnable onInserted) {
+        executor.execute(() -> {
+            try {
+                RecommendationHistoryEntity latest = findSameAsLatest(history, tracks);
+                if (latest != null) {
+                    dao.touch(latest.getId(), history.getCreatedTimestamp());
+                    return;
+                }
+                dao.insertSession(history, tracks);
+                dao.applyRetention(history.getCreatedTimestamp() - RETENTION_MS, MAX_SESSIONS);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "保存推薦歷史失敗", e);
+                return;
+            }
+            if (onInserted != null) {
+                onInserted.run();
+            }
+        });
+    }
+
+    /**
+     * 最近一筆的輸入和歌單（按順序的 track ID）與新的一筆相同時返回它，否則返回 null
+     */
+    private RecommendationHistoryEntity findSameAsLatest(RecommendationHistoryEntity history,
+                                                         List<HistoryTrackEntity> tracks) {
+        List<RecommendationHistoryEntity> rows = dao.getFirstPage(1);
+        if (rows.isEmpty() || !rows.get(0).hasSameInput(history)) {
+            return null;
+        }
+        RecommendationHistoryEntity latest = rows.get(0);
+        List<RecommendationHistoryDao.HistoryTrackRow> latestTracks =
+                dao.getTracks(Collections.singletonList(latest.getId()));
+        if (latestTracks.size() != tracks.size()) {
+            return null;
+        }
+        for (int i = 0; i < tracks.size(); i++) {
+            if (!latestTracks.get(i).track.getTrackId().equals(tracks.get(i).getTrackId())) {
+                return null;
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * 讀取最近一次推薦（用於冷啟動時恢復歌單）
+     * @param callback 沒有歷史時結果為 null
+     */
+    public void loadLatest(Callback<HistorySession> callback) {
+        executor.execute(() -> {
+            HistorySession latest = null;
+            try {
+                List<HistorySession> sessions = loadSessions(dao.getFirstPage(1));
+                latest = sessions.isEmpty() ? null : sessions.get(0);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "讀取最近推薦失敗", e);
+            }
+            HistorySession result = latest;
+            callbackExecutor.execute(() -> callback.onResult(result));
+        });
+    }
+
+    /**
+     * 按時間倒序讀取一頁歷史
+     * @param after 上一頁的最後一筆（HistoryPage.getLastSession()），null 表示第一頁
+     * @param pageSize 每頁數量
+     */
+    public void loadPage(HistorySession after, int pageSize, Callback<HistoryPage> callback) {
+        executor.execute(() -> {
+            HistoryPage page;
+            try {
+                // 多查一筆用於判斷是否還有下一頁
+                List<RecommendationHistoryEntity> rows = after == null
+                        ? dao.getFirstPage(pageSize + 1)
+                        : dao.getPageBefore(after.getCreatedTimestamp(), after.getId(), pageSize + 1);
+                boolean hasMore = rows.size() > pageSize;
+                page = new HistoryPage(loadSessions(hasMore ? rows.subList(0, pageSize) : rows), hasMore);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "讀取推薦歷史失敗", e);
+                page = new HistoryPage(new ArrayList<>(), false);
+            }
+            HistoryPage result = page;
+            callbackExecutor.execute(() -> callback.onResult(result));
+        });
+    }
+
+    /**
+     * 以一次查詢載入多次推薦的歌單
+     */
+    private List<HistorySession> loadSessions(List<RecommendationHistoryEntity> rows) {
+        if (rows.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = new ArrayList<>(rows.size());
+        for (RecommendationHistoryEntity row : rows) {
+            ids.add(row.getId());
+        }
+        Map<Long, List<MusicItem>> tracks = new HashMap<>();
+        for (RecommendationHistoryDao.HistoryTrackRow trackRow : dao.getTracks(ids)) {
+            tracks.computeIfAbsent(trackRow.historyId, key -> new ArrayList<>()).add(trackRow.track.toMusicItem());
+        }
+
+        List<HistorySession> sessions = new ArrayList<>(rows.size());
+        for (RecommendationHistoryEntity row : rows) {
+            List<MusicItem> items = tracks.get(row.getId());
+            sessions.add(new HistorySession(row.getId(), row.getCreatedTimestamp(), row.toEmotionInput(),
+                    row.getEmotionText(), items != null ? items : new ArrayList<>()));
+        }
+        return sessions;
+    }
+
+    /**
+     * 關閉 ExecutorService
+     */
+    public void shutdown() {
+        if (!executor.isShutdown()) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 結果回調接口
+     */
+    public interface Callback<T> {
+        void onResult(T result);
+    }
+}
@@ -1,11 +1,480 @@
 package Model.Repository;
-// TODO: [REFACTOR] 將 Gemini + Spotify 處理邏輯抽取到 MusicRecommendationProcessor
+
+import android.util.Log;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import Model.Api.GeminiStreamReader;
+import Model.POJO.GeminiSong;
+import Model.POJO.MusicItem;
+import Util.LatencyHistogram;
+
 /**
- * 統一處理 Gemini 推薦 + Spotify 搜尋的流程
- * 1. 調用 Gemini 獲取歌曲推薦
- * 2. 並行調用 Spotify 搜尋每首歌
- * 3. 過濾無效項目並返回結果
+ * 推薦流水線引擎：統一處理 Gemini 推薦 + Spotify 搜尋的流程
+ * 一次推薦依次經過以下階段，每個階段都可以替換，並有各自的執行器、超時和耗時統計：
+ * 1. PROMPT    構建 Prompt
+ * 2. LLM       調用 Gemini，逐段回調生成的文本（串流或一次性回應）
+ * 3. PARSE     從文本中增量解析歌曲
+ * 4. NORMALIZE 正規化 / 去重候選歌曲
+ * 5. RESOLVE   在 Spotify 上解析每首候選（搜索、緩存、重試、對沖）
+ * 6. RANK      對勝出的歌曲排序
+ * 候選在解析出來時立即進入 NORMALIZE 和 RESOLVE，湊滿 target 首即完成並取消其餘請求
  */
 public class MusicRecommendationProcessor {
 
+    private static final String TAG = "RecommendationProcessor";
+
+    // 統計最近多少次調用的耗時
+    private static final int METRICS_WINDOW = 256;
+
+    private static final ScheduledExecutorService TIMEOUT_SCHEDULER =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "StageTimeout");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * 流水線階段
+     */
+    public enum Stage {
+        PROMPT,
+        LLM,
+        PARSE,
+        NORMALIZE,
+        RESOLVE,
+        RANK
+    }
+
+    private final PromptStage promptStage;
+    private final LlmStage llmStage;
+    private final ParseStage parseStage;
+    private final NormalizeStage normalizeStage;
+    private final ResolveStage resolveStage;
+    private final RankStage rankStage;
+    private final Map<Stage, StageOptions> options;
+    private final Map<Stage, StageMetrics> metrics;
+    private final int target;
+
+    private volatile int maxCandidates;
+
+    private MusicRecommendationProcessor(Builder builder) {
+        this.promptStage = builder.promptStage;
+        this.llmStage = builder.llmStage;
+        this.parseStage = builder.parseStage;
+        this.normalizeStage = builder.normalizeStage;
+        this.resolveStage = builder.resolveStage;
+        this.rankStage = builder.rankStage;
+        this.options = new EnumMap<>(builder.options);
+        this.metrics = builder.metrics;
+        this.target = builder.target;
+        this.maxCandidates = builder.maxCandidates;
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 執行一次推薦
+     * @param query 推薦輸入
+     * @param flight 所屬的推薦請求，接收每首勝出歌曲的漸進式回調，並登記所有發出的請求
+     * @return 經 RANK 排序後的勝出歌曲
+     */
+    CompletableFuture<List<MusicItem>> process(RecommendationQuery query, RecommendationFlight flight) {
+        FirstNCollector collector = new FirstNCollector(target, Math.max(target, maxCandidates), flight,
+                (candidate, slot, owner) -> resolve(query, candidate, slot, owner));
+        NormalizeStage.Session normalizer = normalizeStage.newSession();
+        PendingWork work = new PendingWork();
+        ParseStage.Parser parser = parseStage.newParser((song, index) -> {
+            collector.onParsed();
+            work.add(run(Stage.NORMALIZE, () -> normalizer.normalize(song)).thenAccept(candidate -> {
+                if (candidate != null) {
+                    collector.offer(candidate, index);
+                }
+            }));
+        });
+
+        return run(Stage.PROMPT, () -> promptStage.build(query))
+                .thenCompose(prompt -> runAsync(Stage.LLM, () -> llmStage.generate(prompt,
+                        chunk -> work.parse(() -> run(Stage.PARSE, () -> {
+                            parser.feed(chunk);
+                            return null;
+                        })), collector)))
+                // 生成結束後等待仍在進行的 PARSE 和 NORMALIZE，之後才不會再有新的候選
+                .handle((ignored, throwable) -> throwable)
+                .thenCompose(llmError -> work.drain().handle((ignored, workError) ->
+                        llmError != null ? llmError : workError))
+                .thenApply(throwable -> {
+                    // 已湊滿結果時 Gemini 請求會被主動取消，此時的讀取異常可以忽略
+                    if (throwable != null && !collector.isDone()) {
+                        collector.abort();
+                        throw throwable instanceof CompletionException
+                                ? (CompletionException) throwable : new CompletionException(throwable);
+                    }
+                    collector.close();
+
+                    if (collector.getCandidateCount() == 0) {
+                        throw new CompletionException(new Exception("Gemini 未返回有效的歌曲推薦"));
+                    }
+                    Log.d(TAG, "Gemini 返回 " + collector.getCandidateCount() + " 首候選歌曲");
+                    return collector;
+                })
+                .thenCompose(FirstNCollector::getResult)
+                .thenCompose(winners -> run(Stage.RANK, () -> rankStage.rank(query, winners)));
+    }
+
+    /**
+     * 解析單首候選，失敗、超時或無結果時以 null 回報，由收集器過濾
+     * @param slot 該歌曲在 Gemini 推薦中的排名
+     */
+    private void resolve(RecommendationQuery query, GeminiSong song, int slot, FirstNCollector collector) {
+        runAsync(Stage.RESOLVE, () -> resolveStage.resolve(query, song, collector))
+                .exceptionally(throwable -> {
+                    if (!collector.isDone()) {
+                        Log.e(TAG, "解析歌曲失敗: " + song.getSongName(), throwable);
+                    }
+                    return null;
+                })
+                .thenAccept(item -> collector.onResolved(slot, item));
+    }
+
+    /**
+     * 一次推薦中尚未結束的 PARSE 和 NORMALIZE 工作
+     * PARSE 串成一條鏈：解析器有狀態，即使執行器是多線程的，文本片段也按生成順序逐段餵入
+     */
+    private static final class PendingWork {
+        private final Queue<CompletableFuture<?>> normalizing = new ConcurrentLinkedQueue<>();
+        private CompletableFuture<Void> parseTail = CompletableFuture.completedFuture(null);
+
+        /**
+         * 在上一段文本解析完之後解析下一段；之前的片段失敗後不再解析
+         */
+        synchronized void parse(Supplier<CompletableFuture<Void>> step) {
+            parseTail = parseTail.thenCompose(ignored -> step.get());
+        }
+
+        void add(CompletableFuture<?> future) {
+            normalizing.add(future);
+        }
+
+        /**
+         * 所有 PARSE 和 NORMALIZE 結束時完成，任何一個失敗則以該異常完成
+         * NORMALIZE 在解析器回調中提交，PARSE 鏈結束時已全部登記
+         */
+        synchronized CompletableFuture<Void> drain() {
+            return parseTail.thenCompose(ignored ->
+                    CompletableFuture.allOf(normalizing.toArray(new CompletableFuture<?>[0])));
+        }
+    }
+
+    /**
+     * 在階段的執行器上執行同步階段
+     */
+    private <T> CompletableFuture<T> run(Stage stage, Supplier<T> body) {
+        return runAsync(stage, () -> CompletableFuture.completedFuture(body.get()));
+    }
+
+    /**
+     * 在階段的執行器上啟動異步階段，套用階段超時並記錄耗時
+     */
+    private <T> CompletableFuture<T> runAsync(Stage stage, Supplier<CompletableFuture<T>> body) {
+        StageOptions stageOptions = options.get(stage);
+        StageMetrics stageMetrics = metrics.get(stage);
+        long start = System.nanoTime();
+
+        CompletableFuture<T> future = CompletableFuture
+                .supplyAsync(body, stageOptions.executor)
+                .thenCompose(result -> result);
+        if (stageOptions.timeoutMs > 0) {
+            future = withTimeout(future, stage, stageOptions.timeoutMs);
+        }
+        return future.whenComplete((result, throwable) ->
+                stageMetrics.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), throwable));
+    }
+
+    /**
+     * 超時後以 TimeoutException 完成，並嘗試取消原來的 future
+     * （不使用 orTimeout，Android API 31 以下不可用）
+     */
+    private static <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future, Stage stage, long timeoutMs) {
+        if (future.isDone()) {
+            return future;
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        ScheduledFuture<?> timer = TIMEOUT_SCHEDULER.schedule(() -> {
+            if (result.completeExceptionally(new TimeoutException(stage + " 階段超過 " + timeoutMs + "ms"))) {
+                future.cancel(true);
+            }
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+        future.whenComplete((value, throwable) -> {
+            timer.cancel(false);
+            if (throwable != null) {
+                result.completeExceptionally(throwable);
+            } else {
+                result.complete(value);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 設置最多接受的候選數量（「M 選 N」中的 M，不小於 target）
+     */
+    public void setMaxCandidates(int maxCandidates) {
+        this.maxCandidates = maxCandidates;
+    }
+
+    /**
+     * 指定階段的耗時統計（同一 Builder 構建的處理器共用統計）
+     */
+    public StageMetrics getMetrics(Stage stage) {
+        return metrics.get(stage);
+    }
+
+    // ---------- 階段接口 ----------
+
+    /**
+     * 構建 Prompt
+     */
+    interface PromptStage {
+        String build(RecommendationQuery query);
+    }
+
+    /**
+     * 調用 LLM，每收到一段文本就回調 listener
+     */
+    interface LlmStage {
+        /**
+         * @param collector 登記發出的請求（湊滿結果或取消時一併取消），並提供整次推薦的 Deadline
+         * @return 生成結束（串流讀完或回應解析完）時完成
+         */
+        CompletableFuture<Void> generate(String prompt, GeminiStreamReader.TextChunkListener listener,
+                                         FirstNCollector collector);
+    }
+
+    /**
+     * 從文本中解析歌曲
+     */
+    interface ParseStage {
+        /**
+         * 為一次推薦創建解析器，每解析出一首歌回調 listener
+         */
+        Parser newParser(SongStreamParser.SongListener listener);
+
+        /**
+         * 增量解析器，文本片段按生成順序餵入
+         */
+        interface Parser {
+            void feed(CharSequence chunk);
+        }
+    }
+
+    /**
+     * 正規化 / 去重候選
+     */
+    interface NormalizeStage {
+        /**
+         * 為一次推薦創建會話（去重狀態只在同一次推薦內有效）
+         */
+        Session newSession();
+
+        /**
+         * 同一次推薦的候選可能在 NORMALIZE 的執行器上並發調用，實現必須線程安全
+         */
+        interface Session {
+            /**
+             * @return 正規化後的候選，返回 null 表示丟棄（例如與之前的候選重複）
+             */
+            GeminiSong normalize(GeminiSong song);
+        }
+
+        /**
+         * 不做任何處理
+         */
+        NormalizeStage IDENTITY = () -> song -> song;
+    }
+
+    /**
+     * 在 Spotify 上解析單首候選
+     */
+    interface ResolveStage {
+        /**
+         * @param collector 登記發出的請求，並提供整次推薦的 Deadline
+         * @return 解析結果，無結果時為 null
+         */
+        CompletableFuture<MusicItem> resolve(RecommendationQuery query, GeminiSong song, FirstNCollector collector);
+    }
+
+    /**
+     * 對勝出的歌曲排序
+     */
+    interface RankStage {
+        /**
+         * @param winners 按 Gemini 排名排序的勝出歌曲
+         */
+        List<MusicItem> rank(RecommendationQuery query, List<MusicItem> winners);
+
+        /**
+         * 保持 Gemini 的排名
+         */
+        RankStage GEMINI_ORDER = (query, winners) -> winners;
+    }
+
+    // ---------- 配置與統計 ----------
+
+    /**
+     * 階段的執行器和超時
+     */
+    static final class StageOptions {
+        // 直接在調用線程上執行
+        static final StageOptions DIRECT = new StageOptions(Runnable::run, 0);
+
+        final Executor executor;
+        final long timeoutMs;
+
+        /**
+         * @param executor 執行階段的執行器（PARSE 的片段由流水線保證按順序逐段執行）
+         * @param timeoutMs 階段超時，0 表示只受整次推薦的 Deadline 限制
+         */
+        StageOptions(Executor executor, long timeoutMs) {
+            this.executor = executor;
+            this.timeoutMs = timeoutMs;
+        }
+    }
+
+    /**
+     * 單個階段的統計
+     */
+    public static final class StageMetrics {
+        private final LatencyHistogram latency = new LatencyHistogram(METRICS_WINDOW);
+        private final AtomicLong invocationCount = new AtomicLong();
+        private final AtomicLong failureCount = new AtomicLong();
+        private final AtomicLong timeoutCount = new AtomicLong();
+
+        void record(long elapsedMs, Throwable throwable) {
+            latency.record(elapsedMs);
+            invocationCount.incrementAndGet();
+            if (throwable != null) {
+                failureCount.incrementAndGet();
+                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                        ? throwable.getCause() : throwable;
+                if (cause instanceof TimeoutException) {
+                    timeoutCount.incrementAndGet();
+                }
+            }
+        }
+
+        /**
+         * 最近調用的耗時
+         */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public long getInvocationCount() {
+            return invocationCount.get();
+        }
+
+        public long getFailureCount() {
+            return failureCount.get();
+        }
+
+        public long getTimeoutCount() {
+            return timeoutCount.get();
+        }
+    }
+
+    /**
+     * 處理器構建器
+     * 可以多次調用 build()（例如串流和非串流只有 LLM 階段不同），構建出的處理器共用階段統計
+     */
+    static final class Builder {
+        private PromptStage promptStage;
+        private LlmStage llmStage;
+        private ParseStage parseStage;
+        private NormalizeStage normalizeStage = NormalizeStage.IDENTITY;
+        private ResolveStage resolveStage;
+        private RankStage rankStage = RankStage.GEMINI_ORDER;
+        private final EnumMap<Stage, StageOptions> options = new EnumMap<>(Stage.class);
+        private final EnumMap<Stage, StageMetrics> metrics = new EnumMap<>(Stage.class);
+        private int target = 8;
+        private int maxCandidates = 8;
+
+        private Builder() {
+            for (Stage stage : Stage.values()) {
+                options.put(stage, StageOptions.DIRECT);
+                metrics.put(stage, new StageMetrics());
+            }
+        }
+
+        Builder prompt(PromptStage stage) {
+            this.promptStage = stage;
+            return this;
+        }
+
+        Builder llm(LlmStage stage) {
+            this.llmStage = stage;
+            return this;
+        }
+
+        Builder parse(ParseStage stage) {
+            this.parseStage = stage;
+            return this;
+        }
+
+        Builder normalize(NormalizeStage stage) {
+            this.normalizeStage = stage;
+            return this;
+        }
+
+        Builder resolve(ResolveStage stage) {
+            this.resolveStage = stage;
+            return this;
+        }
+
+        Builder rank(RankStage stage) {
+            this.rankStage = stage;
+            return this;
+        }
+
+        /**
+         * 設置階段的執行器和超時
+         */
+        Builder options(Stage stage, StageOptions stageOptions) {
+            options.put(stage, stageOptions);
+            return this;
+        }
+
+        /**
+         * @param target 需要的歌曲數量 N
+         * @param maxCandidates 最多接受的候選數量 M
+         */
+        Builder candidates(int target, int maxCandidates) {
+            this.target = target;
+            this.maxCandidates = maxCandidates;
+            return this;
+        }
+
+        MusicRecommendationProcessor build() {
+            if (promptStage == null || llmStage == null || parseStage == null || resolveStage == null) {
+                throw new IllegalStateException("PROMPT、LLM、PARSE、RESOLVE 階段必須設置");
+            }
+            return new MusicRecommendationProcessor(this);
+        }
+    }
 }
@@ -1,29 +1,45 @@
 package Model.Repository;
 
+import android.content.Context;
 import android.util.Log;
 
 import com.example.graduationproject.BuildConfig;
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.TypeAdapter;
 
 import java.io.IOException;
-import java.lang.reflect.Type;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
+import Model.Api.AdaptiveConcurrencyLimiter;
 import Model.Api.ApiClient;
+import Model.Api.ApiGson;
+import Model.Api.Deadline;
 import Model.Api.GeminiApiService;
+import Model.Api.GeminiOutputBudget;
+import Model.Api.GeminiQuotaManager;
+import Model.Api.GeminiStreamReader;
+import Model.Api.HedgingPolicy;
+import Model.Api.RetryPolicy;
 import Model.Api.SpotifyApiService;
+import Model.Cache.RecommendationCache;
+import Model.Cache.TrackResolutionCache;
+import Model.Entity.TrackEmotionEntity;
 import Model.POJO.EmotionInput;
 import Model.POJO.GeminiRequest;
 import Model.POJO.GeminiResponse;
 import Model.POJO.GeminiSong;
 import Model.POJO.MusicItem;
 import Model.POJO.SpotifySearchResponse;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
 import retrofit2.Response;
 
 /**
@@ -34,17 +50,89 @@ public class MusicRepository {
 
     private static final String TAG = "MusicRepository";
     private static final int MAX_SONGS = 8;
+    // 過量獲取：搜索全部候選，取最快湊滿的 MAX_SONGS 首
+    private static final int MAX_CANDIDATES = 15;
+    // 每次推薦的端到端時間預算（包括 Gemini 生成、所有搜索和重試）
+    private static final long RECOMMENDATION_BUDGET_MS = 45_000;
+
+    // Spotify 搜索的對沖策略：超過近期 p90 仍未回應時發出副本，副本不超過總請求的 10%
+    // 所有倉庫實例共用同一個延遲直方圖
+    private static final HedgingPolicy SEARCH_HEDGING = new HedgingPolicy(0.9, 0.1);
+
+    // Gemini 輸出 token 上限，按實際用量調整
+    private static final GeminiOutputBudget OUTPUT_BUDGET = new GeminiOutputBudget();
 
     private final GeminiApiService geminiApiService;
     private final SpotifyApiService spotifyApiService;
     private final Gson gson;
+    // 預先建立的歌曲適配器，解析時不再經過反射查找
+    private final TypeAdapter<GeminiSong> songAdapter;
     private final ExecutorService executorService;
+    private final GeminiStreamReader streamReader;
+    private final TrackResolutionCache trackCache;
+    private final RecommendationCache recommendationCache;
+    private final GeminiQuotaManager quotaManager;
+    private final OfflineRecommender offlineRecommender;
+    // 推薦流水線：串流和一次性回應只有 LLM 階段不同，兩者共用階段統計
+    private final MusicRecommendationProcessor streamingProcessor;
+    private final MusicRecommendationProcessor responseProcessor;
+
+    // 進行中的推薦請求（single-flight），相同 key 的並發調用共用同一條流水線
+    private final ConcurrentHashMap<String, RecommendationFlight> inFlightRequests = new ConcurrentHashMap<>();
+    private final AtomicLong coalescedRequestCount = new AtomicLong();
+
+    // 是否對慢的 Spotify 搜索發出對沖請求
+    private volatile boolean hedgingEnabled = true;
+
+    public MusicRepository(Context context) {
+        this(ApiClient.getGeminiApiService(), ApiClient.getSpotifyApiService(),
+                Executors.newFixedThreadPool(5), TrackResolutionCache.getInstance(context),
+                RecommendationCache.getInstance(context), GeminiQuotaManager.getInstance(context),
+                OfflineRecommender.getInstance(context));
+    }
 
-    public MusicRepository() {
-        this.geminiApiService = ApiClient.getGeminiApiService();
-        this.spotifyApiService = ApiClient.getSpotifyApiService();
-        this.gson = new Gson();
-        this.executorService = Executors.newFixedThreadPool(5);
+    /**
+     * 注入 API 服務、線程池和緩存（測試時指向 MockWebServer）
+     * @param trackCache 歌曲解析緩存，為 null 時每首歌都發出搜索請求
+     * @param recommendationCache 情緒推薦緩存，為 null 時不緩存整份歌單
+     * @param quotaManager Gemini 配額管理，為 null 時不做客戶端限流
+     */
+    MusicRepository(GeminiApiService geminiApiService, SpotifyApiService spotifyApiService,
+                    ExecutorService executorService, TrackResolutionCache trackCache,
+                    RecommendationCache recommendationCache, GeminiQuotaManager quotaManager) {
+        this(geminiApiService, spotifyApiService, executorService, trackCache, recommendationCache, quotaManager,
+                null);
+    }
+
+    /**
+     * @param offlineRecommender 離線推薦，為 null 時線上推薦失敗直接回報錯誤
+     */
+    MusicRepository(GeminiApiService geminiApiService, SpotifyApiService spotifyApiService,
+                    ExecutorService executorService, TrackResolutionCache trackCache,
+                    RecommendationCache recommendationCache, GeminiQuotaManager quotaManager,
+                    OfflineRecommender offlineRecommender) {
+        this.geminiApiService = geminiApiService;
+        this.spotifyApiService = spotifyApiService;
+        this.gson = ApiGson.get();
+        this.songAdapter = gson.getAdapter(GeminiSong.class);
+        this.executorService = executorService;
+        this.streamReader = new GeminiStreamReader(gson);
+        this.trackCache = trackCache;
+        this.recommendationCache = recommendationCache;
+        this.quotaManager = quotaManager;
+        this.offlineRecommender = offlineRecommender;
+        if (offlineRecommender != null) {
+            executorService.execute(offlineRecommender::warmUp);
+        }
+
+        MusicRecommendationProcessor.Builder pipeline = MusicRecommendationProcessor.builder()
+                .prompt(this::buildPrompt)
+                .parse(listener -> new SongStreamParser(songAdapter, listener))
+                .normalize(new CandidateDeduplicator())
+                .resolve(this::resolveTrack)
+                .candidates(MAX_SONGS, MAX_CANDIDATES);
+        this.streamingProcessor = pipeline.llm(this::streamGeminiText).build();
+        this.responseProcessor = pipeline.llm(this::fetchGeminiText).build();
     }
 
     /**
@@ -52,153 +140,194 @@ public class MusicRepository {
      * @param emotionInput 情緒輸入
      * @param accessToken Spotify Access Token
      * @param callback 回調接口
+     * @return 可取消的請求句柄
      */
-    public void getMusicRecommendations(EmotionInput emotionInput, String accessToken,
-                                        MusicRepositoryCallback callback) {
-        CompletableFuture.supplyAsync(() -> {
-            try {
-                // Step 1: 調用 Gemini API 獲取歌曲推薦
-                List<GeminiSong> geminiSongs = fetchGeminiRecommendations(emotionInput);
-                if (geminiSongs == null || geminiSongs.isEmpty()) {
-                    throw new Exception("Gemini 未返回有效的歌曲推薦");
-                }
-
-                // 截取前8條
-                List<GeminiSong> topSongs = geminiSongs.stream()
-                        .limit(MAX_SONGS)
-                        .collect(Collectors.toList());
-
-                Log.d(TAG, "Gemini 返回 " + topSongs.size() + " 首歌曲");
-
-                // Step 2: 並發請求 Spotify API 獲取歌曲詳情
-                List<MusicItem> musicItems = fetchSpotifyDetailsParallel(topSongs, accessToken);
+    public RecommendationRequest getMusicRecommendations(EmotionInput emotionInput, String accessToken,
+                                                         MusicRepositoryCallback callback) {
+        return coalesce(emotionFlightKey(emotionInput), asProgressive(callback),
+                flight -> runRecommendation(responseProcessor,
+                        RecommendationQuery.forEmotion(emotionInput, accessToken),
+                        recommendationCacheKey(emotionInput), false, flight));
+    }
 
-                return musicItems;
+    /**
+     * LLM 階段（一次性回應）：調用 Gemini generateContent，以完整的回應文本回調一次
+     * 請求使用結構化輸出模式，回應文本就是符合 schema 的純 JSON，不需要清理 Markdown 標記
+     */
+    private CompletableFuture<Void> fetchGeminiText(String prompt, GeminiStreamReader.TextChunkListener listener,
+                                                    FirstNCollector collector) {
+        RateLimitException quotaError = reserveGeminiQuota();
+        if (quotaError != null) {
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(quotaError);
+            return failed;
+        }
+        GeminiRequest request = GeminiRequest.forSongList(prompt, MAX_CANDIDATES,
+                OUTPUT_BUDGET.maxOutputTokens(MAX_CANDIDATES));
 
-            } catch (Exception e) {
-                Log.e(TAG, "獲取音樂推薦失敗", e);
-                throw new RuntimeException(e);
+        Call<GeminiResponse> call = geminiApiService.generateContent(BuildConfig.GEMINI_API_KEY, request);
+        collector.track(call);
+        // 暫時性錯誤按策略重試；重試不額外預留配額（5xx 和連接錯誤通常不計入伺服器配額）
+        return RetryPolicy.DEFAULT.execute(call, collector.getDeadline(), collector::track).thenAccept(response -> {
+            try {
+                if (response.isSuccessful() && response.body() != null) {
+                    String responseText = response.body().getResponseText();
+                    Log.d(TAG, "Gemini 原始回應: " + responseText);
+                    if (responseText != null) {
+                        listener.onTextChunk(responseText);
+                    }
+                    OUTPUT_BUDGET.record(response.body(), collector.getParsedCount());
+                } else {
+                    handleGeminiError(response, TAG);
+                }
+            } catch (IOException e) {
+                throw new CompletionException(e);
             }
-        }, executorService).thenAccept(musicItems -> {
-            callback.onSuccess(musicItems);
-        }).exceptionally(throwable -> {
-            callback.onError(throwable.getMessage());
-            return null;
         });
     }
 
     /**
-     * 調用 Gemini API 獲取歌曲推薦
+     * 處理 Gemini 錯誤回應
+     * 限流時拋出 RateLimitException，其他錯誤只記錄日誌
      */
-    private List<GeminiSong> fetchGeminiRecommendations(EmotionInput emotionInput) throws IOException {
-        String prompt = emotionInput.buildPrompt();
-        GeminiRequest request = new GeminiRequest(prompt);
-
-        Response<GeminiResponse> response = geminiApiService
-                .generateContent(BuildConfig.GEMINI_API_KEY, request)
-                .execute();
-
-        if (response.isSuccessful() && response.body() != null) {
-            String responseText = response.body().getResponseText();
-            Log.d(TAG, "Gemini 原始回應: " + responseText);
+    private void handleGeminiError(Response<?> response, String logTag) throws IOException {
+        int errorCode = response.code();
+        Log.e(logTag, "Gemini API 請求失敗: " + errorCode);
+        String errorDetail = "";
+        if (response.errorBody() != null) {
+            errorDetail = response.errorBody().string();
+            Log.e(logTag, "錯誤詳情: " + errorDetail);
+        }
+        // 檢測限流錯誤（429 或包含 quota/rate limit 關鍵字）
+        if (errorCode == 429 || errorDetail.contains("quota") || errorDetail.contains("RATE_LIMIT") ||
+            errorDetail.contains("rate limit") || errorDetail.contains("Resource has been exhausted")) {
+            // 本地預算與伺服器不一致（例如多台設備共用 API Key），以伺服器為準
+            long retryAfterMs = quotaManager != null ? quotaManager.onServerRateLimited() : 0;
+            throw new RateLimitException("API request limit reached", retryAfterMs);
+        }
+    }
 
-            if (responseText != null) {
-                // 清理可能的 Markdown 標記
-                responseText = cleanJsonResponse(responseText);
-                Log.d(TAG, "清理後的 JSON: " + responseText);
+    /**
+     * 調用 Gemini 前預留配額
+     * @return 配額不足時返回限流異常（請求不應發出），否則返回 null
+     */
+    private RateLimitException reserveGeminiQuota() {
+        if (quotaManager == null) {
+            return null;
+        }
+        GeminiQuotaManager.QuotaResult result = quotaManager.tryAcquire();
+        if (result.isGranted()) {
+            return null;
+        }
+        long retryAfterMs = ((GeminiQuotaManager.QuotaExhausted) result).getRetryAfterMs();
+        return new RateLimitException("API request limit reached", retryAfterMs);
+    }
 
-                // 解析 JSON 數組
-                Type listType = new TypeToken<List<GeminiSong>>(){}.getType();
-                return gson.fromJson(responseText, listType);
-            }
+    /**
+     * 將流水線的異常交給請求：限流回調 onQuotaExhausted，其他回調 onError
+     */
+    private static void deliverError(RecommendationFlight flight, Throwable throwable) {
+        RateLimitException quotaError = findRateLimit(throwable);
+        if (quotaError != null) {
+            flight.onQuotaExhausted(quotaError.getRetryAfterMs());
         } else {
-            int errorCode = response.code();
-            Log.e(TAG, "Gemini API 請求失敗: " + errorCode);
-            String errorDetail = "";
-            if (response.errorBody() != null) {
-                errorDetail = response.errorBody().string();
-                Log.e(TAG, "錯誤詳情: " + errorDetail);
-            }
-            // 檢測限流錯誤（429 或包含 quota/rate limit 關鍵字）
-            if (errorCode == 429 || errorDetail.contains("quota") || errorDetail.contains("RATE_LIMIT") ||
-                errorDetail.contains("rate limit") || errorDetail.contains("Resource has been exhausted")) {
-                throw new RateLimitException("API request limit reached");
-            }
+            flight.onError(throwable.getMessage());
         }
-
-        return null;
     }
 
     /**
-     * API 限流異常
+     * 在異常鏈中查找限流異常，沒有則返回 null
      */
-    public static class RateLimitException extends IOException {
-        public RateLimitException(String message) {
-            super(message);
+    private static RateLimitException findRateLimit(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RateLimitException) {
+                return (RateLimitException) cause;
+            }
         }
+        return null;
     }
 
     /**
-     * 清理 JSON 回應中的 Markdown 標記
+     * API 限流異常
      */
-    private String cleanJsonResponse(String response) {
-        if (response == null) return null;
-
-        String cleaned = response.trim();
+    public static class RateLimitException extends IOException {
+        private final long retryAfterMs;
 
-        // 移除 markdown 代碼塊標記
-        if (cleaned.startsWith("```json")) {
-            cleaned = cleaned.substring(7);
-        } else if (cleaned.startsWith("```")) {
-            cleaned = cleaned.substring(3);
+        public RateLimitException(String message) {
+            this(message, 0);
         }
 
-        if (cleaned.endsWith("```")) {
-            cleaned = cleaned.substring(0, cleaned.length() - 3);
+        public RateLimitException(String message, long retryAfterMs) {
+            super(message);
+            this.retryAfterMs = retryAfterMs;
         }
 
-        return cleaned.trim();
+        /**
+         * 建議的等待時間（毫秒），0 表示未知
+         */
+        public long getRetryAfterMs() {
+            return retryAfterMs;
+        }
     }
 
     /**
-     * 並發請求 Spotify API 獲取歌曲詳情
-     * 使用 CompletableFuture 實現並行請求
+     * RESOLVE 階段：在 Spotify 上解析單首歌曲
+     * 解析緩存的讀寫在線程池上執行，網絡請求經限制器以 enqueue 發出，等待期間不佔用線程
+     * @return 解析出的歌曲，無結果或搜索失敗時為 null
      */
-    private List<MusicItem> fetchSpotifyDetailsParallel(List<GeminiSong> songs, String accessToken) {
-        String authHeader = "Bearer " + accessToken;
-
-        // 創建所有 CompletableFuture
-        List<CompletableFuture<MusicItem>> futures = songs.stream()
-                .map(song -> CompletableFuture.supplyAsync(() -> {
-                    try {
-                        return searchSpotifyTrack(song, authHeader);
-                    } catch (Exception e) {
-                        Log.e(TAG, "搜索歌曲失敗: " + song.getSongName(), e);
-                        // 搜索失敗時返回 null，後續會過濾掉
-                        return null;
-                    }
-                }, executorService))
-                .collect(Collectors.toList());
-
-        // 等待所有請求完成並收集結果
-        // 過濾掉 null 和沒有有效 spotifyTrackId 的項目
-        return futures.stream()
-                .map(CompletableFuture::join)
-                .filter(item -> item != null && item.getSpotifyTrackId() != null && !item.getSpotifyTrackId().isEmpty())
-                .collect(Collectors.toList());
+    private CompletableFuture<MusicItem> resolveTrack(RecommendationQuery query, GeminiSong song,
+                                                      FirstNCollector collector) {
+        Call<SpotifySearchResponse> call = spotifyApiService
+                .searchTracks("Bearer " + query.getAccessToken(), buildSearchQuery(song), "track", 1);
+        collector.track(call);
+
+        // 優先查詢本地解析緩存，命中（包括負向命中）時不發出網絡請求
+        CompletableFuture<TrackResolutionCache.Lookup> cacheLookup = trackCache != null
+                ? CompletableFuture.supplyAsync(
+                        () -> trackCache.lookup(song.getSongName(), song.getArtist()), executorService)
+                : CompletableFuture.completedFuture(null);
+
+        return cacheLookup.thenCompose(cached -> {
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached.getItem());
+            }
+            // 已湊滿結果或請求已取消時，不再發出請求
+            if (call.isCanceled()) {
+                return CompletableFuture.<MusicItem>completedFuture(null);
+            }
+            // 每次嘗試都經過 Spotify 主機的自適應並發限制器排隊發出（429 時等待 Retry-After 後重試），
+            // 離開隊列後超過近期 p90 仍未回應時對沖，5xx 和網絡錯誤在推薦的 Deadline 內按退避策略重試。
+            // 限制器已有請求在排隊時不對沖：副本只會排在同一個隊列裡，白白消耗對沖預算
+            AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.forHost(call.request().url());
+            return RetryPolicy.DEFAULT
+                    .execute(call, collector.getDeadline(), collector::track,
+                            attempt -> hedgingEnabled
+                                    ? SEARCH_HEDGING.execute(attempt, collector::track,
+                                            (hedged, onSent) -> limiter.submit(hedged, collector::track, onSent),
+                                            () -> limiter.getQueueDepth() == 0)
+                                    : limiter.submit(attempt, collector::track))
+                    .thenApplyAsync(response -> parseSearchResponse(song, response), executorService);
+        });
     }
 
     /**
-     * 搜索單首歌曲的 Spotify 詳情
+     * 是否為有效的搜索結果（非 null 且有 spotifyTrackId）
      */
-    private MusicItem searchSpotifyTrack(GeminiSong song, String authHeader) throws IOException {
-        // 構建搜索查詢: "track:歌名 artist:藝術家"
-        String query = "track:" + song.getSongName() + " artist:" + song.getArtist();
+    static boolean isValidItem(MusicItem item) {
+        return item != null && item.getSpotifyTrackId() != null && !item.getSpotifyTrackId().isEmpty();
+    }
 
-        Response<SpotifySearchResponse> response = spotifyApiService
-                .searchTracks(authHeader, query, "track", 1)
-                .execute();
+    /**
+     * 構建搜索查詢: "track:歌名 artist:藝術家"
+     */
+    private String buildSearchQuery(GeminiSong song) {
+        return "track:" + song.getSongName() + " artist:" + song.getArtist();
+    }
 
+    /**
+     * 解析單首歌曲的 Spotify 搜索結果，並寫入解析緩存
+     */
+    private MusicItem parseSearchResponse(GeminiSong song, Response<SpotifySearchResponse> response) {
         if (response.isSuccessful() && response.body() != null) {
             SpotifySearchResponse searchResponse = response.body();
 
@@ -208,7 +337,7 @@ public class MusicRepository {
 
                 SpotifySearchResponse.Track track = searchResponse.getTracks().getItems().get(0);
 
-                return new MusicItem(
+                MusicItem item = new MusicItem(
                         track.getName(),
                         track.getFirstArtistName(),
                         track.getThumbnailUrl(),
@@ -216,8 +345,16 @@ public class MusicRepository {
                         track.getId(),
                         track.getDurationMs()
                 );
+                if (trackCache != null) {
+                    trackCache.putResolved(song.getSongName(), song.getArtist(), item);
+                }
+                return item;
             } else {
                 Log.w(TAG, "Spotify 搜索無結果: " + song.getSongName() + " by " + song.getArtist());
+                // 只有明確的「無結果」才寫入負向緩存，請求失敗不寫入
+                if (trackCache != null) {
+                    trackCache.putNotFound(song.getSongName(), song.getArtist());
+                }
             }
         } else {
             Log.e(TAG, "Spotify 搜索失敗: " + response.code() + " for " + song.getSongName());
@@ -233,98 +370,351 @@ public class MusicRepository {
      * @param emotionText 用戶輸入的情緒文字（20字以內）
      * @param accessToken Spotify Access Token
      * @param callback 回調接口
+     * @return 可取消的請求句柄
      */
-    public void getMusicByDirectText(String emotionText, String accessToken,
-                                     MusicRepositoryCallback callback) {
-        CompletableFuture.supplyAsync(() -> {
-            try {
-                // Step 1: 調用 Gemini API 分析情緒文字並獲取歌曲推薦
-                List<GeminiSong> geminiSongs = fetchGeminiRecommendationsByText(emotionText);
-                if (geminiSongs == null || geminiSongs.isEmpty()) {
-                    throw new Exception("Gemini 未返回有效的歌曲推薦");
-                }
+    public RecommendationRequest getMusicByDirectText(String emotionText, String accessToken,
+                                                      MusicRepositoryCallback callback) {
+        return coalesce(textFlightKey(emotionText), asProgressive(callback),
+                flight -> runRecommendation(responseProcessor, RecommendationQuery.forText(emotionText, accessToken),
+                        null, false, flight));
+    }
 
-                // 截取前8條
-                List<GeminiSong> topSongs = geminiSongs.stream()
-                        .limit(MAX_SONGS)
-                        .collect(Collectors.toList());
+    /**
+     * PROMPT 階段：情緒數值和直接輸入各自的 Prompt
+     */
+    private String buildPrompt(RecommendationQuery query) {
+        return query.getEmotionInput() != null
+                ? query.getEmotionInput().buildPrompt()
+                : buildDirectTextPrompt(query.getEmotionText());
+    }
+
+    /**
+     * 直接輸入模式的 Prompt
+     * 輸出格式由請求的 responseSchema 約束，Prompt 只描述推薦內容
+     */
+    private String buildDirectTextPrompt(String emotionText) {
+        return "You are a music recommendation assistant. " +
+                "The user describes their current emotion as: \"" + emotionText + "\". " +
+                "Based on this emotion, recommend 12 songs that match the user's mood.";
+    }
+
+    /**
+     * 串流模式：根據情緒獲取音樂推薦
+     * Gemini 每生成完一首歌（物件的右大括號到達），立即派發 Spotify 搜索，
+     * 不必等待整個回應生成完畢
+     * @param emotionInput 情緒輸入
+     * @param accessToken Spotify Access Token
+     * @param callback 回調接口
+     * @return 可取消的請求句柄
+     */
+    public RecommendationRequest getMusicRecommendationsStreaming(EmotionInput emotionInput, String accessToken,
+                                                                  MusicRepositoryCallback callback) {
+        return getMusicRecommendationsProgressive(emotionInput, accessToken, false, asProgressive(callback));
+    }
 
-                Log.d(TAG, "Gemini 返回 " + topSongs.size() + " 首歌曲（直接輸入模式）");
+    /**
+     * 漸進式：根據情緒獲取音樂推薦
+     * 基於串流模式，每首歌在 Spotify 解析完成時立即回調 onItemResolved，
+     * 全部完成後回調 onComplete（按 Gemini 排名排序）
+     * @param emotionInput 情緒輸入
+     * @param accessToken Spotify Access Token
+     * @param callback 漸進式回調接口
+     * @return 可取消的請求句柄
+     */
+    public RecommendationRequest getMusicRecommendationsProgressive(EmotionInput emotionInput, String accessToken,
+                                                                    ProgressiveMusicCallback callback) {
+        return getMusicRecommendationsProgressive(emotionInput, accessToken, false, callback);
+    }
 
-                // Step 2: 並發請求 Spotify API 獲取歌曲詳情
-                List<MusicItem> musicItems = fetchSpotifyDetailsParallel(topSongs, accessToken);
+    /**
+     * 漸進式：根據情緒獲取音樂推薦，可跳過推薦緩存
+     * @param bypassCache true 時不讀取緩存（例如用戶點擊「不喜歡」刷新），新結果仍會寫回緩存
+     */
+    public RecommendationRequest getMusicRecommendationsProgressive(EmotionInput emotionInput, String accessToken,
+                                                                    boolean bypassCache,
+                                                                    ProgressiveMusicCallback callback) {
+        RecommendationQuery query = RecommendationQuery.forEmotion(emotionInput, accessToken);
+        String cacheKey = recommendationCacheKey(emotionInput);
+        // 跳過緩存的刷新不能加入同一情緒的普通請求，否則會拿到它想替換的舊歌單
+        String flightKey = bypassCache ? emotionFlightKey(emotionInput) + ":refresh" : emotionFlightKey(emotionInput);
+        return coalesce(flightKey, callback,
+                flight -> runRecommendation(streamingProcessor, query, cacheKey, bypassCache, flight));
+    }
 
-                return musicItems;
+    /**
+     * 情緒輸入對應的推薦緩存 key，未配置緩存時返回 null
+     */
+    private String recommendationCacheKey(EmotionInput emotionInput) {
+        return recommendationCache != null ? recommendationCache.keyFor(emotionInput) : null;
+    }
 
-            } catch (Exception e) {
-                Log.e("apiError", "直接輸入模式獲取音樂推薦失敗: " + e.getMessage());
-                throw new RuntimeException(e);
+    /**
+     * 串流模式：根據用戶直接輸入的情緒文字獲取音樂推薦
+     * @param emotionText 用戶輸入的情緒文字（20字以內）
+     * @param accessToken Spotify Access Token
+     * @param callback 回調接口
+     * @return 可取消的請求句柄
+     */
+    public RecommendationRequest getMusicByDirectTextStreaming(String emotionText, String accessToken,
+                                                               MusicRepositoryCallback callback) {
+        return getMusicByDirectTextProgressive(emotionText, accessToken, asProgressive(callback));
+    }
+
+    /**
+     * 漸進式：根據用戶直接輸入的情緒文字獲取音樂推薦
+     * @param emotionText 用戶輸入的情緒文字（20字以內）
+     * @param accessToken Spotify Access Token
+     * @param callback 漸進式回調接口
+     * @return 可取消的請求句柄
+     */
+    public RecommendationRequest getMusicByDirectTextProgressive(String emotionText, String accessToken,
+                                                                 ProgressiveMusicCallback callback) {
+        RecommendationQuery query = RecommendationQuery.forText(emotionText, accessToken);
+        return coalesce(textFlightKey(emotionText), callback,
+                flight -> runRecommendation(streamingProcessor, query, null, false, flight));
+    }
+
+    /**
+     * 請求合併（single-flight）
+     * 相同 key 已有進行中的請求時，調用方直接加入該請求並共用結果，不再重複調用 API；
+     * 否則以 starter 啟動新的流水線，流水線的回調會廣播給所有加入者
+     * @param flightKey 請求 key
+     * @param callback 調用方的回調
+     * @param starter 啟動流水線，參數為負責廣播回調和登記請求的 RecommendationFlight
+     * @return 調用方的請求句柄，取消時只在沒有其他共用者的情況下取消流水線
+     */
+    private RecommendationRequest coalesce(String flightKey, ProgressiveMusicCallback callback,
+                                           Consumer<RecommendationFlight> starter) {
+        RecommendationFlight[] started = new RecommendationFlight[1];
+        RecommendationFlight joined = inFlightRequests.compute(flightKey, (key, current) -> {
+            // 已結束但尚未移除的請求 subscribe 會失敗，此時替換為新請求
+            if (current != null && current.subscribe(callback)) {
+                return current;
             }
-        }, executorService).thenAccept(musicItems -> {
-            callback.onSuccess(musicItems);
-        }).exceptionally(throwable -> {
-            Log.e("apiError", "API 錯誤: " + throwable.getMessage());
-            callback.onError(throwable.getMessage());
-            return null;
+            started[0] = new RecommendationFlight(callback, Deadline.after(RECOMMENDATION_BUDGET_MS));
+            return started[0];
         });
+
+        RecommendationFlight flight = started[0];
+        if (flight == null) {
+            coalescedRequestCount.incrementAndGet();
+            Log.d(TAG, "合併重複的推薦請求: " + flightKey);
+            return new RecommendationRequest(joined, callback);
+        }
+        flight.getResult().whenComplete((musicItems, throwable) ->
+                inFlightRequests.remove(flightKey, flight));
+        starter.accept(flight);
+        return new RecommendationRequest(flight, callback);
     }
 
     /**
-     * 調用 Gemini API 分析情緒文字並獲取歌曲推薦
-     * 使用 hard-coded prompt，強制 Gemini 返回 JSON 格式
+     * 情緒輸入的請求 key（使用原始數值，不做區間量化）
      */
-    private List<GeminiSong> fetchGeminiRecommendationsByText(String emotionText) throws IOException {
-        // Hard-coded prompt，強制返回 JSON 格式的歌曲列表
-        String prompt = "You are a music recommendation assistant. " +
-                "The user describes their current emotion as: \"" + emotionText + "\". " +
-                "Based on this emotion, recommend 8 songs that match the user's mood. " +
-                "You MUST respond with ONLY a valid JSON array, no other text. " +
-                "Each object in the array must have exactly two fields: " +
-                "\"songName\" (the name of the song) and \"artist\" (the artist name). " +
-                "Example format: [{\"songName\":\"Song Title\",\"artist\":\"Artist Name\"}] " +
-                "Do not include any explanation, markdown, or additional text. Only the JSON array.";
+    private static String emotionFlightKey(EmotionInput emotionInput) {
+        return "emotion:" + emotionInput.toQuantizedKey(1);
+    }
 
-        GeminiRequest request = new GeminiRequest(prompt);
+    /**
+     * 直接輸入文字的請求 key（去除首尾空白）
+     */
+    private static String textFlightKey(String emotionText) {
+        return "text:" + (emotionText != null ? emotionText.trim() : "");
+    }
 
-        Response<GeminiResponse> response = geminiApiService
-                .generateContent(BuildConfig.GEMINI_API_KEY, request)
-                .execute();
+    /**
+     * 被合併到已有請求的調用次數
+     */
+    public long getCoalescedRequestCount() {
+        return coalescedRequestCount.get();
+    }
 
-        if (response.isSuccessful() && response.body() != null) {
-            String responseText = response.body().getResponseText();
-            Log.d(TAG, "Gemini 原始回應（直接輸入）: " + responseText);
+    /**
+     * 所有推薦入口的共用流程
+     * 1. 以流水線處理器讀取 Gemini 輸出（串流或一次性回應），增量解析 JSON 陣列
+     * 2. 每解析出一首歌就派發一個 Spotify 搜索（最多 MAX_CANDIDATES 首）
+     * 3. 每首歌解析成功即回調 onItemResolved，slot 為該歌曲的 Gemini 排名
+     * 4. 湊滿 MAX_SONGS 首即完成（同時取消 Gemini 請求和其餘搜索），
+     *    否則等 Gemini 和所有搜索結束後按 Gemini 的排名返回
+     * 提供 cacheKey 時先查詢推薦緩存，命中則直接回放緩存歌單；成功結果會寫回緩存。
+     * 失敗時（配額不足、網絡不可用等）以情緒輸入查詢離線推薦，有結果則以 onOfflineComplete 完成
+     * @param processor 串流或一次性回應的處理器
+     * @param cacheKey 推薦緩存 key，為 null 時不使用緩存
+     * @param bypassCache 是否跳過緩存讀取
+     * @param flight 所屬的推薦請求
+     */
+    private void runRecommendation(MusicRecommendationProcessor processor, RecommendationQuery query,
+                                   String cacheKey, boolean bypassCache, RecommendationFlight flight) {
+        CompletableFuture<List<MusicItem>> cacheLookup = cacheKey != null && !bypassCache
+                ? CompletableFuture.supplyAsync(() -> recommendationCache.get(cacheKey), executorService)
+                : CompletableFuture.completedFuture(null);
+
+        cacheLookup.thenCompose(cached -> {
+            // 排隊期間已被取消
+            if (flight.isCancelled()) {
+                throw new CancellationException("推薦請求已取消");
+            }
+            if (cached != null) {
+                Log.d(TAG, "推薦緩存命中: " + cacheKey);
+                for (int i = 0; i < cached.size(); i++) {
+                    flight.onItemResolved(cached.get(i), i);
+                }
+                return CompletableFuture.completedFuture(cached);
+            }
+            return processor.process(query, flight).thenApplyAsync(musicItems -> {
+                // 被取消時的結果可能不完整，不寫入緩存
+                if (cacheKey != null && !flight.isCancelled()) {
+                    recommendationCache.put(cacheKey, musicItems);
+                }
+                return musicItems;
+            }, executorService);
+        }).thenAccept(musicItems -> {
+            flight.onComplete(musicItems);
+        }).exceptionally(throwable -> {
+            // 已取消的請求不會再回調調用方
+            if (!flight.isCancelled()) {
+                Log.e(TAG, "獲取音樂推薦失敗", throwable);
+            }
+            fallBackOrDeliverError(query, flight, throwable);
+            return null;
+        });
+    }
 
-            if (responseText != null) {
-                // 清理可能的 Markdown 標記
-                responseText = cleanJsonResponse(responseText);
-                Log.d(TAG, "清理後的 JSON（直接輸入）: " + responseText);
+    /**
+     * 離線後備：以本地收藏和播放記錄的近鄰結果完成請求，沒有結果時回報原來的錯誤
+     * 直接輸入文字沒有情緒向量，不做後備
+     */
+    private void fallBackOrDeliverError(RecommendationQuery query, RecommendationFlight flight, Throwable throwable) {
+        if (offlineRecommender == null || query.getEmotionInput() == null || flight.isCancelled()) {
+            deliverError(flight, throwable);
+            return;
+        }
+        CompletableFuture.supplyAsync(() -> offlineRecommender.recommend(query.getEmotionInput(), MAX_SONGS),
+                executorService).whenComplete((musicItems, error) -> {
+            if (musicItems != null && !musicItems.isEmpty()) {
+                Log.d(TAG, "線上推薦失敗，改用離線推薦: " + musicItems.size() + " 首");
+                // 因配額不足而降級時仍帶上恢復時間，調用方照常冷卻
+                RateLimitException quotaError = findRateLimit(throwable);
+                flight.onOfflineComplete(musicItems, quotaError != null ? quotaError.getRetryAfterMs() : 0);
+            } else {
+                deliverError(flight, throwable);
+            }
+        });
+    }
 
-                // 解析 JSON 數組
-                Type listType = new TypeToken<List<GeminiSong>>(){}.getType();
-                return gson.fromJson(responseText, listType);
+    /**
+     * 記錄用戶播放的歌曲及產生它的情緒輸入（供離線推薦）
+     * @param emotionInput 產生當前歌單的情緒輸入，直接輸入模式時為 null（不記錄）
+     */
+    public void recordPlayed(EmotionInput emotionInput, MusicItem item) {
+        if (offlineRecommender != null && emotionInput != null && isValidItem(item)) {
+            executorService.execute(() ->
+                    offlineRecommender.record(emotionInput, item, TrackEmotionEntity.SOURCE_PLAYED));
+        }
+    }
+
+    /**
+     * 將一次性回調包裝為漸進式回調（忽略中間結果）
+     */
+    private static ProgressiveMusicCallback asProgressive(MusicRepositoryCallback callback) {
+        return new ProgressiveMusicCallback() {
+            @Override
+            public void onItemResolved(MusicItem item, int slot) {
             }
-        } else {
-            int errorCode = response.code();
-            Log.e("apiError", "Gemini API 請求失敗: " + errorCode);
-            String errorDetail = "";
-            if (response.errorBody() != null) {
-                errorDetail = response.errorBody().string();
-                Log.e("apiError", "錯誤詳情: " + errorDetail);
+
+            @Override
+            public void onComplete(List<MusicItem> musicItems) {
+                callback.onSuccess(musicItems);
             }
-            // 檢測限流錯誤（429 或包含 quota/rate limit 關鍵字）
-            if (errorCode == 429 || errorDetail.contains("quota") || errorDetail.contains("RATE_LIMIT") ||
-                errorDetail.contains("rate limit") || errorDetail.contains("Resource has been exhausted")) {
-                throw new RateLimitException("API request limit reached");
+
+            @Override
+            public void onError(String errorMessage) {
+                callback.onError(errorMessage);
             }
+        };
+    }
+
+    /**
+     * LLM 階段（串流）：調用 Gemini streamGenerateContent，逐段回調生成的文本
+     * 串流在 OkHttp 的回調線程上讀取，不佔用倉庫線程池
+     */
+    private CompletableFuture<Void> streamGeminiText(String prompt, GeminiStreamReader.TextChunkListener listener,
+                                                     FirstNCollector collector) {
+        RateLimitException quotaError = reserveGeminiQuota();
+        if (quotaError != null) {
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(quotaError);
+            return failed;
         }
+        GeminiRequest request = GeminiRequest.forSongList(prompt, MAX_CANDIDATES,
+                OUTPUT_BUDGET.maxOutputTokens(MAX_CANDIDATES));
+
+        Call<ResponseBody> call = geminiApiService
+                .streamGenerateContent(BuildConfig.GEMINI_API_KEY, "sse", request);
+        // 湊滿結果後不再需要剩餘的生成內容
+        collector.track(call);
+        // 只重試建立串流之前的失敗，串流開始後的中斷不重試（已派發的搜索無法回退）
+        return RetryPolicy.DEFAULT.execute(call, collector.getDeadline(), collector::track).thenAccept(response -> {
+            try {
+                if (response.isSuccessful() && response.body() != null) {
+                    // 最後一個事件帶有 finishReason 和用量；PARSE 階段在讀取線程上同步執行，此時歌曲已全部解析
+                    GeminiResponse last = streamReader.read(response.body(), listener);
+                    OUTPUT_BUDGET.record(last, collector.getParsedCount());
+                } else {
+                    handleGeminiError(response, TAG);
+                }
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
 
-        return null;
+    /**
+     * 設置是否啟用「M 選 N」完成模式
+     * 啟用時搜索全部候選（最多 MAX_CANDIDATES 首），最快湊滿 MAX_SONGS 首即返回
+     */
+    public void setFirstNCompletionEnabled(boolean enabled) {
+        // 關閉時候選上限等於 MAX_SONGS，即等待全部搜索結束
+        int maxCandidates = enabled ? MAX_CANDIDATES : MAX_SONGS;
+        streamingProcessor.setMaxCandidates(maxCandidates);
+        responseProcessor.setMaxCandidates(maxCandidates);
+    }
+
+    /**
+     * 設置是否啟用 Spotify 搜索對沖
+     */
+    public void setHedgingEnabled(boolean enabled) {
+        this.hedgingEnabled = enabled;
+    }
+
+    /**
+     * Spotify 搜索的對沖策略（用於查看延遲分位數和對沖次數）
+     */
+    public static HedgingPolicy getSearchHedging() {
+        return SEARCH_HEDGING;
+    }
+
+    /**
+     * Gemini 輸出 token 上限（用於查看測量到的用量和截斷次數）
+     */
+    public static GeminiOutputBudget getOutputBudget() {
+        return OUTPUT_BUDGET;
+    }
+
+    /**
+     * 推薦流水線指定階段的耗時統計（串流和一次性回應合計）
+     */
+    public MusicRecommendationProcessor.StageMetrics getStageMetrics(MusicRecommendationProcessor.Stage stage) {
+        return streamingProcessor.getMetrics(stage);
     }
 
     /**
      * 釋放資源
+     * 取消所有進行中的請求（包括其他調用方共用的請求），再關閉線程池
      */
     public void shutdown() {
+        for (RecommendationFlight flight : inFlightRequests.values()) {
+            flight.cancel();
+        }
         if (executorService != null && !executorService.isShutdown()) {
             executorService.shutdown();
         }
@@ -337,4 +727,43 @@ public class MusicRepository {
         void onSuccess(List<MusicItem> musicItems);
         void onError(String errorMessage);
     }
+
+    /**
+     * 漸進式回調接口
+     * 回調在後台線程執行，調用方需自行切換到主線程
+     */
+    public interface ProgressiveMusicCallback {
+        /**
+         * 單首歌曲解析完成（完成順序不固定）
+         * @param item 解析出的歌曲
+         * @param slot 該歌曲在 Gemini 推薦中的排名，用於保持最終順序穩定
+         */
+        void onItemResolved(MusicItem item, int slot);
+
+        /**
+         * 全部完成，列表按 slot 升序排列
+         */
+        void onComplete(List<MusicItem> musicItems);
+
+        void onError(String errorMessage);
+
+        /**
+         * Gemini 配額不足（本地預算耗盡或伺服器限流），請求沒有結果
+         * 默認按普通錯誤處理
+         * @param retryAfterMs 距離下一次可用的時間（毫秒），0 表示未知
+         */
+        default void onQuotaExhausted(long retryAfterMs) {
+            onError("API request limit reached");
+        }
+
+        /**
+         * 線上推薦失敗（配額不足、網絡不可用等），改以本地收藏和播放記錄的近鄰結果完成
+         * 默認按 onComplete 處理
+         * @param musicItems 按情緒距離排序的歌曲
+         * @param retryAfterMs 因配額不足而降級時距離下一次可用的時間（毫秒），否則為 0
+         */
+        default void onOfflineComplete(List<MusicItem> musicItems, long retryAfterMs) {
+            onComplete(musicItems);
+        }
+    }
 }
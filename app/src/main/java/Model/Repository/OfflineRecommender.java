@@ -0,0 +1,394 @@
+package Model.Repository;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import Model.Dao.FavoriteDao;
+import Model.Dao.RecommendationHistoryDao;
+import Model.Dao.TrackEmotionDao;
+import Model.Database.AppDatabase;
+import Model.Entity.RecommendationHistoryEntity;
+import Model.Entity.TrackEmotionEntity;
+import Model.POJO.EmotionInput;
+import Model.POJO.MusicItem;
+
+/**
+ * 離線推薦（本地近鄰查詢）
+ * 記錄用戶在哪個情緒向量下收藏或播放了哪些歌，以及過去每次情緒推薦得到的歌單，新的情緒輸入到來時，
+ * 在 5 維情緒空間中找出距離最近的 k 首歌。全部在內存中計算，不發出任何網絡請求，
+ * 作為 Gemini 限流或網絡不可用時的後備。
+ * 索引首次使用時從 Room 載入，之後的記錄同時寫入內存和 Room。
+ * 收藏以 favorites 表為準：載入時丟棄已取消的收藏，並為沒有收藏記錄的收藏歌曲
+ * 補上它被播放時的情緒向量（從未在推薦中播放過的收藏沒有情緒向量，無法加入索引）。
+ * 推薦歷史只是「推薦過」而非「喜歡」，權重最低；它已保存在推薦歷史表中，載入時讀取，不重複寫入。
+ * 所有方法都可能訪問數據庫，必須在後台線程調用
+ */
+public class OfflineRecommender {
+
+    private static final String TAG = "OfflineRecommender";
+
+    // 索引保留的記錄數，線性掃描 2000 個 5 維向量只需亞毫秒
+    private static final int MAX_POINTS = 2000;
+    // 收藏比播放更能代表喜好，距離按此係數縮短
+    private static final double FAVORITE_DISTANCE_WEIGHT = 0.8;
+    // 推薦過但未必播放，距離按此係數拉長
+    private static final double RECOMMENDED_DISTANCE_WEIGHT = 1.25;
+    // 載入的推薦歷史次數（與推薦歷史的保留上限相同）
+    private static final int HISTORY_SESSIONS = 200;
+
+    private static volatile OfflineRecommender instance;
+
+    private final TrackEmotionDao dao;
+    private final FavoriteDao favoriteDao;
+    private final RecommendationHistoryDao historyDao;
+    // 按記錄時間升序排列，只在 synchronized 中訪問
+    private final List<TrackEmotionEntity> points = new ArrayList<>();
+    // 推薦歷史中的歌曲，按推薦時間升序排列
+    private final List<TrackEmotionEntity> recommended = new ArrayList<>();
+    private boolean loaded = false;
+
+    /**
+     * @param dao 持久化層，為 null 時只使用內存索引
+     */
+    public OfflineRecommender(TrackEmotionDao dao) {
+        this(dao, null, null);
+    }
+
+    /**
+     * @param dao 持久化層，為 null 時只使用內存索引
+     * @param favoriteDao 收藏表，載入索引時與它對齊；為 null 時不對齊
+     * @param historyDao 推薦歷史，載入索引時讀取；為 null 時不使用推薦歷史
+     */
+    public OfflineRecommender(TrackEmotionDao dao, FavoriteDao favoriteDao, RecommendationHistoryDao historyDao) {
+        this.dao = dao;
+        this.favoriteDao = favoriteDao;
+        this.historyDao = historyDao;
+    }
+
+    /**
+     * 獲取單例實例
+     */
+    public static OfflineRecommender getInstance(Context context) {
+        if (instance == null) {
+            synchronized (OfflineRecommender.class) {
+                if (instance == null) {
+                    AppDatabase database = AppDatabase.getInstance(context);
+                    instance = new OfflineRecommender(database.trackEmotionDao(), database.favoriteDao(),
+                            database.recommendationHistoryDao());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 預先載入索引，避免第一次後備推薦時才讀取數據庫
+     */
+    public synchronized void warmUp() {
+        ensureLoaded();
+    }
+
+    /**
+     * 記錄一首歌與產生它的情緒向量
+     * @param source TrackEmotionEntity.SOURCE_FAVORITE 或 SOURCE_PLAYED
+     */
+    public synchronized void record(EmotionInput emotionInput, MusicItem item, int source) {
+        if (emotionInput == null || !MusicRepository.isValidItem(item)) {
+            return;
+        }
+        ensureLoaded();
+        addPoint(TrackEmotionEntity.create(emotionInput, item, source, System.currentTimeMillis()));
+    }
+
+    /**
+     * 記錄一首新收藏的歌
+     * @param emotionInput 收藏時所在歌單的情緒輸入；不知道時（例如在播放器或收藏列表中收藏）
+     *                     使用這首歌最近一次播放時的情緒向量，兩者都沒有則不記錄
+     */
+    public synchronized void recordFavorite(MusicItem item, EmotionInput emotionInput) {
+        if (!MusicRepository.isValidItem(item)) {
+            return;
+        }
+        ensureLoaded();
+        if (emotionInput == null) {
+            TrackEmotionEntity played = findPoint(item.getSpotifyTrackId(), TrackEmotionEntity.SOURCE_PLAYED);
+            if (played == null) {
+                return;
+            }
+            emotionInput = emotionOf(played);
+        }
+        addPoint(TrackEmotionEntity.create(emotionInput, item, TrackEmotionEntity.SOURCE_FAVORITE,
+                System.currentTimeMillis()));
+    }
+
+    /**
+     * 記錄一次情緒推薦得到的歌單（推薦歷史寫入後調用）
+     */
+    public synchronized void recordRecommended(EmotionInput emotionInput, List<MusicItem> items) {
+        if (emotionInput == null || items == null) {
+            return;
+        }
+        ensureLoaded();
+        long now = System.currentTimeMillis();
+        for (MusicItem item : items) {
+            if (MusicRepository.isValidItem(item)) {
+                addRecommended(TrackEmotionEntity.create(emotionInput, item, TrackEmotionEntity.SOURCE_RECOMMENDED,
+                        now));
+            }
+        }
+    }
+
+    /**
+     * 刪除一條記錄（例如取消收藏）
+     */
+    public synchronized void forget(String trackId, int source) {
+        if (trackId == null) {
+            return;
+        }
+        ensureLoaded();
+        removePoint(trackId, source);
+        if (dao != null) {
+            try {
+                dao.delete(trackId, source);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "刪除情緒記錄失敗: " + trackId, e);
+            }
+        }
+    }
+
+    /**
+     * k 近鄰查詢
+     * 同一首歌有多條記錄時取最近的一條
+     * @return 按距離升序排列的歌曲（最多 k 首），沒有記錄時為空列表
+     */
+    public synchronized List<MusicItem> recommend(EmotionInput emotionInput, int k) {
+        ensureLoaded();
+        Map<String, Neighbour> nearest = new HashMap<>();
+        addNearest(nearest, emotionInput, points);
+        addNearest(nearest, emotionInput, recommended);
+
+        // 大小為 k 的最大堆，堆頂是目前第 k 近的歌
+        PriorityQueue<Neighbour> heap = new PriorityQueue<>(Math.max(1, k),
+                (a, b) -> Double.compare(b.distance, a.distance));
+        for (Neighbour neighbour : nearest.values()) {
+            if (heap.size() < k) {
+                heap.add(neighbour);
+            } else if (k > 0 && neighbour.distance < heap.peek().distance) {
+                heap.poll();
+                heap.add(neighbour);
+            }
+        }
+
+        List<Neighbour> sorted = new ArrayList<>(heap);
+        Collections.sort(sorted, (a, b) -> Double.compare(a.distance, b.distance));
+        List<MusicItem> items = new ArrayList<>(sorted.size());
+        for (Neighbour neighbour : sorted) {
+            // 每次返回新對象，播放狀態等可變字段不會與索引共享
+            items.add(neighbour.point.toMusicItem());
+        }
+        return items;
+    }
+
+    /**
+     * 索引中的記錄數
+     */
+    public synchronized int size() {
+        ensureLoaded();
+        return points.size() + recommended.size();
+    }
+
+    private static void addNearest(Map<String, Neighbour> nearest, EmotionInput emotionInput,
+                                   List<TrackEmotionEntity> candidates) {
+        for (TrackEmotionEntity point : candidates) {
+            double distance = distance(emotionInput, point);
+            Neighbour current = nearest.get(point.getTrackId());
+            if (current == null || distance < current.distance) {
+                nearest.put(point.getTrackId(), new Neighbour(point, distance));
+            }
+        }
+    }
+
+    /**
+     * 加權歐氏距離
+     */
+    private static double distance(EmotionInput input, TrackEmotionEntity point) {
+        double dh = input.getHappy() - point.getHappy();
+        double ds = input.getSad() - point.getSad();
+        double da = input.getAngry() - point.getAngry();
+        double dd = input.getDisgust() - point.getDisgust();
+        double df = input.getFear() - point.getFear();
+        double distance = Math.sqrt(dh * dh + ds * ds + da * da + dd * dd + df * df);
+        switch (point.getSource()) {
+            case TrackEmotionEntity.SOURCE_FAVORITE:
+                return distance * FAVORITE_DISTANCE_WEIGHT;
+            case TrackEmotionEntity.SOURCE_RECOMMENDED:
+                return distance * RECOMMENDED_DISTANCE_WEIGHT;
+            default:
+                return distance;
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (dao != null) {
+            try {
+                List<TrackEmotionEntity> recent = dao.getRecentSync(MAX_POINTS);
+                // 數據庫按時間倒序返回，索引按時間升序保存
+                for (int i = recent.size() - 1; i >= 0; i--) {
+                    points.add(recent.get(i));
+                }
+                Log.d(TAG, "載入 " + points.size() + " 條情緒記錄");
+            } catch (RuntimeException e) {
+                Log.e(TAG, "載入情緒記錄失敗", e);
+            }
+        }
+        syncFavorites();
+        loadHistory();
+    }
+
+    /**
+     * 載入最近的情緒推薦歷史（直接輸入的推薦沒有情緒向量，略過）
+     */
+    private void loadHistory() {
+        if (historyDao == null) {
+            return;
+        }
+        try {
+            Map<Long, RecommendationHistoryEntity> sessions = new HashMap<>();
+            List<Long> ids = new ArrayList<>();
+            for (RecommendationHistoryEntity row : historyDao.getFirstPage(HISTORY_SESSIONS)) {
+                if (row.toEmotionInput() != null) {
+                    sessions.put(row.getId(), row);
+                    ids.add(row.getId());
+                }
+            }
+            if (ids.isEmpty()) {
+                return;
+            }
+            List<TrackEmotionEntity> loaded = new ArrayList<>();
+            for (RecommendationHistoryDao.HistoryTrackRow trackRow : historyDao.getTracks(ids)) {
+                RecommendationHistoryEntity session = sessions.get(trackRow.historyId);
+                loaded.add(TrackEmotionEntity.create(session.toEmotionInput(), trackRow.track.toMusicItem(),
+                        TrackEmotionEntity.SOURCE_RECOMMENDED, session.getCreatedTimestamp()));
+            }
+            Collections.sort(loaded, (a, b) -> Long.compare(a.getTimestamp(), b.getTimestamp()));
+            for (TrackEmotionEntity point : loaded) {
+                addRecommended(point);
+            }
+            Log.d(TAG, "載入 " + ids.size() + " 次推薦歷史");
+        } catch (RuntimeException e) {
+            Log.e(TAG, "載入推薦歷史失敗", e);
+        }
+    }
+
+    private void addRecommended(TrackEmotionEntity point) {
+        recommended.add(point);
+        if (recommended.size() > MAX_POINTS) {
+            recommended.remove(0);
+        }
+    }
+
+    /**
+     * 與收藏表對齊：在其他頁面取消的收藏不再以收藏權重推薦，
+     * 在其他頁面或本功能之前加入的收藏以播放時的情緒向量補上
+     */
+    private void syncFavorites() {
+        if (favoriteDao == null) {
+            return;
+        }
+        Set<String> favorites;
+        try {
+            favorites = new HashSet<>(favoriteDao.getAllTrackIdsSync());
+        } catch (RuntimeException e) {
+            Log.e(TAG, "讀取收藏失敗", e);
+            return;
+        }
+        Set<String> indexed = new HashSet<>();
+        for (int i = points.size() - 1; i >= 0; i--) {
+            TrackEmotionEntity point = points.get(i);
+            if (point.getSource() != TrackEmotionEntity.SOURCE_FAVORITE) {
+                continue;
+            }
+            if (favorites.contains(point.getTrackId())) {
+                indexed.add(point.getTrackId());
+            } else {
+                forget(point.getTrackId(), TrackEmotionEntity.SOURCE_FAVORITE);
+            }
+        }
+        for (String trackId : favorites) {
+            if (indexed.contains(trackId)) {
+                continue;
+            }
+            TrackEmotionEntity played = findPoint(trackId, TrackEmotionEntity.SOURCE_PLAYED);
+            if (played != null) {
+                addPoint(TrackEmotionEntity.create(emotionOf(played), played.toMusicItem(),
+                        TrackEmotionEntity.SOURCE_FAVORITE, System.currentTimeMillis()));
+            }
+        }
+    }
+
+    private void addPoint(TrackEmotionEntity entity) {
+        removePoint(entity.getTrackId(), entity.getSource());
+        points.add(entity);
+        if (points.size() > MAX_POINTS) {
+            points.remove(0);
+        }
+
+        if (dao != null) {
+            try {
+                dao.insert(entity);
+                dao.trimToSize(MAX_POINTS);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "寫入情緒記錄失敗: " + entity.getTrackId(), e);
+            }
+        }
+    }
+
+    private TrackEmotionEntity findPoint(String trackId, int source) {
+        for (int i = points.size() - 1; i >= 0; i--) {
+            TrackEmotionEntity point = points.get(i);
+            if (point.getSource() == source && point.getTrackId().equals(trackId)) {
+                return point;
+            }
+        }
+        return null;
+    }
+
+    private static EmotionInput emotionOf(TrackEmotionEntity point) {
+        return new EmotionInput(point.getHappy(), point.getSad(), point.getAngry(), point.getDisgust(), point.getFear());
+    }
+
+    private void removePoint(String trackId, int source) {
+        for (int i = points.size() - 1; i >= 0; i--) {
+            TrackEmotionEntity point = points.get(i);
+            if (point.getSource() == source && point.getTrackId().equals(trackId)) {
+                points.remove(i);
+            }
+        }
+    }
+
+    /**
+     * 查詢時的候選
+     */
+    private static final class Neighbour {
+        final TrackEmotionEntity point;
+        final double distance;
+
+        Neighbour(TrackEmotionEntity point, double distance) {
+            this.point = point;
+            this.distance = distance;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package Model.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+import Model.Api.Deadline;
+import Model.POJO.MusicItem;
+import retrofit2.Call;
+
+/**
+ * 一次進行中的推薦請求（single-flight）
+ * 相同 key 的並發調用共用同一條 Gemini + Spotify 流水線，
+ * 流水線的回調由本類廣播給所有訂閱者；中途加入的訂閱者會先收到已解析的歌曲。
+ * 以引用計數管理取消：最後一個訂閱者取消時，取消流水線發出的所有 Retrofit 請求
+ */
+class RecommendationFlight implements MusicRepository.ProgressiveMusicCallback {
+
+    private final List<MusicRepository.ProgressiveMusicCallback> subscribers = new ArrayList<>();
+    private final TreeMap<Integer, MusicItem> resolved = new TreeMap<>();
+    private final CompletableFuture<List<MusicItem>> result = new CompletableFuture<>();
+    private final List<Call<?>> trackedCalls = new ArrayList<>();
+    private final Deadline deadline;
+
+    private boolean finished = false;
+    private boolean cancelled = false;
+
+    /**
+     * @param deadline 整條流水線的時間預算，中途加入的訂閱者共用
+     */
+    RecommendationFlight(MusicRepository.ProgressiveMusicCallback firstSubscriber, Deadline deadline) {
+        subscribers.add(firstSubscriber);
+        this.deadline = deadline;
+    }
+
+    Deadline getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * 加入這次請求
+     * @return false 表示請求已結束，調用方需要發起新的請求
+     */
+    synchronized boolean subscribe(MusicRepository.ProgressiveMusicCallback subscriber) {
+        if (finished) {
+            return false;
+        }
+        for (Map.Entry<Integer, MusicItem> entry : resolved.entrySet()) {
+            subscriber.onItemResolved(entry.getValue(), entry.getKey());
+        }
+        subscribers.add(subscriber);
+        return true;
+    }
+
+    /**
+     * 退出這次請求，之後不再收到任何回調
+     * 沒有剩餘訂閱者時取消整條流水線
+     */
+    synchronized void unsubscribe(MusicRepository.ProgressiveMusicCallback subscriber) {
+        subscribers.remove(subscriber);
+        if (subscribers.isEmpty() && !finished) {
+            cancel();
+        }
+    }
+
+    /**
+     * 取消流水線：取消所有已登記的請求，之後登記的請求會被立即取消
+     */
+    synchronized void cancel() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        cancelled = true;
+        subscribers.clear();
+        for (Call<?> call : trackedCalls) {
+            call.cancel();
+        }
+        trackedCalls.clear();
+        result.completeExceptionally(new CancellationException("推薦請求已取消"));
+    }
+
+    /**
+     * 登記流水線發出的請求（Gemini 和每個 Spotify 搜索），取消時統一取消
+     * 如果已經取消，立即取消
+     */
+    synchronized void track(Call<?> call) {
+        if (cancelled) {
+            call.cancel();
+        } else if (!finished) {
+            trackedCalls.add(call);
+        }
+    }
+
+    synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 共用的結果，流水線結束時完成（失敗時以異常完成）
+     */
+    CompletableFuture<List<MusicItem>> getResult() {
+        return result;
+    }
+
+    @Override
+    public synchronized void onItemResolved(MusicItem item, int slot) {
+        if (finished) {
+            return;
+        }
+        resolved.put(slot, item);
+        for (MusicRepository.ProgressiveMusicCallback subscriber : subscribers) {
+            subscriber.onItemResolved(item, slot);
+        }
+    }
+
+    @Override
+    public synchronized void onComplete(List<MusicItem> musicItems) {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        trackedCalls.clear();
+        for (MusicRepository.ProgressiveMusicCallback subscriber : subscribers) {
+            // 每個訂閱者拿到獨立的列表，互不影響
+            subscriber.onComplete(new ArrayList<>(musicItems));
+        }
+        result.complete(musicItems);
+    }
+
+    @Override
+    public synchronized void onOfflineComplete(List<MusicItem> musicItems, long retryAfterMs) {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        trackedCalls.clear();
+        for (MusicRepository.ProgressiveMusicCallback subscriber : subscribers) {
+            subscriber.onOfflineComplete(new ArrayList<>(musicItems), retryAfterMs);
+        }
+        result.complete(musicItems);
+    }
+
+    @Override
+    public synchronized void onError(String errorMessage) {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        trackedCalls.clear();
+        for (MusicRepository.ProgressiveMusicCallback subscriber : subscribers) {
+            subscriber.onError(errorMessage);
+        }
+        result.completeExceptionally(new RuntimeException(errorMessage));
+    }
+
+    @Override
+    public synchronized void onQuotaExhausted(long retryAfterMs) {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        trackedCalls.clear();
+        for (MusicRepository.ProgressiveMusicCallback subscriber : subscribers) {
+            subscriber.onQuotaExhausted(retryAfterMs);
+        }
+        result.completeExceptionally(new MusicRepository.RateLimitException("API request limit reached", retryAfterMs));
+    }
+}
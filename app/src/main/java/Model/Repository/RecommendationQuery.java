@@ -0,0 +1,55 @@
+package Model.Repository;
+
+import Model.POJO.EmotionInput;
+
+/**
+ * 一次推薦的輸入
+ * 情緒數值和直接輸入的文字二選一，兩種入口經過同一條推薦流水線
+ */
+final class RecommendationQuery {
+
+    private final EmotionInput emotionInput;
+    private final String emotionText;
+    private final String accessToken;
+
+    private RecommendationQuery(EmotionInput emotionInput, String emotionText, String accessToken) {
+        this.emotionInput = emotionInput;
+        this.emotionText = emotionText;
+        this.accessToken = accessToken;
+    }
+
+    /**
+     * 根據情緒數值推薦
+     */
+    static RecommendationQuery forEmotion(EmotionInput emotionInput, String accessToken) {
+        return new RecommendationQuery(emotionInput, null, accessToken);
+    }
+
+    /**
+     * 根據用戶直接輸入的情緒文字推薦
+     */
+    static RecommendationQuery forText(String emotionText, String accessToken) {
+        return new RecommendationQuery(null, emotionText, accessToken);
+    }
+
+    /**
+     * 情緒數值，直接輸入模式時為 null
+     */
+    EmotionInput getEmotionInput() {
+        return emotionInput;
+    }
+
+    /**
+     * 直接輸入的情緒文字，情緒數值模式時為 null
+     */
+    String getEmotionText() {
+        return emotionText;
+    }
+
+    /**
+     * Spotify Access Token
+     */
+    String getAccessToken() {
+        return accessToken;
+    }
+}
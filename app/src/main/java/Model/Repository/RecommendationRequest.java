@@ -0,0 +1,33 @@
+package Model.Repository;
+
+/**
+ * 推薦請求的句柄
+ * 調用 cancel() 後不再收到回調；如果沒有其他調用方共用同一請求，
+ * 會一併取消 Gemini 請求和所有 Spotify 搜索
+ */
+public class RecommendationRequest {
+
+    private final RecommendationFlight flight;
+    private final MusicRepository.ProgressiveMusicCallback subscriber;
+    private volatile boolean cancelled = false;
+
+    RecommendationRequest(RecommendationFlight flight, MusicRepository.ProgressiveMusicCallback subscriber) {
+        this.flight = flight;
+        this.subscriber = subscriber;
+    }
+
+    /**
+     * 取消請求（重複調用無副作用）
+     */
+    public void cancel() {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
+        flight.unsubscribe(subscriber);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
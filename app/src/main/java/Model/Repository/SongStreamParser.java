@@ -0,0 +1,130 @@
+package Model.Repository;
+
+import android.util.Log;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+
+import java.io.IOException;
+
+import Model.POJO.GeminiSong;
+
+/**
+ * Gemini 歌曲 JSON 陣列的增量解析器
+ * 文本片段可以在任意位置被切開（包括字串和轉義符中間），
+ * 每當一個頂層物件的右大括號到達，立即解析成 GeminiSong 並回調，
+ * 不必等待整個陣列生成完畢。
+ * 物件以預先建立的 TypeAdapter 解析，不會每首歌都重新查找反射適配器
+ */
+class SongStreamParser implements MusicRecommendationProcessor.ParseStage.Parser {
+
+    private static final String TAG = "SongStreamParser";
+
+    private final TypeAdapter<GeminiSong> songAdapter;
+    private final SongListener listener;
+    private final StringBuilder objectBuffer = new StringBuilder();
+
+    private boolean arrayStarted = false;   // 是否已遇到 '['（之前的 Markdown 標記等會被略過）
+    private boolean arrayClosed = false;    // 是否已遇到頂層 ']'
+    private boolean inString = false;
+    private boolean escaped = false;
+    private int depth = 0;                  // 陣列內的嵌套深度，0 表示位於元素之間
+    private int emittedCount = 0;
+
+    SongStreamParser(TypeAdapter<GeminiSong> songAdapter, SongListener listener) {
+        this.songAdapter = songAdapter;
+        this.listener = listener;
+    }
+
+    /**
+     * 餵入一段文本
+     */
+    @Override
+    public void feed(CharSequence chunk) {
+        for (int i = 0; i < chunk.length() && !arrayClosed; i++) {
+            char c = chunk.charAt(i);
+
+            if (!arrayStarted) {
+                if (c == '[') {
+                    arrayStarted = true;
+                }
+                continue;
+            }
+
+            if (depth == 0) {
+                if (c == '{') {
+                    depth = 1;
+                    objectBuffer.setLength(0);
+                    objectBuffer.append(c);
+                } else if (c == ']') {
+                    arrayClosed = true;
+                }
+                // 元素之間的逗號和空白直接略過
+                continue;
+            }
+
+            objectBuffer.append(c);
+
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+
+            if (c == '"') {
+                inString = true;
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+                if (depth == 0) {
+                    emit();
+                }
+            }
+        }
+    }
+
+    private void emit() {
+        String json = objectBuffer.toString();
+        objectBuffer.setLength(0);
+        try {
+            GeminiSong song = songAdapter.fromJson(json);
+            if (song != null) {
+                listener.onSong(song, emittedCount++);
+            }
+        } catch (IOException | JsonParseException e) {
+            // 單個物件損壞不影響其餘歌曲
+            Log.w(TAG, "略過無法解析的歌曲物件: " + json);
+        }
+    }
+
+    /**
+     * 已解析出的歌曲數量
+     */
+    int getEmittedCount() {
+        return emittedCount;
+    }
+
+    /**
+     * 是否已讀到陣列結尾
+     */
+    boolean isComplete() {
+        return arrayClosed;
+    }
+
+    /**
+     * 歌曲解析回調
+     */
+    interface SongListener {
+        /**
+         * @param song 解析出的歌曲
+         * @param index 該歌曲在 Gemini 回應中的排名（從 0 開始）
+         */
+        void onSong(GeminiSong song, int index);
+    }
+}
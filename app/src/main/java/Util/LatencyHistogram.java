@@ -0,0 +1,58 @@
+package Util;
+
+import java.util.Arrays;
+
+/**
+ * 滾動延遲直方圖
+ * 只保留最近 capacity 個樣本（環形緩衝區），用於計算近期的延遲分位數
+ * 功能：
+ * - 記錄單次請求耗時（毫秒）
+ * - 查詢任意分位數（例如 p50 / p90 / p99）
+ * 所有方法線程安全
+ */
+public class LatencyHistogram {
+
+    private final long[] samples;
+    private int count;      // 已記錄的樣本數（最多 capacity）
+    private int next;       // 下一個寫入位置
+
+    /**
+     * @param capacity 保留的最近樣本數
+     */
+    public LatencyHistogram(int capacity) {
+        this.samples = new long[Math.max(1, capacity)];
+    }
+
+    /**
+     * 記錄一個樣本
+     */
+    public synchronized void record(long latencyMs) {
+        samples[next] = latencyMs;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+    }
+
+    /**
+     * 計算分位數（最近鄰法）
+     * @param quantile 0 到 1 之間，例如 0.9 表示 p90
+     * @return 分位數對應的延遲（毫秒），沒有樣本時返回 -1
+     */
+    public synchronized long percentile(double quantile) {
+        if (count == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(quantile * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+
+    /**
+     * 當前保留的樣本數
+     */
+    public synchronized int getCount() {
+        return count;
+    }
+}
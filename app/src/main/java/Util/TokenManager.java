@@ -7,7 +7,11 @@ import android.content.SharedPreferences;
  * 管理 Spotify Token 和用戶資訊的存儲
  * 使用 SharedPreferences 進行本地持久化存儲
  */
-public class TokenManager {
+public class TokenManager implements TokenStore {
+
+    // 過期前預留的緩衝時間：剩餘有效期少於此值時視為需要刷新
+    public static final long EXPIRY_MARGIN_MS = 5 * 60 * 1000;
+
     private static final String PREF_NAME = "spotify_auth";
     private static final String KEY_ACCESS_TOKEN = "access_token";
     private static final String KEY_REFRESH_TOKEN = "refresh_token";
@@ -33,6 +37,7 @@ public class TokenManager {
     /**
      * 獲取 Access Token
      */
+    @Override
     public String getAccessToken() {
         return prefs.getString(KEY_ACCESS_TOKEN, null);
     }
@@ -47,6 +52,7 @@ public class TokenManager {
     /**
      * 獲取 Refresh Token
      */
+    @Override
     public String getRefreshToken() {
         return prefs.getString(KEY_REFRESH_TOKEN, null);
     }
@@ -61,10 +67,25 @@ public class TokenManager {
     /**
      * 獲取 Token 過期時間
      */
+    @Override
     public long getTokenExpiry() {
         return prefs.getLong(KEY_TOKEN_EXPIRY, 0);
     }
 
+    /**
+     * 一次寫入刷新後的 Token 和過期時間
+     */
+    @Override
+    public void saveTokens(String accessToken, String refreshToken, long expiryTimeMillis) {
+        SharedPreferences.Editor editor = prefs.edit()
+                .putString(KEY_ACCESS_TOKEN, accessToken)
+                .putLong(KEY_TOKEN_EXPIRY, expiryTimeMillis);
+        if (refreshToken != null) {
+            editor.putString(KEY_REFRESH_TOKEN, refreshToken);
+        }
+        editor.apply();
+    }
+
     /**
      * 保存用戶資訊
      */
@@ -107,7 +128,7 @@ public class TokenManager {
 
     /**
      * 檢查用戶是否已登入
-     * 判斷條件：有 Access Token 且未過期
+     * 判斷條件：有 Access Token 且未過期，或已過期但可以用 Refresh Token 刷新
      */
     public boolean isLoggedIn() {
         String token = getAccessToken();
@@ -117,7 +138,9 @@ public class TokenManager {
         // 檢查 Token 是否過期（預留 5 分鐘緩衝）
         long expiry = getTokenExpiry();
         if (expiry > 0) {
-            return System.currentTimeMillis() < (expiry - 5 * 60 * 1000);
+            String refreshToken = getRefreshToken();
+            return System.currentTimeMillis() < (expiry - EXPIRY_MARGIN_MS)
+                    || (refreshToken != null && !refreshToken.isEmpty());
         }
         // 如果沒有設置過期時間，只檢查 token 是否存在
         return true;
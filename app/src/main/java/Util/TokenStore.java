@@ -0,0 +1,29 @@
+package Util;
+
+/**
+ * Spotify Token 的存儲接口
+ * 刷新邏輯只依賴這個接口，生產環境由 TokenManager（SharedPreferences）實現，測試時使用內存實現
+ */
+public interface TokenStore {
+
+    /**
+     * 當前的 Access Token，未登入時為 null
+     */
+    String getAccessToken();
+
+    /**
+     * Refresh Token，沒有時為 null
+     */
+    String getRefreshToken();
+
+    /**
+     * Access Token 的過期時間（毫秒時間戳），未知時為 0
+     */
+    long getTokenExpiry();
+
+    /**
+     * 保存刷新後的 Token
+     * @param refreshToken 伺服器返回了新的 Refresh Token 時傳入，否則為 null（保留原值）
+     */
+    void saveTokens(String accessToken, String refreshToken, long expiryTimeMillis);
+}
@@ -0,0 +1,22 @@
+package View;
+
+import android.app.Application;
+
+import Model.Api.ApiClient;
+import Model.Api.NetworkWarmup;
+
+/**
+ * 應用入口
+ * 進程啟動時只執行一次，無論從哪個 Activity、Service 或通知進入都會先完成網絡棧初始化
+ */
+public class GraduationApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // 磁盤緩存和 Spotify Token 刷新（主動刷新 + 401 重試）
+        ApiClient.init(this);
+        // 在第一個 Activity inflate 佈局的同時預先建立到各 API 主機的連接
+        NetworkWarmup.warmUp();
+    }
+}
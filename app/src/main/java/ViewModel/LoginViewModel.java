@@ -10,9 +10,10 @@ import androidx.lifecycle.MutableLiveData;
 
 import com.example.graduationproject.BuildConfig;
 import com.example.graduationproject.R;
+import Model.Api.ApiClient;
+import Model.Api.SpotifyApiService;
 import Model.POJO.SpotifyUser;
 import Util.TokenManager;
-import com.google.gson.Gson;
 
 import net.openid.appauth.AuthorizationRequest;
 import net.openid.appauth.AuthorizationResponse;
@@ -20,18 +21,13 @@ import net.openid.appauth.AuthorizationService;
 import net.openid.appauth.AuthorizationServiceConfiguration;
 import net.openid.appauth.ResponseTypeValues;
 
-import java.io.IOException;
-
-import okhttp3.Call;
-import okhttp3.Callback;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
 
 public class LoginViewModel extends AndroidViewModel {
     private static final String SPOTIFY_AUTH_ENDPOINT = "https://accounts.spotify.com/authorize";
     private static final String SPOTIFY_TOKEN_ENDPOINT = "https://accounts.spotify.com/api/token";
-    private static final String SPOTIFY_USER_API = "https://api.spotify.com/v1/me";
     // OAuth Scope - 包含 streaming 權限以支持 Spotify App Remote SDK 播放控制
     private static final String SCOPE = "user-read-private user-read-email streaming user-read-playback-state user-modify-playback-state";
 
@@ -48,12 +44,20 @@ public class LoginViewModel extends AndroidViewModel {
     private AuthorizationService authService;
     private AuthorizationServiceConfiguration serviceConfig;
     private AuthorizationRequest authRequest; // 保存授權請求，用於從 URI 重建響應
-    private final OkHttpClient httpClient = new OkHttpClient();
-    private final Gson gson = new Gson();
+    // 共用 ApiClient 的網絡棧，與推薦請求共用連接池和緩存
+    private final SpotifyApiService spotifyApiService;
     private final TokenManager tokenManager;
 
     public LoginViewModel(@NonNull Application application) {
+        this(application, ApiClient.getSpotifyApiService());
+    }
+
+    /**
+     * 注入 Spotify API 服務（測試時指向 MockWebServer）
+     */
+    LoginViewModel(@NonNull Application application, SpotifyApiService spotifyApiService) {
         super(application);
+        this.spotifyApiService = spotifyApiService;
         authService = new AuthorizationService(application);
         tokenManager = new TokenManager(application);
         //對OAuth初始化
@@ -173,22 +177,16 @@ public class LoginViewModel extends AndroidViewModel {
 
     //調用 Spotify Web API 獲取用戶名
     private void fetchSpotifyUserName(String accessToken) {
-        Request request = new Request.Builder()
-                .url(SPOTIFY_USER_API)
-                .addHeader("Authorization", "Bearer " + accessToken)
-                .build();
-
-        httpClient.newCall(request).enqueue(new Callback() {
+        spotifyApiService.getCurrentUser("Bearer " + accessToken).enqueue(new Callback<SpotifyUser>() {
             @Override
-            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+            public void onFailure(@NonNull Call<SpotifyUser> call, @NonNull Throwable t) {
                 _statusText.postValue(getApplication().getString(R.string.login_status_failed_user_info));
             }
 
             @Override
-            public void onResponse(@NonNull Call call, @NonNull Response response) throws IOException {
-                if (response.isSuccessful()) {
-                    String json = response.body().string();
-                    SpotifyUser user = gson.fromJson(json, SpotifyUser.class);
+            public void onResponse(@NonNull Call<SpotifyUser> call, @NonNull Response<SpotifyUser> response) {
+                SpotifyUser user = response.body();
+                if (response.isSuccessful() && user != null) {
 
                     String displayName = user.displayName != null ? user.displayName : user.id;
                     String profileImageUrl = user.getProfileImageUrl();
@@ -15,11 +15,14 @@ import com.spotify.protocol.types.PlayerState;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.TreeMap;
 
 import Model.POJO.EmotionInput;
 import Model.POJO.MusicItem;
 import Model.Repository.FavoriteRepository;
+import Model.Repository.HistoryRepository;
 import Model.Repository.MusicRepository;
+import Model.Repository.RecommendationRequest;
 import Model.Spotify.SpotifyPlayerManager;
 import Util.TokenManager;
 
@@ -30,6 +33,9 @@ import Util.TokenManager;
  */
 public class MusicViewModel extends AndroidViewModel {
 
+    // 刷新後的默認冷卻秒數
+    private static final int DEFAULT_COOLDOWN_SECONDS = 10;
+
     // 音樂列表狀態
     private final MutableLiveData<List<MusicItem>> _musicList = new MutableLiveData<>();
     public LiveData<List<MusicItem>> musicList = _musicList;
@@ -94,29 +100,64 @@ public class MusicViewModel extends AndroidViewModel {
     // 上次情緒輸入值（用於刷新）
     private int lastHappy = 0, lastSad = 0, lastAngry = 0, lastDisgust = 0, lastFear = 0;
 
+    // 產生當前歌單的情緒輸入（直接輸入模式為 null），收藏和播放時一併記錄供離線推薦使用
+    private EmotionInput listEmotionInput;
+
     // 用於防止重複顯示 Toast
     private boolean hasShownConnectedToast = false;
 
+    // 推薦請求序號（只在主線程讀寫），用於丟棄被新請求取代的舊回調
+    private int requestGeneration = 0;
+
+    // 當前推薦請求，發起新請求或 ViewModel 銷毀時取消
+    private RecommendationRequest currentRequest;
+
     // 冷卻計時 Handler
     private Handler cooldownHandler;
     private Runnable cooldownRunnable;
 
     private final MusicRepository musicRepository;
     private final FavoriteRepository favoriteRepository;
+    private final HistoryRepository historyRepository;
     private final TokenManager tokenManager;
     private final Handler mainHandler;
     private final SpotifyPlayerManager spotifyPlayerManager;
 
     public MusicViewModel(@NonNull Application application) {
         super(application);
-        this.musicRepository = new MusicRepository();
+        this.musicRepository = new MusicRepository(application);
         this.favoriteRepository = new FavoriteRepository(application);
+        this.historyRepository = new HistoryRepository(application);
         this.tokenManager = new TokenManager(application);
         this.mainHandler = new Handler(Looper.getMainLooper());
         this.cooldownHandler = new Handler(Looper.getMainLooper());
         this.spotifyPlayerManager = SpotifyPlayerManager.getInstance();
 
         setupSpotifyPlayerCallback();
+        restoreLastRecommendation();
+    }
+
+    /**
+     * 冷啟動時恢復最近一次推薦的歌單
+     * 恢復前用戶已發起新請求時不覆蓋
+     */
+    private void restoreLastRecommendation() {
+        final int generation = requestGeneration;
+        historyRepository.loadLatest(session -> {
+            if (session == null || session.getItems().isEmpty()
+                    || generation != requestGeneration || _musicList.getValue() != null) {
+                return;
+            }
+            EmotionInput emotionInput = session.getEmotionInput();
+            if (emotionInput != null) {
+                // 刷新時沿用恢復的情緒輸入
+                saveEmotionInput(emotionInput.getHappy(), emotionInput.getSad(), emotionInput.getAngry(),
+                        emotionInput.getDisgust(), emotionInput.getFear());
+            }
+            listEmotionInput = emotionInput;
+            _musicList.setValue(session.getItems());
+            _hasPlaylist.setValue(true);
+        });
     }
 
     /**
@@ -266,6 +307,7 @@ public class MusicViewModel extends AndroidViewModel {
 
         String trackUri = item.getSpotifyUri();
         spotifyPlayerManager.playTrack(trackUri);
+        musicRepository.recordPlayed(listEmotionInput, item);
     }
 
     /**
@@ -322,6 +364,15 @@ public class MusicViewModel extends AndroidViewModel {
      * 根據情緒獲取音樂推薦
      */
     public void fetchMusicRecommendations(int happy, int sad, int angry, int disgust, int fear) {
+        fetchMusicRecommendations(happy, sad, angry, disgust, fear, false);
+    }
+
+    /**
+     * 根據情緒獲取音樂推薦
+     * @param bypassCache 是否跳過推薦緩存（用戶不滿意當前歌單時需要新結果）
+     */
+    private void fetchMusicRecommendations(int happy, int sad, int angry, int disgust, int fear,
+                                           boolean bypassCache) {
         if (!validateInput(happy, sad, angry, disgust, fear)) {
             _errorMessage.setValue(getApplication().getString(R.string.error_invalid_emotion_input));
             return;
@@ -339,33 +390,120 @@ public class MusicViewModel extends AndroidViewModel {
 
         EmotionInput emotionInput = new EmotionInput(happy, sad, angry, disgust, fear);
 
-        musicRepository.getMusicRecommendations(emotionInput, accessToken,
-                new MusicRepository.MusicRepositoryCallback() {
-                    @Override
-                    public void onSuccess(List<MusicItem> musicItems) {
-                        mainHandler.post(() -> {
-                            _isLoading.setValue(false);
-                            _musicList.setValue(musicItems);
-                            _statusMessage.setValue(getApplication().getString(R.string.status_found_music, musicItems.size()));
-                            _hasPlaylist.setValue(true);
-                        });
+        replaceCurrentRequest(musicRepository.getMusicRecommendationsProgressive(emotionInput, accessToken,
+                bypassCache, createProgressiveCallback(emotionInput, null, R.string.status_found_music,
+                        R.string.status_failed_to_get_recommendations, false)));
+    }
+
+    /**
+     * 以新請求取代當前請求，並取消被取代的請求
+     * 先發起新請求再取消舊請求：兩者相同時新請求會合併到舊請求上，不會被一併取消
+     */
+    private void replaceCurrentRequest(RecommendationRequest request) {
+        RecommendationRequest previous = currentRequest;
+        currentRequest = request;
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    /**
+     * 創建漸進式回調
+     * 每首歌解析完成即按 slot 插入列表，使列表逐行出現且順序穩定；
+     * 被新請求取代的舊請求結果會被忽略
+     * @param emotionInput 請求的情緒輸入，直接輸入模式時為 null
+     * @param emotionText 直接輸入的文字，情緒數值模式時為 null
+     * @param foundMessageRes 成功時的狀態文字資源
+     * @param failedMessageRes 失敗時的狀態文字資源
+     * @param exitDirectInputOnSuccess 成功後是否退出直接輸入模式
+     */
+    private MusicRepository.ProgressiveMusicCallback createProgressiveCallback(
+            EmotionInput emotionInput, String emotionText, int foundMessageRes, int failedMessageRes,
+            boolean exitDirectInputOnSuccess) {
+        final int generation = ++requestGeneration;
+        final TreeMap<Integer, MusicItem> resolvedSlots = new TreeMap<>();
+
+        return new MusicRepository.ProgressiveMusicCallback() {
+            @Override
+            public void onItemResolved(MusicItem item, int slot) {
+                mainHandler.post(() -> {
+                    if (generation != requestGeneration) return;
+                    resolvedSlots.put(slot, item);
+                    listEmotionInput = emotionInput;
+                    _musicList.setValue(new ArrayList<>(resolvedSlots.values()));
+                    _hasPlaylist.setValue(true);
+                });
+            }
+
+            @Override
+            public void onComplete(List<MusicItem> musicItems) {
+                mainHandler.post(() -> {
+                    if (generation != requestGeneration) return;
+                    _isLoading.setValue(false);
+                    listEmotionInput = emotionInput;
+                    _musicList.setValue(musicItems);
+                    _statusMessage.setValue(getApplication().getString(foundMessageRes, musicItems.size()));
+                    if (emotionInput != null) {
+                        historyRepository.recordEmotion(emotionInput, musicItems);
+                    } else {
+                        historyRepository.recordText(emotionText, musicItems);
+                    }
+                    _hasPlaylist.setValue(true);
+                    if (exitDirectInputOnSuccess) {
+                        // 成功獲取後自動退出直接輸入模式
+                        _isDirectInputMode.setValue(false);
                     }
+                });
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+                mainHandler.post(() -> {
+                    if (generation != requestGeneration) return;
+                    _isLoading.setValue(false);
+                    _errorMessage.setValue(errorMessage);
+                    _statusMessage.setValue(getApplication().getString(failedMessageRes));
+                });
+            }
 
-                    @Override
-                    public void onError(String errorMessage) {
-                        mainHandler.post(() -> {
-                            _isLoading.setValue(false);
-                            _errorMessage.setValue(errorMessage);
-                            // 檢測是否為 API 限流錯誤
-                            if (errorMessage != null && (errorMessage.contains("limit") ||
-                                errorMessage.contains("quota") || errorMessage.contains("RATE_LIMIT"))) {
-                                _statusMessage.setValue(getApplication().getString(R.string.status_request_limit_reached));
-                            } else {
-                                _statusMessage.setValue(getApplication().getString(R.string.status_failed_to_get_recommendations));
-                            }
-                        });
+            @Override
+            public void onOfflineComplete(List<MusicItem> musicItems, long retryAfterMs) {
+                mainHandler.post(() -> {
+                    if (generation != requestGeneration) return;
+                    _isLoading.setValue(false);
+                    listEmotionInput = emotionInput;
+                    _musicList.setValue(musicItems);
+                    _statusMessage.setValue(getApplication().getString(
+                            R.string.status_offline_recommendations, musicItems.size()));
+                    _hasPlaylist.setValue(true);
+                    // 配額耗盡時雖有離線結果，仍要冷卻，避免立即再次請求
+                    if (retryAfterMs > 0) {
+                        extendCooldown(retryAfterMs);
                     }
                 });
+            }
+
+            @Override
+            public void onQuotaExhausted(long retryAfterMs) {
+                mainHandler.post(() -> {
+                    if (generation != requestGeneration) return;
+                    _isLoading.setValue(false);
+                    _statusMessage.setValue(getApplication().getString(R.string.status_request_limit_reached));
+                    extendCooldown(retryAfterMs);
+                });
+            }
+        };
+    }
+
+    /**
+     * 按配額恢復的實際時間冷卻，而不是固定的 10 秒；不會縮短正在進行的冷卻
+     */
+    private void extendCooldown(long retryAfterMs) {
+        int seconds = (int) Math.ceil(retryAfterMs / 1000.0);
+        Integer remaining = _cooldownSeconds.getValue();
+        if (remaining == null || seconds > remaining) {
+            startCooldown(seconds);
+        }
     }
 
     private boolean validateInput(int happy, int sad, int angry, int disgust, int fear) {
@@ -402,7 +540,7 @@ public class MusicViewModel extends AndroidViewModel {
                     _toastMessage.postValue(getApplication().getString(R.string.toast_removed_from_favorites));
                 });
             } else {
-                favoriteRepository.addFavorite(item, () -> {
+                favoriteRepository.addFavorite(item, listEmotionInput, () -> {
                     _toastMessage.postValue(getApplication().getString(R.string.toast_added_to_favorites));
                 });
             }
@@ -444,14 +582,25 @@ public class MusicViewModel extends AndroidViewModel {
 
     public void refreshRecommendations() {
         if (Boolean.TRUE.equals(_isRefreshEnabled.getValue())) {
-            fetchMusicRecommendations(lastHappy, lastSad, lastAngry, lastDisgust, lastFear);
+            fetchMusicRecommendations(lastHappy, lastSad, lastAngry, lastDisgust, lastFear, true);
             startCooldown();
         }
     }
 
     private void startCooldown() {
+        startCooldown(DEFAULT_COOLDOWN_SECONDS);
+    }
+
+    /**
+     * 開始刷新冷卻（會取代進行中的冷卻）
+     * @param seconds 冷卻秒數
+     */
+    private void startCooldown(int seconds) {
+        if (cooldownRunnable != null) {
+            cooldownHandler.removeCallbacks(cooldownRunnable);
+        }
         _isRefreshEnabled.setValue(false);
-        _cooldownSeconds.setValue(10);
+        _cooldownSeconds.setValue(seconds);
 
         cooldownRunnable = new Runnable() {
             @Override
@@ -512,35 +661,9 @@ public class MusicViewModel extends AndroidViewModel {
         _statusMessage.setValue(getApplication().getString(R.string.status_analyzing_emotions_zh));
         _errorMessage.setValue(null);
 
-        musicRepository.getMusicByDirectText(emotionText.trim(), accessToken,
-                new MusicRepository.MusicRepositoryCallback() {
-                    @Override
-                    public void onSuccess(List<MusicItem> musicItems) {
-                        mainHandler.post(() -> {
-                            _isLoading.setValue(false);
-                            _musicList.setValue(musicItems);
-                            _statusMessage.setValue(getApplication().getString(R.string.status_found_music_zh, musicItems.size()));
-                            _hasPlaylist.setValue(true);
-                            // 成功獲取後自動退出直接輸入模式
-                            _isDirectInputMode.setValue(false);
-                        });
-                    }
-
-                    @Override
-                    public void onError(String errorMessage) {
-                        mainHandler.post(() -> {
-                            _isLoading.setValue(false);
-                            _errorMessage.setValue(errorMessage);
-                            // 檢測是否為 API 限流錯誤
-                            if (errorMessage != null && (errorMessage.contains("limit") ||
-                                errorMessage.contains("quota") || errorMessage.contains("RATE_LIMIT"))) {
-                                _statusMessage.setValue(getApplication().getString(R.string.status_request_limit_reached));
-                            } else {
-                                _statusMessage.setValue(getApplication().getString(R.string.status_failed_to_get_recommendations_zh));
-                            }
-                        });
-                    }
-                });
+        replaceCurrentRequest(musicRepository.getMusicByDirectTextProgressive(emotionText.trim(), accessToken,
+                createProgressiveCallback(null, emotionText.trim(), R.string.status_found_music_zh,
+                        R.string.status_failed_to_get_recommendations_zh, true)));
     }
 
     /**
@@ -593,8 +716,15 @@ public class MusicViewModel extends AndroidViewModel {
     protected void onCleared() {
         super.onCleared();
         cooldownHandler.removeCallbacksAndMessages(null);
+        // 取消進行中的推薦請求，並停止線程池
+        if (currentRequest != null) {
+            currentRequest.cancel();
+            currentRequest = null;
+        }
+        musicRepository.shutdown();
         // 單例模式下不在此處斷開連接，由 Application 生命週期管理
         // spotifyPlayerManager.disconnect();
         favoriteRepository.shutdown();
+        historyRepository.shutdown();
     }
 }
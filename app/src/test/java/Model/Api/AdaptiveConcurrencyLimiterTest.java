@@ -0,0 +1,102 @@
+package Model.Api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import Model.POJO.SpotifySearchResponse;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Call;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * 自適應並發限制器測試
+ */
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final String EMPTY_SEARCH = "{\"tracks\":{\"items\":[]}}";
+
+    private MockWebServer server;
+    private SpotifyApiService service;
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        service = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(SpotifyApiService.class);
+        limiter = new AdaptiveConcurrencyLimiter("test");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void throttledRequestWaitsForRetryAfterAndSucceeds() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "1"));
+        server.enqueue(new MockResponse().setBody(EMPTY_SEARCH));
+
+        long start = System.nanoTime();
+        Response<SpotifySearchResponse> response = limiter
+                .submit(search("a"), call -> { })
+                .get(10, TimeUnit.SECONDS);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(200, response.code());
+        assertTrue("重試前只等待了 " + elapsedMs + "ms", elapsedMs >= 900);
+        assertEquals(2, server.getRequestCount());
+        assertEquals(1, limiter.getThrottledCount());
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void queuesRequestsBeyondLimit() throws Exception {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                Thread.sleep(100);
+                active.decrementAndGet();
+                return new MockResponse().setBody(EMPTY_SEARCH);
+            }
+        });
+
+        List<CompletableFuture<Response<SpotifySearchResponse>>> futures = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            futures.add(limiter.submit(search("song " + i), call -> { }));
+        }
+        assertEquals(12 - limiter.getLimit(), limiter.getQueueDepth());
+
+        for (CompletableFuture<Response<SpotifySearchResponse>> future : futures) {
+            assertEquals(200, future.get(10, TimeUnit.SECONDS).code());
+        }
+        assertEquals(0, limiter.getQueueDepth());
+        assertTrue("同時請求數達到 " + maxActive.get(), maxActive.get() <= limiter.getLimit());
+    }
+
+    private Call<SpotifySearchResponse> search(String query) {
+        return service.searchTracks("Bearer token", query, "track", 1);
+    }
+}
@@ -0,0 +1,101 @@
+package Model.Api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import retrofit2.Retrofit;
+
+/**
+ * 共用網絡棧測試
+ */
+public class ApiClientTest {
+
+    private final ApiConfig geminiConfig = ApiClient.getConfig(ApiClient.Api.GEMINI);
+    private final ApiConfig spotifyConfig = ApiClient.getConfig(ApiClient.Api.SPOTIFY);
+
+    @After
+    public void tearDown() {
+        ApiClient.configure(ApiClient.Api.GEMINI, geminiConfig);
+        ApiClient.configure(ApiClient.Api.SPOTIFY, spotifyConfig);
+    }
+
+    private static OkHttpClient client(ApiClient.Api api) {
+        return (OkHttpClient) ApiClient.getRetrofit(api).callFactory();
+    }
+
+    @Test
+    public void apisShareConnectionPoolDispatcherAndListenersWithOwnTimeouts() {
+        OkHttpClient gemini = client(ApiClient.Api.GEMINI);
+        OkHttpClient spotify = client(ApiClient.Api.SPOTIFY);
+
+        assertSame(gemini.connectionPool(), spotify.connectionPool());
+        assertSame(gemini.dispatcher(), spotify.dispatcher());
+        assertSame(gemini.eventListenerFactory(), spotify.eventListenerFactory());
+        assertEquals(ApiClient.getConfig(ApiClient.Api.GEMINI).getReadTimeoutMs(), gemini.readTimeoutMillis());
+        assertNotEquals(gemini.readTimeoutMillis(), spotify.readTimeoutMillis());
+    }
+
+    @Test
+    public void configureReplacesOnlyThatApi() {
+        Retrofit gemini = ApiClient.getGeminiRetrofit();
+        ApiClient.configure(ApiClient.Api.SPOTIFY, ApiClient.getConfig(ApiClient.Api.SPOTIFY).toBuilder()
+                .readTimeout(3, TimeUnit.SECONDS)
+                .build());
+
+        assertSame(gemini, ApiClient.getGeminiRetrofit());
+        assertEquals(3000, client(ApiClient.Api.SPOTIFY).readTimeoutMillis());
+
+        ApiClient.setBaseUrls("http://localhost:1/", "http://localhost:2/");
+        assertEquals("http://localhost:2/", ApiClient.getSpotifyRetrofit().baseUrl().toString());
+        // 更換地址時保留其他設置
+        assertEquals(3000, client(ApiClient.Api.SPOTIFY).readTimeoutMillis());
+    }
+
+    @Test
+    public void revalidationUsesSpotifyClient() {
+        Interceptor auth = chain -> chain.proceed(chain.request());
+        ApiClient.configure(ApiClient.Api.SPOTIFY, ApiClient.getConfig(ApiClient.Api.SPOTIFY).toBuilder()
+                .addInterceptor(auth)
+                .build());
+
+        // 帶有 Spotify 的 Token 攔截器和超時，而不是基礎客戶端
+        OkHttpClient revalidation = ApiClient.getRevalidationClient();
+        assertSame(client(ApiClient.Api.SPOTIFY), revalidation);
+        assertTrue(revalidation.interceptors().contains(auth));
+    }
+
+    @Test
+    public void concurrentCallersGetTheSameInstance() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Retrofit>> tasks = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                tasks.add(ApiClient::getSpotifyRetrofit);
+            }
+            Retrofit first = null;
+            for (Future<Retrofit> future : executor.invokeAll(tasks)) {
+                if (first == null) {
+                    first = future.get();
+                }
+                assertSame(first, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
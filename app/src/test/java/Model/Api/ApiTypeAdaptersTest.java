@@ -0,0 +1,116 @@
+package Model.Api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import Model.POJO.GeminiResponse;
+import Model.POJO.GeminiSong;
+import Model.POJO.SpotifySearchResponse;
+import Model.POJO.SpotifyUser;
+
+/**
+ * 手寫 TypeAdapter 測試
+ * 以反射 Gson 的解析結果為基準，確認手寫適配器讀出相同的字段並略過未知字段
+ */
+public class ApiTypeAdaptersTest {
+
+    private static final String TRACK = "{"
+            + "\"album\":{\"album_type\":\"single\",\"artists\":[{\"id\":\"a1\",\"name\":\"Pharrell Williams\"}],"
+            + "\"available_markets\":[\"TW\",\"JP\",\"US\"],\"id\":\"al1\",\"name\":\"Happy\","
+            + "\"images\":[{\"height\":640,\"url\":\"https://i.scdn.co/640\",\"width\":640},"
+            + "{\"height\":null,\"url\":\"https://i.scdn.co/64\",\"width\":null}],"
+            + "\"release_date\":\"2014-01-01\"},"
+            + "\"artists\":[{\"external_urls\":{\"spotify\":\"https://open.spotify.com\"},\"id\":\"a1\","
+            + "\"name\":\"Pharrell Williams\",\"type\":\"artist\"}],"
+            + "\"available_markets\":[\"TW\",\"JP\",\"US\"],\"duration_ms\":232720,\"explicit\":false,"
+            + "\"id\":\"t1\",\"is_local\":false,\"name\":\"Happy \\\"Live\\\"\",\"popularity\":80,"
+            + "\"preview_url\":null,\"track_number\":1}";
+
+    private static final String SEARCH = "{\"tracks\":{\"href\":\"https://api.spotify.com/v1/search\","
+            + "\"items\":[" + TRACK + "," + TRACK + "],\"limit\":2,\"next\":null,\"offset\":0,\"total\":120}}";
+
+    private static final String GEMINI = "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"[{\\\"song_name\\\":"
+            + "\\\"Happy\\\",\\\"artist\\\":\\\"Pharrell Williams\\\"}]\"}],\"role\":\"model\"},"
+            + "\"finishReason\":\"STOP\",\"index\":0}],"
+            + "\"usageMetadata\":{\"promptTokenCount\":80,\"candidatesTokenCount\":20},\"modelVersion\":\"gemini-2.5-flash\"}";
+
+    private static final String USER = "{\"country\":\"TW\",\"display_name\":\"Max\",\"email\":\"max@example.com\","
+            + "\"followers\":{\"href\":null,\"total\":3},\"id\":\"user1\","
+            + "\"images\":[{\"url\":\"https://i.scdn.co/u\",\"height\":300,\"width\":null}],\"product\":\"premium\"}";
+
+    private final Gson reflective = new Gson();
+    private final Gson streaming = ApiGson.get();
+
+    @Test
+    public void searchResponseMatchesReflectiveParsing() {
+        SpotifySearchResponse expected = reflective.fromJson(SEARCH, SpotifySearchResponse.class);
+        SpotifySearchResponse actual = streaming.fromJson(SEARCH, SpotifySearchResponse.class);
+
+        assertEquals(2, actual.getTracks().getItems().size());
+        for (int i = 0; i < 2; i++) {
+            SpotifySearchResponse.Track want = expected.getTracks().getItems().get(i);
+            SpotifySearchResponse.Track got = actual.getTracks().getItems().get(i);
+            assertEquals(want.getId(), got.getId());
+            assertEquals(want.getName(), got.getName());
+            assertEquals(want.getFirstArtistName(), got.getFirstArtistName());
+            assertEquals(want.getDurationMs(), got.getDurationMs());
+            assertEquals(want.getThumbnailUrl(), got.getThumbnailUrl());
+            assertEquals(want.getLargeImageUrl(), got.getLargeImageUrl());
+            assertEquals(want.getAlbum().getName(), got.getAlbum().getName());
+            // null 尺寸與反射解析一致，保留默認值 0
+            assertEquals(0, got.getAlbum().getImages().get(1).getHeight());
+        }
+    }
+
+    @Test
+    public void geminiResponseAndSongsMatchReflectiveParsing() throws Exception {
+        GeminiResponse response = streaming.fromJson(GEMINI, GeminiResponse.class);
+        String text = response.getResponseText();
+        assertEquals(reflective.fromJson(GEMINI, GeminiResponse.class).getResponseText(), text);
+        assertEquals("model", response.getCandidates().get(0).getContent().getRole());
+        assertEquals("STOP", response.getFinishReason());
+        assertFalse(response.isTruncated());
+        assertEquals(20, response.getUsageMetadata().getCandidatesTokenCount());
+
+        List<GeminiSong> songs = streaming.getAdapter(new TypeToken<List<GeminiSong>>(){}).fromJson(text);
+        assertEquals(1, songs.size());
+        assertEquals("Happy", songs.get(0).getSongName());
+        assertEquals("Pharrell Williams", songs.get(0).getArtist());
+    }
+
+    @Test
+    public void spotifyUserMatchesReflectiveParsing() {
+        SpotifyUser expected = reflective.fromJson(USER, SpotifyUser.class);
+        SpotifyUser actual = streaming.fromJson(USER, SpotifyUser.class);
+
+        assertEquals(expected, actual);
+        assertNull(actual.images.get(0).width);
+    }
+
+    @Test
+    public void nullValuesAndEmptyObjects() {
+        assertNull(streaming.fromJson("null", SpotifySearchResponse.class));
+        assertNull(streaming.fromJson("{\"tracks\":null}", SpotifySearchResponse.class).getTracks());
+        assertNull(streaming.fromJson("{}", GeminiResponse.class).getResponseText());
+        assertTrue(streaming.fromJson("{\"tracks\":{\"items\":[]}}", SpotifySearchResponse.class)
+                .getTracks().getItems().isEmpty());
+    }
+
+    @Test
+    public void writingFallsBackToReflection() {
+        GeminiSong song = new GeminiSong("Happy", "Pharrell Williams");
+        String json = streaming.toJson(song);
+
+        assertEquals(reflective.toJson(song), json);
+        assertEquals("Happy", streaming.fromJson(json, GeminiSong.class).getSongName());
+    }
+}
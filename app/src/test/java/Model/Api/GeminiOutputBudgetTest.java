@@ -0,0 +1,70 @@
+package Model.Api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import Model.POJO.GeminiResponse;
+
+/**
+ * Gemini 輸出 token 上限測試
+ */
+public class GeminiOutputBudgetTest {
+
+    @Test
+    public void defaultBudgetBeforeAnyMeasurement() {
+        GeminiOutputBudget budget = new GeminiOutputBudget();
+
+        assertEquals(32 + 15 * GeminiOutputBudget.DEFAULT_TOKENS_PER_SONG, budget.maxOutputTokens(15));
+        assertEquals(0, budget.getMaxMeasuredTokensPerSong());
+    }
+
+    @Test
+    public void growsFromMeasuredUsageButNeverShrinks() {
+        GeminiOutputBudget budget = new GeminiOutputBudget();
+
+        // 每首 80 個 token（長的 CJK 歌名），加餘量後 120
+        assertFalse(budget.record(response("STOP", 800), 10));
+        assertEquals(80, budget.getMaxMeasuredTokensPerSong());
+        assertEquals(120, budget.getTokensPerSong());
+
+        // 之後較短的回應不會收緊上限
+        budget.record(response("STOP", 200), 10);
+        assertEquals(80, budget.getMaxMeasuredTokensPerSong());
+        assertEquals(120, budget.getTokensPerSong());
+    }
+
+    @Test
+    public void truncatedResponseDoublesBudget() {
+        GeminiOutputBudget budget = new GeminiOutputBudget();
+
+        assertTrue(budget.record(response(GeminiResponse.FINISH_REASON_MAX_TOKENS, 0), 4));
+        assertEquals(1, budget.getTruncatedCount());
+        assertEquals(2 * GeminiOutputBudget.DEFAULT_TOKENS_PER_SONG, budget.getTokensPerSong());
+    }
+
+    @Test
+    public void missingResponseIsIgnored() {
+        GeminiOutputBudget budget = new GeminiOutputBudget();
+
+        assertFalse(budget.record(null, 3));
+        assertEquals(GeminiOutputBudget.DEFAULT_TOKENS_PER_SONG, budget.getTokensPerSong());
+    }
+
+    private static GeminiResponse response(String finishReason, int candidatesTokenCount) {
+        GeminiResponse.Candidate candidate = new GeminiResponse.Candidate();
+        candidate.setFinishReason(finishReason);
+        GeminiResponse response = new GeminiResponse();
+        response.setCandidates(Collections.singletonList(candidate));
+        if (candidatesTokenCount > 0) {
+            GeminiResponse.UsageMetadata usage = new GeminiResponse.UsageMetadata();
+            usage.setCandidatesTokenCount(candidatesTokenCount);
+            response.setUsageMetadata(usage);
+        }
+        return response;
+    }
+}
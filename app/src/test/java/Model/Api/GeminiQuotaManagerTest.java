@@ -0,0 +1,48 @@
+package Model.Api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Gemini 客戶端配額測試（不持久化）
+ */
+public class GeminiQuotaManagerTest {
+
+    @Test
+    public void exhaustsMinuteBudgetAndReportsWaitTime() {
+        GeminiQuotaManager manager = new GeminiQuotaManager(null, 2, 100);
+
+        assertTrue(manager.tryAcquire().isGranted());
+        assertTrue(manager.tryAcquire().isGranted());
+
+        GeminiQuotaManager.QuotaResult result = manager.tryAcquire();
+        assertFalse(result.isGranted());
+        GeminiQuotaManager.QuotaExhausted exhausted = (GeminiQuotaManager.QuotaExhausted) result;
+        assertEquals(GeminiQuotaManager.QuotaExhausted.Scope.MINUTE, exhausted.getScope());
+        // 每分鐘 2 個令牌，下一個令牌約 30 秒後補充
+        assertTrue(exhausted.getRetryAfterMs() > 25_000 && exhausted.getRetryAfterMs() <= 30_000);
+    }
+
+    @Test
+    public void dailyBudgetTakesPrecedence() {
+        GeminiQuotaManager manager = new GeminiQuotaManager(null, 10, 1);
+
+        assertTrue(manager.tryAcquire().isGranted());
+
+        GeminiQuotaManager.QuotaExhausted exhausted = (GeminiQuotaManager.QuotaExhausted) manager.tryAcquire();
+        assertEquals(GeminiQuotaManager.QuotaExhausted.Scope.DAY, exhausted.getScope());
+    }
+
+    @Test
+    public void serverRateLimitDrainsMinuteBudget() {
+        GeminiQuotaManager manager = new GeminiQuotaManager(null, 10, 100);
+
+        long waitMs = manager.onServerRateLimited();
+
+        assertTrue(waitMs > 0);
+        assertFalse(manager.tryAcquire().isGranted());
+    }
+}
@@ -0,0 +1,182 @@
+package Model.Api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import Model.POJO.SpotifySearchResponse;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Call;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * 對沖請求測試
+ */
+public class HedgingPolicyTest {
+
+    private static final String EMPTY_SEARCH = "{\"tracks\":{\"items\":[]}}";
+    private static final int WARMUP_REQUESTS = 20;
+
+    private MockWebServer server;
+    private SpotifyApiService service;
+    private final AtomicInteger requestNumber = new AtomicInteger();
+    private volatile int slowRequestNumber = -1;
+    private volatile int failingRequestNumber = -1;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                MockResponse response = new MockResponse().setBody(EMPTY_SEARCH);
+                int number = requestNumber.incrementAndGet();
+                if (number == failingRequestNumber) {
+                    response = new MockResponse().setResponseCode(503);
+                }
+                if (number == slowRequestNumber) {
+                    response.setHeadersDelay(3, TimeUnit.SECONDS);
+                } else {
+                    response.setHeadersDelay(20, TimeUnit.MILLISECONDS);
+                }
+                return response;
+            }
+        });
+        server.start();
+        service = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(SpotifyApiService.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void slowRequestIsHedgedAfterP90() throws Exception {
+        HedgingPolicy policy = new HedgingPolicy(0.9, 0.1);
+        for (int i = 0; i < WARMUP_REQUESTS; i++) {
+            policy.execute(search(), call -> { }, CallFutures::enqueue).get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(0, policy.getHedgeCount());
+
+        // 下一個請求卡住 3 秒，對沖副本應在 p90 後發出並先返回
+        slowRequestNumber = WARMUP_REQUESTS + 1;
+        long start = System.nanoTime();
+        Response<SpotifySearchResponse> response = policy
+                .execute(search(), call -> { }, CallFutures::enqueue)
+                .get(5, TimeUnit.SECONDS);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(200, response.code());
+        assertTrue("耗時 " + elapsedMs + "ms", elapsedMs < 1000);
+        assertEquals(1, policy.getHedgeCount());
+        assertEquals(1, policy.getHedgeWinCount());
+        // 勝出的副本和被取消的原請求（截尾於取消時）都計入延遲
+        assertEquals(WARMUP_REQUESTS + 2, policy.getHistogram().getCount());
+    }
+
+    @Test
+    public void hedgeWinningWithServerErrorStillRetries() throws Exception {
+        HedgingPolicy policy = warmedUp();
+
+        // 原請求卡住，對沖副本先返回 503：重試策略的原請求沒有被取消，應繼續重試並成功
+        slowRequestNumber = WARMUP_REQUESTS + 1;
+        failingRequestNumber = WARMUP_REQUESTS + 2;
+        Call<SpotifySearchResponse> original = search();
+        Response<SpotifySearchResponse> response = new RetryPolicy(3, 10, 50)
+                .execute(original, Deadline.after(5000), call -> { },
+                        attempt -> policy.execute(attempt, call -> { }, CallFutures::enqueue))
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(200, response.code());
+        assertEquals(1, policy.getHedgeWinCount());
+        assertFalse(original.isCanceled());
+    }
+
+    @Test
+    public void queueTimeIsNotRecordedAsLatency() throws Exception {
+        HedgingPolicy policy = new HedgingPolicy(0.9, 0.1);
+        // 每個請求先在「隊列」中等待 300ms 才發往網絡
+        HedgingPolicy.Sender<SpotifySearchResponse> queued = (attempt, onSent) -> CompletableFuture
+                .runAsync(() -> { }, CompletableFuture.delayedExecutor(300, TimeUnit.MILLISECONDS))
+                .thenCompose(ignored -> {
+                    onSent.run();
+                    return CallFutures.enqueue(attempt);
+                });
+        List<CompletableFuture<Response<SpotifySearchResponse>>> futures = new ArrayList<>();
+        for (int i = 0; i < WARMUP_REQUESTS; i++) {
+            futures.add(policy.execute(search(), call -> { }, queued, () -> true));
+        }
+        for (CompletableFuture<Response<SpotifySearchResponse>> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        assertTrue("p90 " + policy.getHistogram().percentile(0.9) + "ms",
+                policy.getHistogram().percentile(0.9) < 300);
+        assertEquals(0, policy.getHedgeCount());
+    }
+
+    @Test
+    public void noHedgeWhileSenderIsBacklogged() throws Exception {
+        HedgingPolicy policy = warmedUp();
+
+        slowRequestNumber = WARMUP_REQUESTS + 1;
+        Response<SpotifySearchResponse> response = policy
+                .execute(search(), call -> { }, (attempt, onSent) -> {
+                    onSent.run();
+                    return CallFutures.enqueue(attempt);
+                }, () -> false)
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(200, response.code());
+        assertEquals(0, policy.getHedgeCount());
+        assertEquals(WARMUP_REQUESTS + 1, requestNumber.get());
+    }
+
+    private HedgingPolicy warmedUp() throws Exception {
+        HedgingPolicy policy = new HedgingPolicy(0.9, 0.1);
+        for (int i = 0; i < WARMUP_REQUESTS; i++) {
+            policy.execute(search(), call -> { }, CallFutures::enqueue).get(5, TimeUnit.SECONDS);
+        }
+        return policy;
+    }
+
+    @Test
+    public void hedgesStayWithinBudget() throws Exception {
+        HedgingPolicy policy = new HedgingPolicy(0.0, 0.1);
+        for (int i = 0; i < WARMUP_REQUESTS; i++) {
+            policy.execute(search(), call -> { }, CallFutures::enqueue).get(5, TimeUnit.SECONDS);
+        }
+
+        // 分位數為 0 時幾乎每個請求都會超過閾值，但對沖數受 10% 預算限制
+        long hedgesBefore = policy.getHedgeCount();
+        for (int i = 0; i < 20; i++) {
+            policy.execute(search(), call -> { }, CallFutures::enqueue).get(5, TimeUnit.SECONDS);
+        }
+        assertTrue(policy.getHedgeCount() <= policy.getRequestCount() * 0.1);
+        assertTrue(policy.getHedgeCount() >= hedgesBefore);
+    }
+
+    private Call<SpotifySearchResponse> search() {
+        return service.searchTracks("Bearer token", "query", "track", 1);
+    }
+}
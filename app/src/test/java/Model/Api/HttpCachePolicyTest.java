@@ -0,0 +1,130 @@
+package Model.Api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * HTTP 緩存策略測試
+ */
+public class HttpCachePolicyTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private HttpCachePolicy policy;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private void useRule(long maxAge, long staleWhileRevalidate, long staleIfError) throws Exception {
+        policy = new HttpCachePolicy(List.of(
+                new HttpCachePolicy.Rule("/v1/search", maxAge, staleWhileRevalidate, staleIfError, false)));
+        client = new OkHttpClient.Builder()
+                .cache(new Cache(folder.newFolder(), 1024 * 1024))
+                .eventListenerFactory(policy.eventListenerFactory())
+                .addInterceptor(policy.applicationInterceptor(() -> client))
+                .addNetworkInterceptor(policy.networkInterceptor())
+                .build();
+    }
+
+    private static MockResponse spotify(String body) {
+        // Spotify 的實際緩存頭
+        return new MockResponse().setBody(body).setHeader("Cache-Control", "private, max-age=0")
+                .setHeader("ETag", "\"v1\"");
+    }
+
+    private String get(String path) throws Exception {
+        Request request = new Request.Builder().url(server.url(path)).build();
+        try (Response response = client.newCall(request).execute()) {
+            return response.body().string();
+        }
+    }
+
+    @Test
+    public void freshResponsesAreServedFromCache() throws Exception {
+        useRule(600, 0, 0);
+        server.enqueue(spotify("first"));
+
+        assertEquals("first", get("/v1/search?q=a"));
+        assertEquals("first", get("/v1/search?q=a"));
+
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, policy.getHitCount());
+        assertEquals(1, policy.getMissCount());
+        assertEquals(0.5, policy.getHitRatio(), 0.0);
+    }
+
+    @Test
+    public void staleResponseIsReturnedWhileRevalidating() throws Exception {
+        useRule(0, 60, 0);
+        server.enqueue(spotify("first"));
+        server.enqueue(new MockResponse().setResponseCode(304));
+
+        assertEquals("first", get("/v1/search?q=a"));
+        // 已過期但在窗口內：立即返回舊內容，後台發出條件請求
+        assertEquals("first", get("/v1/search?q=a"));
+
+        server.takeRequest();
+        RecordedRequest revalidation = server.takeRequest(5, TimeUnit.SECONDS);
+        assertNotNull(revalidation);
+        assertEquals("\"v1\"", revalidation.getHeader("If-None-Match"));
+        assertEquals(1, policy.getStaleServedCount());
+    }
+
+    @Test
+    public void staleResponseIsServedWhenOffline() throws Exception {
+        useRule(0, 0, 60);
+        server.enqueue(spotify("first"));
+        assertEquals("first", get("/v1/search?q=a"));
+
+        server.shutdown();
+
+        assertEquals("first", get("/v1/search?q=a"));
+        assertEquals(1, policy.getStaleServedCount());
+    }
+
+    @Test
+    public void postRequestsAreNotCachedOrCounted() throws Exception {
+        useRule(600, 0, 0);
+        server.enqueue(new MockResponse().setBody("a").setHeader("Cache-Control", "max-age=600"));
+        server.enqueue(new MockResponse().setBody("b").setHeader("Cache-Control", "max-age=600"));
+
+        for (int i = 0; i < 2; i++) {
+            Request request = new Request.Builder().url(server.url("/v1beta/models"))
+                    .post(RequestBody.create("{}", MediaType.get("application/json"))).build();
+            client.newCall(request).execute().close();
+        }
+
+        assertEquals(2, server.getRequestCount());
+        assertEquals(0, policy.getMissCount() + policy.getHitCount());
+    }
+}
@@ -0,0 +1,74 @@
+package Model.Api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+/**
+ * 網絡分段耗時統計測試
+ */
+public class NetworkTimingMetricsTest {
+
+    private MockWebServer server;
+    private NetworkTimingMetrics metrics;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        metrics = new NetworkTimingMetrics();
+        client = new OkHttpClient.Builder().eventListenerFactory(metrics).build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private void get(String path) throws Exception {
+        try (Response response = client.newCall(new Request.Builder().url(server.url(path)).build()).execute()) {
+            response.body().string();
+        }
+    }
+
+    @Test
+    public void recordsEachPhasePerHost() throws Exception {
+        server.enqueue(new MockResponse().setBody("first").setHeadersDelay(100, TimeUnit.MILLISECONDS));
+        server.enqueue(new MockResponse().setBody("second"));
+
+        get("/v1/search");
+        get("/v1/search");
+
+        Map<NetworkTimingMetrics.Phase, NetworkTimingMetrics.Percentiles> snapshot =
+                metrics.snapshot(server.getHostName());
+        // 第二個請求複用連接，只有一個 CONNECT 樣本
+        assertEquals(1, snapshot.get(NetworkTimingMetrics.Phase.CONNECT).getCount());
+        assertEquals(2, snapshot.get(NetworkTimingMetrics.Phase.REQUEST_WRITE).getCount());
+        assertEquals(2, snapshot.get(NetworkTimingMetrics.Phase.BODY_READ).getCount());
+        NetworkTimingMetrics.Percentiles ttfb = snapshot.get(NetworkTimingMetrics.Phase.TTFB);
+        assertEquals(2, ttfb.getCount());
+        assertTrue(ttfb.getP99() >= 100);
+        // 明文連接沒有 TLS 階段
+        assertFalse(snapshot.containsKey(NetworkTimingMetrics.Phase.TLS));
+        assertEquals(1, metrics.getHosts().size());
+    }
+
+    @Test
+    public void unknownHostHasEmptySnapshot() {
+        assertTrue(metrics.snapshot("api.spotify.com").isEmpty());
+    }
+}
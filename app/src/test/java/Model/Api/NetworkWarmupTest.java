@@ -0,0 +1,75 @@
+package Model.Api;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+/**
+ * 網絡預熱測試
+ * 預熱後的第一個真實請求應複用連接池中的連接，且預熱請求本身不計入統計
+ */
+public class NetworkWarmupTest {
+
+    private MockWebServer server;
+    private ConnectionReuseMetrics metrics;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        metrics = new ConnectionReuseMetrics();
+        client = new OkHttpClient.Builder().eventListenerFactory(metrics).build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private void get(String path) throws Exception {
+        try (Response response = client.newCall(new Request.Builder().url(server.url(path)).build()).execute()) {
+            response.body().string();
+        }
+    }
+
+    @Test
+    public void firstRequestAfterWarmupReusesConnection() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(404));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        NetworkWarmup.warmUp(client, List.of(server.url("/")), List.of("localhost")).get(5, TimeUnit.SECONDS);
+        assertEquals("HEAD", server.takeRequest().getMethod());
+
+        get("/v1/search");
+
+        String host = server.getHostName();
+        assertEquals(1, metrics.getReusedCount(host));
+        assertEquals(0, metrics.getNewCount(host));
+        assertEquals(1.0, metrics.getReuseRatio(null), 0.0);
+    }
+
+    @Test
+    public void coldRequestsCountAsNewConnections() throws Exception {
+        server.enqueue(new MockResponse().setBody("ok"));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        get("/v1/me");
+        get("/v1/me");
+
+        assertEquals(1, metrics.getNewCount(null));
+        assertEquals(1, metrics.getReusedCount(null));
+        assertEquals(0.5, metrics.getReuseRatio(server.getHostName()), 0.0);
+    }
+}
@@ -0,0 +1,107 @@
+package Model.Api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+/**
+ * 錄製與重放測試
+ */
+public class RecordingReplayTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer origin;
+    private MockWebServer replay;
+
+    @Before
+    public void setUp() throws Exception {
+        origin = new MockWebServer();
+        origin.start();
+        replay = new MockWebServer();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        origin.shutdown();
+        replay.shutdown();
+    }
+
+    @Test
+    public void recordsExchangeWithoutCredentialsAndReplaysIt() throws Exception {
+        origin.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setHeader("Retry-After", "3")
+                .setBody("{\"tracks\":{\"items\":[]}}")
+                .setHeadersDelay(150, TimeUnit.MILLISECONDS));
+
+        File file = folder.newFile("exchanges.jsonl");
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(new RecordingInterceptor(file))
+                .build();
+        Request request = new Request.Builder()
+                .url(origin.url("/v1/search?q=track:Happy&limit=1&key=secret-key"))
+                .header("Authorization", "Bearer secret-token")
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            // 錄製後調用方仍然能讀到完整的回應體
+            assertEquals("{\"tracks\":{\"items\":[]}}", response.body().string());
+        }
+
+        String recorded = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertFalse(recorded.contains("secret-key"));
+        assertFalse(recorded.contains("secret-token"));
+
+        List<RecordedExchange> exchanges = ReplayDispatcher.load(file);
+        assertEquals(1, exchanges.size());
+        RecordedExchange exchange = exchanges.get(0);
+        assertEquals("GET /v1/search", exchange.endpoint());
+        assertEquals("track:Happy", exchange.getQuery().get("q"));
+        assertTrue(exchange.getHeadersMs() >= 150);
+
+        replay.setDispatcher(new ReplayDispatcher(exchanges, ReplayDispatcher.LatencyProfile.recorded(), 1));
+        replay.start();
+        long start = System.nanoTime();
+        try (Response response = new OkHttpClient().newCall(new Request.Builder()
+                .url(replay.url("/v1/search?q=track:Happy&limit=1")).build()).execute()) {
+            assertEquals(200, response.code());
+            assertEquals("3", response.header("Retry-After"));
+            assertEquals("{\"tracks\":{\"items\":[]}}", response.body().string());
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("重放耗時 " + elapsedMs + "ms", elapsedMs >= exchange.getHeadersMs());
+    }
+
+    @Test
+    public void injectsConfiguredFailures() throws Exception {
+        RecordedExchange exchange = new RecordedExchange("GET", "/v1/search", 200, "{}", 0, 0);
+        replay.setDispatcher(new ReplayDispatcher(Collections.singletonList(exchange),
+                ReplayDispatcher.LatencyProfile.fixed(0, 0).withFailures(1.0, 0), 1));
+        replay.start();
+
+        try (Response response = new OkHttpClient().newCall(new Request.Builder()
+                .url(replay.url("/v1/search")).build()).execute()) {
+            assertEquals(503, response.code());
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package Model.Api;
+
+import com.google.gson.Gson;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+
+/**
+ * 以 MockWebServer 重放錄製的 HTTP 交換
+ * - 回應內容：優先選擇查詢參數完全相同的錄製，否則從同一端點的錄製中隨機選擇
+ * - 延遲：默認從同一端點的錄製延遲中抽樣，重現錄製時的延遲分佈；
+ *   也可以用 {@link LatencyProfile} 改為固定延遲加抖動，並注入失敗
+ * - 回應體按錄製的生成時間限速發送，Gemini 串流會像真實情況一樣逐段到達
+ */
+public class ReplayDispatcher extends Dispatcher {
+
+    // 限速發送的時間粒度
+    private static final long THROTTLE_PERIOD_MS = 10;
+
+    private final Map<String, List<RecordedExchange>> exchangesByEndpoint = new LinkedHashMap<>();
+    private final LatencyProfile profile;
+    private final Random random;
+
+    public ReplayDispatcher(List<RecordedExchange> exchanges, LatencyProfile profile, long seed) {
+        for (RecordedExchange exchange : exchanges) {
+            exchangesByEndpoint.computeIfAbsent(exchange.endpoint(), key -> new ArrayList<>()).add(exchange);
+        }
+        this.profile = profile;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * 讀取測試資源中的錄製文件（每行一個 RecordedExchange）
+     */
+    public static List<RecordedExchange> load(String resource) throws IOException {
+        InputStream in = ReplayDispatcher.class.getClassLoader().getResourceAsStream(resource);
+        if (in == null) {
+            throw new IOException("找不到錄製文件: " + resource);
+        }
+        return read(in);
+    }
+
+    /**
+     * 讀取 RecordingInterceptor 剛寫出的錄製文件
+     */
+    public static List<RecordedExchange> load(File file) throws IOException {
+        return read(new FileInputStream(file));
+    }
+
+    private static List<RecordedExchange> read(InputStream input) throws IOException {
+        Gson gson = new Gson();
+        List<RecordedExchange> exchanges = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    exchanges.add(gson.fromJson(line, RecordedExchange.class));
+                }
+            }
+        }
+        return exchanges;
+    }
+
+    @Override
+    public MockResponse dispatch(RecordedRequest request) {
+        HttpUrl url = request.getRequestUrl();
+        List<RecordedExchange> candidates = exchangesByEndpoint.get(request.getMethod() + " " + url.encodedPath());
+        if (candidates == null || candidates.isEmpty()) {
+            return new MockResponse().setResponseCode(404).setBody("沒有錄製: " + url.encodedPath());
+        }
+
+        double roll;
+        synchronized (random) {
+            roll = random.nextDouble();
+        }
+        if (roll < profile.disconnectRate) {
+            return new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START);
+        }
+        if (roll < profile.disconnectRate + profile.errorRate) {
+            return new MockResponse().setResponseCode(503)
+                    .setHeadersDelay(headersDelayMs(candidates), TimeUnit.MILLISECONDS);
+        }
+
+        RecordedExchange exchange = match(candidates, url);
+        MockResponse response = new MockResponse().setResponseCode(exchange.getStatus());
+        for (Map.Entry<String, String> header : exchange.getHeaders().entrySet()) {
+            response.setHeader(header.getKey(), header.getValue());
+        }
+        String body = exchange.getBody() != null ? exchange.getBody() : "";
+        response.setBody(body);
+        response.setHeadersDelay(headersDelayMs(candidates), TimeUnit.MILLISECONDS);
+
+        long bodyMs = bodyDurationMs(candidates);
+        long bytes = body.getBytes(StandardCharsets.UTF_8).length;
+        if (bodyMs > THROTTLE_PERIOD_MS && bytes > 0) {
+            long periods = bodyMs / THROTTLE_PERIOD_MS;
+            response.throttleBody(Math.max(1, bytes / periods), THROTTLE_PERIOD_MS, TimeUnit.MILLISECONDS);
+        }
+        return response;
+    }
+
+    /**
+     * 優先選擇查詢參數完全相同的錄製
+     */
+    private RecordedExchange match(List<RecordedExchange> candidates, HttpUrl url) {
+        for (RecordedExchange exchange : candidates) {
+            if (queryMatches(exchange, url)) {
+                return exchange;
+            }
+        }
+        return pick(candidates);
+    }
+
+    private static boolean queryMatches(RecordedExchange exchange, HttpUrl url) {
+        for (Map.Entry<String, String> entry : exchange.getQuery().entrySet()) {
+            if (!entry.getValue().equals(url.queryParameter(entry.getKey()))) {
+                return false;
+            }
+        }
+        return !exchange.getQuery().isEmpty();
+    }
+
+    private long headersDelayMs(List<RecordedExchange> candidates) {
+        if (profile.fixedHeadersMs >= 0) {
+            return withJitter(profile.fixedHeadersMs);
+        }
+        return withJitter(pick(candidates).getHeadersMs());
+    }
+
+    private long bodyDurationMs(List<RecordedExchange> candidates) {
+        if (profile.fixedBodyMs >= 0) {
+            return withJitter(profile.fixedBodyMs);
+        }
+        return withJitter(pick(candidates).getBodyMs());
+    }
+
+    private long withJitter(long delayMs) {
+        if (profile.jitterMs <= 0) {
+            return delayMs;
+        }
+        synchronized (random) {
+            return Math.max(0, delayMs + (long) ((random.nextDouble() * 2 - 1) * profile.jitterMs));
+        }
+    }
+
+    private RecordedExchange pick(List<RecordedExchange> candidates) {
+        synchronized (random) {
+            return candidates.get(random.nextInt(candidates.size()));
+        }
+    }
+
+    /**
+     * 重放的延遲和失敗配置
+     */
+    public static class LatencyProfile {
+        final long fixedHeadersMs;
+        final long fixedBodyMs;
+        final long jitterMs;
+        final double errorRate;
+        final double disconnectRate;
+
+        private LatencyProfile(long fixedHeadersMs, long fixedBodyMs, long jitterMs,
+                               double errorRate, double disconnectRate) {
+            this.fixedHeadersMs = fixedHeadersMs;
+            this.fixedBodyMs = fixedBodyMs;
+            this.jitterMs = jitterMs;
+            this.errorRate = errorRate;
+            this.disconnectRate = disconnectRate;
+        }
+
+        /**
+         * 按錄製的延遲分佈重放
+         */
+        public static LatencyProfile recorded() {
+            return new LatencyProfile(-1, -1, 0, 0, 0);
+        }
+
+        /**
+         * 固定延遲（回應頭延遲和回應體時長）
+         */
+        public static LatencyProfile fixed(long headersMs, long bodyMs) {
+            return new LatencyProfile(headersMs, bodyMs, 0, 0, 0);
+        }
+
+        /**
+         * 在每個延遲上加入 ±jitterMs 的均勻抖動
+         */
+        public LatencyProfile withJitter(long jitterMs) {
+            return new LatencyProfile(fixedHeadersMs, fixedBodyMs, jitterMs, errorRate, disconnectRate);
+        }
+
+        /**
+         * 注入失敗：errorRate 的請求返回 503，disconnectRate 的請求在連接時斷開
+         */
+        public LatencyProfile withFailures(double errorRate, double disconnectRate) {
+            return new LatencyProfile(fixedHeadersMs, fixedBodyMs, jitterMs, errorRate, disconnectRate);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package Model.Api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import Model.POJO.SpotifySearchResponse;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import retrofit2.Call;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * 重試策略測試
+ * MockWebServer 依次注入 5xx、連接斷開和慢回應等故障
+ */
+public class RetryPolicyTest {
+
+    private static final String EMPTY_SEARCH = "{\"tracks\":{\"items\":[]}}";
+
+    private MockWebServer server;
+    private SpotifyApiService service;
+    private final RetryPolicy policy = new RetryPolicy(3, 50, 200);
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        service = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(SpotifyApiService.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void retriesServerErrorAndConnectionResetThenSucceeds() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        server.enqueue(new MockResponse().setBody(EMPTY_SEARCH));
+
+        Response<SpotifySearchResponse> response = policy
+                .execute(search(), Deadline.after(5000), call -> { })
+                .get(10, TimeUnit.SECONDS);
+
+        assertEquals(200, response.code());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void stopsAfterMaxAttemptsAndReturnsLastResponse() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            server.enqueue(new MockResponse().setResponseCode(502));
+        }
+
+        Response<SpotifySearchResponse> response = policy
+                .execute(search(), Deadline.after(5000), call -> { })
+                .get(10, TimeUnit.SECONDS);
+
+        assertEquals(502, response.code());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void clientErrorIsNotRetried() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(400));
+        server.enqueue(new MockResponse().setBody(EMPTY_SEARCH));
+
+        Response<SpotifySearchResponse> response = policy
+                .execute(search(), Deadline.after(5000), call -> { })
+                .get(10, TimeUnit.SECONDS);
+
+        assertEquals(400, response.code());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void slowResponseIsCutOffByDeadline() throws Exception {
+        server.enqueue(new MockResponse().setBody(EMPTY_SEARCH).setHeadersDelay(3, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setBody(EMPTY_SEARCH).setHeadersDelay(3, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        try {
+            policy.execute(search(), Deadline.after(300), call -> { }).get(10, TimeUnit.SECONDS);
+            fail("超過 Deadline 的請求應該失敗");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue("等待了 " + elapsedMs + "ms", elapsedMs < 1500);
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void retriedCallsAreHandedToTracker() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setBody(EMPTY_SEARCH));
+
+        int[] tracked = {0};
+        policy.execute(search(), Deadline.after(5000), call -> tracked[0]++).get(10, TimeUnit.SECONDS);
+
+        assertEquals(1, tracked[0]);
+    }
+
+    @Test
+    public void backoffStaysWithinCap() {
+        for (int attempt = 1; attempt <= 10; attempt++) {
+            long delay = policy.backoffMs(attempt);
+            assertTrue(delay >= 0 && delay <= 200);
+        }
+    }
+
+    private Call<SpotifySearchResponse> search() {
+        return service.searchTracks("Bearer token", "query", "track", 1);
+    }
+}
@@ -0,0 +1,232 @@
+package Model.Api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import Util.TokenStore;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Spotify Token 自動續期測試
+ * 假的 Spotify：/api/token 發放新 Token，/v1/search 只接受當前有效的 Token
+ */
+public class SpotifyTokenAuthenticatorTest {
+
+    private static final long MARGIN_MS = TimeUnit.MINUTES.toMillis(5);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private final AtomicInteger refreshRequests = new AtomicInteger();
+    private final AtomicInteger searchRequests = new AtomicInteger();
+    private final AtomicInteger unauthorized = new AtomicInteger();
+    // 伺服器端在第幾個搜索請求之後讓舊 Token 過期
+    private volatile int oldTokenValidFor = Integer.MAX_VALUE;
+    private volatile int tokenStatus = 200;
+
+    private MemoryTokenStore store;
+    private SpotifyTokenRefresher refresher;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (request.getPath().startsWith("/api/token")) {
+                    refreshRequests.incrementAndGet();
+                    String body = request.getBody().readUtf8();
+                    if (tokenStatus != 200 || !body.contains("refresh_token=refresh")) {
+                        return new MockResponse().setResponseCode(400).setBody("{\"error\":\"invalid_grant\"}");
+                    }
+                    // 放慢刷新，讓並發的 401 在刷新進行中到達
+                    return new MockResponse().setBodyDelay(200, TimeUnit.MILLISECONDS)
+                            .setBody("{\"access_token\":\"new\",\"token_type\":\"Bearer\",\"expires_in\":3600}");
+                }
+                String authorization = request.getHeader("Authorization");
+                int index = searchRequests.incrementAndGet();
+                boolean valid = "Bearer new".equals(authorization)
+                        || ("Bearer old".equals(authorization) && index <= oldTokenValidFor);
+                if (!valid) {
+                    unauthorized.incrementAndGet();
+                    return new MockResponse().setResponseCode(401);
+                }
+                return new MockResponse().setBody("{\"tracks\":{\"items\":[]}}");
+            }
+        });
+        server.start();
+
+        store = new MemoryTokenStore("old", "refresh", System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1));
+        OkHttpClient plain = new OkHttpClient();
+        refresher = new SpotifyTokenRefresher(store, () -> plain, server.url("/api/token"), "client", MARGIN_MS);
+        SpotifyTokenAuthenticator authenticator = new SpotifyTokenAuthenticator(refresher);
+        client = new OkHttpClient.Builder().addInterceptor(authenticator).authenticator(authenticator).build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private int search(String token) throws Exception {
+        Request request = new Request.Builder().url(server.url("/v1/search?q=x"))
+                .header("Authorization", "Bearer " + token).build();
+        try (Response response = client.newCall(request).execute()) {
+            return response.code();
+        }
+    }
+
+    private List<Integer> burst(int size) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(size);
+        try {
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                tasks.add(() -> search("old"));
+            }
+            List<Integer> codes = new ArrayList<>();
+            for (Future<Integer> future : executor.invokeAll(tasks)) {
+                codes.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return codes;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void tokenExpiringMidBurstIsRefreshedOnce() throws Exception {
+        // 前 3 個搜索之後伺服器不再接受舊 Token
+        oldTokenValidFor = 3;
+
+        List<Integer> codes = burst(12);
+
+        for (int code : codes) {
+            assertEquals(200, code);
+        }
+        assertEquals(1, refreshRequests.get());
+        assertEquals(1, refresher.getRefreshCount());
+        assertEquals("new", store.getAccessToken());
+        assertTrue(unauthorized.get() > 0);
+    }
+
+    @Test
+    public void tokenNearExpiryIsRefreshedBeforeSending() throws Exception {
+        store.saveTokens("old", null, System.currentTimeMillis() + MARGIN_MS / 2);
+        oldTokenValidFor = 0;
+
+        List<Integer> codes = burst(8);
+
+        for (int code : codes) {
+            assertEquals(200, code);
+        }
+        assertEquals(1, refreshRequests.get());
+        // 提前刷新，伺服器從未看到過期的 Token
+        assertEquals(0, unauthorized.get());
+        assertTrue(store.getTokenExpiry() > System.currentTimeMillis() + MARGIN_MS);
+    }
+
+    @Test
+    public void failedRefreshReturnsUnauthorizedWithoutRetrying() throws Exception {
+        oldTokenValidFor = 0;
+        tokenStatus = 400;
+
+        assertEquals(401, search("old"));
+        assertEquals(401, search("old"));
+
+        // 失敗後的重試間隔內不再發出刷新請求
+        assertEquals(1, refreshRequests.get());
+        assertEquals("old", store.getAccessToken());
+    }
+
+    @Test
+    public void refreshRequestsAreNeverRecorded() throws Exception {
+        File file = folder.newFile("exchanges.jsonl");
+        ApiClient.setRecorder(new RecordingInterceptor(file));
+        try {
+            SpotifyTokenRefresher shared = new SpotifyTokenRefresher(store, ApiClient::getTokenClient,
+                    server.url("/api/token"), "client", MARGIN_MS);
+            assertEquals("new", shared.refreshAfterUnauthorized("old"));
+
+            // 共用客戶端上的普通請求照常錄製
+            Request request = new Request.Builder().url(server.url("/v1/search?q=x"))
+                    .header("Authorization", "Bearer new").build();
+            try (Response response = ApiClient.getOkHttpClient().newCall(request).execute()) {
+                assertEquals(200, response.code());
+            }
+
+            String recorded = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            assertTrue(recorded.contains("/v1/search"));
+            assertFalse(recorded.contains("/api/token"));
+            assertFalse(recorded.contains("access_token"));
+            assertEquals(1, refreshRequests.get());
+        } finally {
+            ApiClient.setRecorder(null);
+        }
+    }
+
+    /**
+     * 內存中的 Token 存儲
+     */
+    private static final class MemoryTokenStore implements TokenStore {
+        private volatile String accessToken;
+        private volatile String refreshToken;
+        private volatile long expiry;
+
+        MemoryTokenStore(String accessToken, String refreshToken, long expiry) {
+            this.accessToken = accessToken;
+            this.refreshToken = refreshToken;
+            this.expiry = expiry;
+        }
+
+        @Override
+        public String getAccessToken() {
+            return accessToken;
+        }
+
+        @Override
+        public String getRefreshToken() {
+            return refreshToken;
+        }
+
+        @Override
+        public long getTokenExpiry() {
+            return expiry;
+        }
+
+        @Override
+        public void saveTokens(String accessToken, String refreshToken, long expiryTimeMillis) {
+            this.accessToken = accessToken;
+            if (refreshToken != null) {
+                this.refreshToken = refreshToken;
+            }
+            this.expiry = expiryTimeMillis;
+        }
+    }
+}
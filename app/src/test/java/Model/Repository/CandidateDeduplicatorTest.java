@@ -0,0 +1,58 @@
+package Model.Repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Set;
+
+import Model.POJO.GeminiSong;
+
+/**
+ * 候選正規化與模糊去重測試
+ */
+public class CandidateDeduplicatorTest {
+
+    private final MusicRecommendationProcessor.NormalizeStage.Session session =
+            new CandidateDeduplicator().newSession();
+
+    @Test
+    public void variantsOfTheSameSongAreDropped() {
+        assertNotNull(session.normalize(new GeminiSong("Beyoncé Halo", "Beyoncé")));
+        assertNull(session.normalize(new GeminiSong("BEYONCE HALO (Remastered 2019)", "Beyonce")));
+        assertNull(session.normalize(new GeminiSong("Ｂｅｙｏｎｃｅ Ｈａｌｏ - Live Version", "Beyoncé feat. Jay-Z")));
+        assertNull(session.normalize(new GeminiSong("Beyonce Halo feat. Someone", "Beyonce")));
+    }
+
+    @Test
+    public void differentSongsAreKept() {
+        assertNotNull(session.normalize(new GeminiSong("Happy", "Pharrell Williams")));
+        // 同名不同歌手
+        assertNotNull(session.normalize(new GeminiSong("Happy", "Marina and the Diamonds")));
+        assertNotNull(session.normalize(new GeminiSong("Happy Together", "The Turtles")));
+        assertNotNull(session.normalize(new GeminiSong("晴天", "周杰倫")));
+        assertNotNull(session.normalize(new GeminiSong("晴天娃娃", "周杰倫")));
+        assertNull(session.normalize(new GeminiSong("晴天 (Live)", "周杰倫")));
+    }
+
+    @Test
+    public void featuringArtistIsRemovedForSearch() {
+        GeminiSong normalized = session.normalize(new GeminiSong("  Get Lucky ", "Daft Punk ft. Pharrell Williams"));
+
+        assertEquals("Get Lucky", normalized.getSongName());
+        assertEquals("Daft Punk", normalized.getArtist());
+        assertNull(session.normalize(new GeminiSong(" ", "Daft Punk")));
+    }
+
+    @Test
+    public void tokensFoldCaseAccentsAndWidth() {
+        Set<String> tokens = CandidateDeduplicator.tokens("Café ＤＥＬ Mar [Remix]");
+
+        assertEquals(Set.of("cafe", "del", "mar"), tokens);
+        assertEquals(Set.of("intro"), CandidateDeduplicator.tokens("(Intro)"));
+        assertTrue(CandidateDeduplicator.jaccard(Set.of("a", "b"), Set.of("a", "c")) < 0.5);
+    }
+}
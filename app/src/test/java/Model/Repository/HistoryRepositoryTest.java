@@ -0,0 +1,262 @@
+package Model.Repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import Model.Dao.RecommendationHistoryDao;
+import Model.Entity.HistoryEntryEntity;
+import Model.Entity.HistoryTrackEntity;
+import Model.Entity.RecommendationHistoryEntity;
+import Model.POJO.EmotionInput;
+import Model.POJO.HistoryPage;
+import Model.POJO.HistorySession;
+import Model.POJO.MusicItem;
+
+/**
+ * 推薦歷史測試
+ * 以內存中的假 DAO 驗證歌單順序、keyset 分頁和歌曲去重
+ */
+public class HistoryRepositoryTest {
+
+    private final FakeHistoryDao dao = new FakeHistoryDao();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final HistoryRepository repository = new HistoryRepository(dao, executor, Runnable::run);
+
+    @After
+    public void tearDown() {
+        repository.shutdown();
+    }
+
+    private static MusicItem track(String id) {
+        return new MusicItem("song-" + id, "artist", null, null, id, 1000);
+    }
+
+    private static List<String> ids(List<MusicItem> items) {
+        List<String> ids = new ArrayList<>();
+        for (MusicItem item : items) {
+            ids.add(item.getSpotifyTrackId());
+        }
+        return ids;
+    }
+
+    private static <T> T await(Consumer<HistoryRepository.Callback<T>> call) throws Exception {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        call.accept(result::complete);
+        return result.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void latestSessionRestoresTracksInOrder() throws Exception {
+        assertNull(await(repository::loadLatest));
+
+        repository.recordText("下雨天", List.of(track("a"), track("b")));
+        repository.recordEmotion(new EmotionInput(80, 10, 0, 0, 10), List.of(track("c"), track("a"), track("d")));
+
+        HistorySession latest = await(repository::loadLatest);
+        assertEquals(List.of("c", "a", "d"), ids(latest.getItems()));
+        assertEquals(80, latest.getEmotionInput().getHappy());
+        assertNull(latest.getEmotionText());
+    }
+
+    @Test
+    public void pagesFollowKeysetCursor() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            repository.recordText("text-" + i, List.of(track("t" + i)));
+        }
+
+        HistoryPage first = await(callback -> repository.loadPage(null, 2, callback));
+        assertTrue(first.hasMore());
+        assertEquals("text-4", first.getSessions().get(0).getEmotionText());
+        assertEquals("text-3", first.getLastSession().getEmotionText());
+
+        HistoryPage second = await(callback -> repository.loadPage(first.getLastSession(), 2, callback));
+        assertEquals("text-2", second.getSessions().get(0).getEmotionText());
+        assertTrue(second.hasMore());
+
+        HistoryPage third = await(callback -> repository.loadPage(second.getLastSession(), 2, callback));
+        assertEquals(1, third.getSessions().size());
+        assertEquals(List.of("t0"), ids(third.getLastSession().getItems()));
+        assertFalse(third.hasMore());
+    }
+
+    @Test
+    public void emotionHistoryFeedsOfflineRecommender() throws Exception {
+        OfflineRecommender live = new OfflineRecommender(null, null, dao);
+        HistoryRepository feeding = new HistoryRepository(dao, executor, Runnable::run, live);
+        feeding.recordEmotion(new EmotionInput(90, 0, 0, 0, 0), List.of(track("happy")));
+        feeding.recordEmotion(new EmotionInput(0, 90, 0, 0, 0), List.of(track("sad")));
+        // 直接輸入沒有情緒向量
+        feeding.recordText("下雨天", List.of(track("rain")));
+        // 單線程執行器：回調到達時之前的寫入都已完成
+        await(feeding::loadLatest);
+
+        assertEquals(List.of("sad"), ids(live.recommend(new EmotionInput(0, 80, 0, 0, 0), 1)));
+
+        // 重新啟動後從推薦歷史載入
+        OfflineRecommender restarted = new OfflineRecommender(null, null, dao);
+        assertEquals(2, restarted.size());
+        assertEquals(List.of("happy", "sad"), ids(restarted.recommend(new EmotionInput(80, 10, 0, 0, 0), 5)));
+    }
+
+    @Test
+    public void repeatedIdenticalSessionIsMergedIntoLatest() throws Exception {
+        EmotionInput input = new EmotionInput(60, 20, 0, 0, 0);
+        repository.recordEmotion(input, List.of(track("a"), track("b")));
+        await(repository::loadLatest);
+        long firstTimestamp = dao.history.get(0).getCreatedTimestamp();
+        Thread.sleep(5);
+
+        // 推薦緩存回放：同樣的輸入和歌單
+        repository.recordEmotion(new EmotionInput(60, 20, 0, 0, 0), List.of(track("a"), track("b")));
+        await(repository::loadLatest);
+        assertEquals(1, dao.history.size());
+        assertTrue(dao.history.get(0).getCreatedTimestamp() > firstTimestamp);
+
+        // 歌單不同或輸入不同時照常保存
+        repository.recordEmotion(input, List.of(track("b"), track("a")));
+        repository.recordText("60", List.of(track("b"), track("a")));
+        await(repository::loadLatest);
+        assertEquals(3, dao.history.size());
+    }
+
+    @Test
+    public void sharedTracksAreStoredOnce() throws Exception {
+        repository.recordText("一", List.of(track("a"), track("b")));
+        repository.recordText("二", List.of(track("b"), track("c")));
+        // 沒有有效歌曲時不保存
+        repository.recordText("三", List.of(new MusicItem("x", "y", null, null)));
+
+        await(repository::loadLatest);
+        assertEquals(2, dao.history.size());
+        assertEquals(3, dao.tracks.size());
+        assertEquals(4, dao.entries.size());
+    }
+
+    /**
+     * 內存中的 DAO，排序與 SQL 一致（時間倒序，同一時間按 id 倒序）
+     */
+    private static final class FakeHistoryDao implements RecommendationHistoryDao {
+
+        private static final Comparator<RecommendationHistoryEntity> NEWEST_FIRST =
+                Comparator.comparingLong(RecommendationHistoryEntity::getCreatedTimestamp)
+                        .thenComparingLong(RecommendationHistoryEntity::getId).reversed();
+
+        final List<RecommendationHistoryEntity> history = new ArrayList<>();
+        final Map<String, HistoryTrackEntity> tracks = new HashMap<>();
+        final List<HistoryEntryEntity> entries = new ArrayList<>();
+        private long nextId = 1;
+
+        @Override
+        public long insertHistory(RecommendationHistoryEntity entity) {
+            entity.setId(nextId++);
+            history.add(entity);
+            return entity.getId();
+        }
+
+        @Override
+        public void upsertTracks(List<HistoryTrackEntity> list) {
+            for (HistoryTrackEntity track : list) {
+                tracks.put(track.getTrackId(), track);
+            }
+        }
+
+        @Override
+        public void insertEntries(List<HistoryEntryEntity> list) {
+            entries.addAll(list);
+        }
+
+        @Override
+        public List<RecommendationHistoryEntity> getFirstPage(int limit) {
+            return getPageBefore(Long.MAX_VALUE, Long.MAX_VALUE, limit);
+        }
+
+        @Override
+        public List<RecommendationHistoryEntity> getPageBefore(long beforeTimestamp, long beforeId, int limit) {
+            List<RecommendationHistoryEntity> page = new ArrayList<>();
+            for (RecommendationHistoryEntity entity : history) {
+                if (entity.getCreatedTimestamp() < beforeTimestamp
+                        || (entity.getCreatedTimestamp() == beforeTimestamp && entity.getId() < beforeId)) {
+                    page.add(entity);
+                }
+            }
+            page.sort(NEWEST_FIRST);
+            return new ArrayList<>(page.subList(0, Math.min(limit, page.size())));
+        }
+
+        @Override
+        public List<HistoryTrackRow> getTracks(List<Long> historyIds) {
+            List<HistoryTrackRow> rows = new ArrayList<>();
+            for (HistoryEntryEntity entry : entries) {
+                if (historyIds.contains(entry.getHistoryId())) {
+                    HistoryTrackRow row = new HistoryTrackRow();
+                    row.historyId = entry.getHistoryId();
+                    row.position = entry.getPosition();
+                    row.track = tracks.get(entry.getTrackId());
+                    rows.add(row);
+                }
+            }
+            rows.sort(Comparator.<HistoryTrackRow>comparingLong(row -> row.historyId)
+                    .thenComparingInt(row -> row.position));
+            return rows;
+        }
+
+        @Override
+        public int touch(long id, long timestamp) {
+            for (RecommendationHistoryEntity entity : history) {
+                if (entity.getId() == id) {
+                    entity.setCreatedTimestamp(timestamp);
+                    return 1;
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public int deleteOlderThan(long cutoff) {
+            int before = history.size();
+            history.removeIf(entity -> entity.getCreatedTimestamp() < cutoff);
+            return before - history.size();
+        }
+
+        @Override
+        public int trimToSize(int keep) {
+            history.sort(NEWEST_FIRST);
+            int removed = 0;
+            while (history.size() > keep) {
+                history.remove(history.size() - 1);
+                removed++;
+            }
+            return removed;
+        }
+
+        @Override
+        public int deleteOrphanEntries() {
+            int before = entries.size();
+            entries.removeIf(entry -> history.stream().noneMatch(entity -> entity.getId() == entry.getHistoryId()));
+            return before - entries.size();
+        }
+
+        @Override
+        public int deleteOrphanTracks() {
+            int before = tracks.size();
+            tracks.keySet().removeIf(id -> entries.stream().noneMatch(entry -> entry.getTrackId().equals(id)));
+            return before - tracks.size();
+        }
+    }
+}
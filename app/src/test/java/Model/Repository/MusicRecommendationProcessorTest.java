@@ -0,0 +1,228 @@
+package Model.Repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import Model.Api.ApiGson;
+import Model.Api.Deadline;
+import Model.POJO.GeminiSong;
+import Model.POJO.MusicItem;
+
+/**
+ * 推薦流水線引擎測試
+ * 以假的 LLM 和 RESOLVE 階段驗證階段串接、NORMALIZE 丟棄、RANK 排序、階段超時和耗時統計
+ */
+public class MusicRecommendationProcessorTest {
+
+    private static final String SONGS = "[{\"song_name\":\"A\",\"artist\":\"x\"},"
+            + "{\"song_name\":\"B\",\"artist\":\"x\"},{\"song_name\":\"C\",\"artist\":\"x\"}]";
+
+    private static MusicRecommendationProcessor.Builder pipeline() {
+        return MusicRecommendationProcessor.builder()
+                .prompt(query -> "prompt:" + query.getEmotionText())
+                // 分兩段回調，模擬串流
+                .llm((prompt, listener, collector) -> {
+                    listener.onTextChunk(SONGS.substring(0, 20));
+                    listener.onTextChunk(SONGS.substring(20));
+                    return CompletableFuture.completedFuture(null);
+                })
+                .parse(listener -> new SongStreamParser(ApiGson.get().getAdapter(GeminiSong.class), listener))
+                .resolve((query, song, collector) -> CompletableFuture.completedFuture(
+                        new MusicItem(song.getSongName(), song.getArtist(), null, "id-" + song.getSongName())))
+                .candidates(8, 15);
+    }
+
+    private static List<MusicItem> run(MusicRecommendationProcessor processor) throws Exception {
+        RecommendationFlight flight = new RecommendationFlight(new MusicRepository.ProgressiveMusicCallback() {
+            @Override
+            public void onItemResolved(MusicItem item, int slot) {
+            }
+
+            @Override
+            public void onComplete(List<MusicItem> musicItems) {
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+            }
+        }, Deadline.after(10_000));
+        return processor.process(RecommendationQuery.forText("開心", "token"), flight).get(5, TimeUnit.SECONDS);
+    }
+
+    private static List<String> ids(List<MusicItem> items) {
+        List<String> ids = new ArrayList<>();
+        for (MusicItem item : items) {
+            ids.add(item.getSpotifyTrackId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void stagesRunInOrderAndRecordMetrics() throws Exception {
+        MusicRecommendationProcessor processor = pipeline()
+                // 丟棄 B，並把結果倒序
+                .normalize(() -> song -> "B".equals(song.getSongName()) ? null : song)
+                .rank((query, winners) -> {
+                    List<MusicItem> ranked = new ArrayList<>(winners);
+                    Collections.reverse(ranked);
+                    return ranked;
+                })
+                .build();
+
+        assertEquals(List.of("id-C", "id-A"), ids(run(processor)));
+
+        assertEquals(1, processor.getMetrics(MusicRecommendationProcessor.Stage.PROMPT).getInvocationCount());
+        assertEquals(1, processor.getMetrics(MusicRecommendationProcessor.Stage.LLM).getInvocationCount());
+        assertEquals(2, processor.getMetrics(MusicRecommendationProcessor.Stage.PARSE).getInvocationCount());
+        assertEquals(3, processor.getMetrics(MusicRecommendationProcessor.Stage.NORMALIZE).getInvocationCount());
+        assertEquals(2, processor.getMetrics(MusicRecommendationProcessor.Stage.RESOLVE).getInvocationCount());
+        assertEquals(1, processor.getMetrics(MusicRecommendationProcessor.Stage.RANK).getInvocationCount());
+    }
+
+    @Test
+    public void resolveTimeoutDropsOnlyThatCandidate() throws Exception {
+        MusicRecommendationProcessor processor = pipeline()
+                .resolve((query, song, collector) -> "B".equals(song.getSongName())
+                        ? new CompletableFuture<>()
+                        : CompletableFuture.completedFuture(
+                                new MusicItem(song.getSongName(), song.getArtist(), null, "id-" + song.getSongName())))
+                .options(MusicRecommendationProcessor.Stage.RESOLVE,
+                        new MusicRecommendationProcessor.StageOptions(Runnable::run, 100))
+                .build();
+
+        assertEquals(List.of("id-A", "id-C"), ids(run(processor)));
+
+        MusicRecommendationProcessor.StageMetrics resolve =
+                processor.getMetrics(MusicRecommendationProcessor.Stage.RESOLVE);
+        assertEquals(1, resolve.getTimeoutCount());
+        assertEquals(1, resolve.getFailureCount());
+        assertTrue(resolve.getLatency().percentile(1.0) >= 100);
+    }
+
+    @Test
+    public void processorsFromOneBuilderShareMetrics() throws Exception {
+        MusicRecommendationProcessor.Builder builder = pipeline();
+        MusicRecommendationProcessor first = builder.build();
+        MusicRecommendationProcessor second = builder.build();
+
+        run(first);
+        run(second);
+
+        assertEquals(2, second.getMetrics(MusicRecommendationProcessor.Stage.LLM).getInvocationCount());
+    }
+
+    @Test
+    public void duplicateTrackIdsAreBackfilledFromSpareCandidates() throws Exception {
+        // A 和 B 解析到同一首歌，候選上限 2 時由 C 補位
+        MusicRecommendationProcessor processor = pipeline()
+                .resolve((query, song, collector) -> CompletableFuture.completedFuture(new MusicItem(
+                        song.getSongName(), song.getArtist(), null, "C".equals(song.getSongName()) ? "id-C" : "id-A")))
+                .candidates(2, 2)
+                .build();
+
+        assertEquals(List.of("id-A", "id-C"), ids(run(processor)));
+    }
+
+    @Test
+    public void duplicateResolvedAfterParsingStillBackfills() throws Exception {
+        // 搜索異步完成：A 和 B 的重複在整個陣列解析完之後才被發現，C 早已超出候選上限
+        AtomicBoolean parsed = new AtomicBoolean(false);
+        AtomicBoolean resolvedBeforeParsed = new AtomicBoolean(false);
+        Executor later = CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS);
+        MusicRecommendationProcessor processor = pipeline()
+                .llm((prompt, listener, collector) -> {
+                    listener.onTextChunk(SONGS);
+                    parsed.set(true);
+                    return CompletableFuture.completedFuture(null);
+                })
+                .resolve((query, song, collector) -> CompletableFuture.supplyAsync(() -> {
+                    if (!parsed.get()) {
+                        resolvedBeforeParsed.set(true);
+                    }
+                    return new MusicItem(song.getSongName(), song.getArtist(), null,
+                            "C".equals(song.getSongName()) ? "id-C" : "id-A");
+                }, later))
+                .candidates(2, 2)
+                .build();
+
+        assertEquals(List.of("id-A", "id-C"), ids(run(processor)));
+        assertFalse(resolvedBeforeParsed.get());
+        assertEquals(3, processor.getMetrics(MusicRecommendationProcessor.Stage.RESOLVE).getInvocationCount());
+    }
+
+    @Test
+    public void parseAndNormalizeOnThreadPoolsKeepOrderAndFinishBeforeClose() throws Exception {
+        ExecutorService parsePool = Executors.newFixedThreadPool(4);
+        ExecutorService normalizePool = Executors.newFixedThreadPool(4);
+        try {
+            MusicRecommendationProcessor processor = pipeline()
+                    // 逐字回調：片段並發執行時解析器會看到錯亂的文本
+                    .llm((prompt, listener, collector) -> {
+                        for (int i = 0; i < SONGS.length(); i++) {
+                            listener.onTextChunk(SONGS.substring(i, i + 1));
+                        }
+                        return CompletableFuture.completedFuture(null);
+                    })
+                    // NORMALIZE 比 LLM 慢，生成結束時還沒有任何候選
+                    .normalize(() -> song -> {
+                        try {
+                            Thread.sleep(50);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return song;
+                    })
+                    .options(MusicRecommendationProcessor.Stage.PARSE,
+                            new MusicRecommendationProcessor.StageOptions(parsePool, 0))
+                    .options(MusicRecommendationProcessor.Stage.NORMALIZE,
+                            new MusicRecommendationProcessor.StageOptions(normalizePool, 0))
+                    .build();
+
+            assertEquals(List.of("id-A", "id-B", "id-C"), ids(run(processor)));
+            assertEquals(SONGS.length(),
+                    processor.getMetrics(MusicRecommendationProcessor.Stage.PARSE).getInvocationCount());
+        } finally {
+            parsePool.shutdown();
+            normalizePool.shutdown();
+        }
+    }
+
+    @Test
+    public void normalizeFailureFailsTheRun() throws Exception {
+        ExecutorService normalizePool = Executors.newFixedThreadPool(2);
+        try {
+            MusicRecommendationProcessor processor = pipeline()
+                    .normalize(() -> song -> {
+                        throw new IllegalStateException("normalize failed");
+                    })
+                    .options(MusicRecommendationProcessor.Stage.NORMALIZE,
+                            new MusicRecommendationProcessor.StageOptions(normalizePool, 0))
+                    .build();
+
+            try {
+                run(processor);
+                fail("應以 NORMALIZE 的異常失敗");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+            assertEquals(0, processor.getMetrics(MusicRecommendationProcessor.Stage.RESOLVE).getInvocationCount());
+        } finally {
+            normalizePool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package Model.Repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import Model.Api.GeminiApiService;
+import Model.Api.HedgingPolicy;
+import Model.Api.SpotifyApiService;
+import Model.POJO.MusicItem;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * 完成模式和對沖開關測試
+ * Gemini 返回 10 首候選：第 3 首的搜索很慢，第 6 首沒有結果
+ */
+public class MusicRepositoryCompletionTest {
+
+    private static final String[] SONGS = {
+            "Alpha", "Bravo", "Charlie", "Delta", "Echo", "Foxtrot", "Golf", "Hotel", "India", "Juliet"
+    };
+    private static final String SLOW_SONG = "Charlie";
+    private static final String MISSING_SONG = "Foxtrot";
+    private static final long SLOW_SEARCH_MS = 2000;
+
+    private final Gson gson = new Gson();
+    private MockWebServer server;
+    private MusicRepository repository;
+    // 收到過搜索請求的歌名（對沖副本不重複計算）
+    private final Set<String> searchedSongs = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger searchRequestCount = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String path = request.getPath();
+                if (path.contains("generateContent")) {
+                    return new MockResponse().setBody(buildGeminiResponse());
+                }
+                if (path.startsWith("/v1/search")) {
+                    String query = request.getRequestUrl().queryParameter("q");
+                    String songName = query.substring("track:".length(), query.indexOf(" artist:"));
+                    searchedSongs.add(songName);
+                    searchRequestCount.incrementAndGet();
+                    MockResponse response = new MockResponse().setBody(buildSearchBody(songName));
+                    if (songName.equals(SLOW_SONG)) {
+                        response.setHeadersDelay(SLOW_SEARCH_MS, TimeUnit.MILLISECONDS);
+                    }
+                    return response;
+                }
+                return new MockResponse().setResponseCode(404);
+            }
+        });
+        server.start();
+
+        Retrofit retrofit = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .addConverterFactory(GsonConverterFactory.create())
+                .build();
+        repository = new MusicRepository(
+                retrofit.create(GeminiApiService.class),
+                retrofit.create(SpotifyApiService.class),
+                Executors.newFixedThreadPool(5),
+                null,
+                null,
+                null);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        repository.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void firstNCompletionSkipsSlowCandidate() throws Exception {
+        long start = System.nanoTime();
+        List<MusicItem> items = recommend("first n");
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // 後兩首候選補上慢的和沒有結果的兩首，不等待慢的搜索
+        assertEquals(8, items.size());
+        assertFalse(ids(items).contains("id-" + SLOW_SONG));
+        assertEquals("id-Juliet", items.get(7).getSpotifyTrackId());
+        assertTrue("耗時 " + elapsedMs + "ms", elapsedMs < SLOW_SEARCH_MS);
+        assertEquals(SONGS.length, searchedSongs.size());
+    }
+
+    @Test
+    public void disabledFirstNSearchesOnlyTargetAndWaitsForAll() throws Exception {
+        repository.setFirstNCompletionEnabled(false);
+
+        List<MusicItem> items = recommend("wait for all");
+
+        // 只搜索前 8 首，等到慢的搜索返回；沒有結果的一首不補位
+        assertEquals(8, searchedSongs.size());
+        assertFalse(searchedSongs.contains("India"));
+        assertFalse(searchedSongs.contains("Juliet"));
+        assertEquals(7, items.size());
+        assertEquals("id-" + SLOW_SONG, items.get(2).getSpotifyTrackId());
+        assertFalse(ids(items).contains("id-" + MISSING_SONG));
+    }
+
+    @Test
+    public void hedgingToggleDecidesWhetherSearchesAreHedged() throws Exception {
+        HedgingPolicy hedging = MusicRepository.getSearchHedging();
+
+        long requestsBefore = hedging.getRequestCount();
+        recommend("hedged");
+        assertEquals(SONGS.length, hedging.getRequestCount() - requestsBefore);
+
+        repository.setHedgingEnabled(false);
+        requestsBefore = hedging.getRequestCount();
+        long hedgesBefore = hedging.getHedgeCount();
+        searchRequestCount.set(0);
+        recommend("not hedged");
+
+        // 搜索不再經過對沖策略，每首候選只發出一個請求
+        assertEquals(requestsBefore, hedging.getRequestCount());
+        assertEquals(hedgesBefore, hedging.getHedgeCount());
+        assertEquals(SONGS.length, searchRequestCount.get());
+    }
+
+    private List<MusicItem> recommend(String emotionText) throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<List<MusicItem>> result = new AtomicReference<>();
+        AtomicReference<String> error = new AtomicReference<>();
+        repository.getMusicByDirectText(emotionText, "token", new MusicRepository.MusicRepositoryCallback() {
+            @Override
+            public void onSuccess(List<MusicItem> musicItems) {
+                result.set(musicItems);
+                latch.countDown();
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+                error.set(errorMessage);
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertNull(error.get());
+        return result.get();
+    }
+
+    private static List<String> ids(List<MusicItem> items) {
+        List<String> ids = new ArrayList<>();
+        for (MusicItem item : items) {
+            ids.add(item.getSpotifyTrackId());
+        }
+        return ids;
+    }
+
+    private String buildGeminiResponse() {
+        JsonArray songs = new JsonArray();
+        for (String name : SONGS) {
+            JsonObject song = new JsonObject();
+            song.addProperty("song_name", name);
+            song.addProperty("artist", name + " Band");
+            songs.add(song);
+        }
+        JsonObject part = new JsonObject();
+        part.addProperty("text", gson.toJson(songs));
+        JsonArray parts = new JsonArray();
+        parts.add(part);
+        JsonObject content = new JsonObject();
+        content.add("parts", parts);
+        JsonObject candidate = new JsonObject();
+        candidate.add("content", content);
+        JsonArray candidates = new JsonArray();
+        candidates.add(candidate);
+        JsonObject response = new JsonObject();
+        response.add("candidates", candidates);
+        return gson.toJson(response);
+    }
+
+    private String buildSearchBody(String songName) {
+        JsonArray items = new JsonArray();
+        if (!songName.equals(MISSING_SONG)) {
+            JsonObject artist = new JsonObject();
+            artist.addProperty("name", songName + " Band");
+            JsonArray artists = new JsonArray();
+            artists.add(artist);
+            JsonObject track = new JsonObject();
+            track.addProperty("id", "id-" + songName);
+            track.addProperty("name", songName);
+            track.add("artists", artists);
+            track.addProperty("duration_ms", 180000);
+            items.add(track);
+        }
+        JsonObject tracks = new JsonObject();
+        tracks.add("items", items);
+        JsonObject root = new JsonObject();
+        root.add("tracks", tracks);
+        return gson.toJson(root);
+    }
+}
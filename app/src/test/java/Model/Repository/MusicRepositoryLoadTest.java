@@ -0,0 +1,226 @@
+package Model.Repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import Model.Api.GeminiApiService;
+import Model.Api.SpotifyApiService;
+import Model.POJO.EmotionInput;
+import Model.POJO.MusicItem;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * 並發負載測試
+ * 20 個不同的推薦請求同時發出，而倉庫線程池只有 5 個線程：
+ * 如果流水線在線程上阻塞等待 I/O，請求只能分批執行甚至互相餓死
+ */
+public class MusicRepositoryLoadTest {
+
+    private static final int CONCURRENT_REQUESTS = 20;
+    private static final int POOL_SIZE = 5;
+    private static final int SONG_COUNT = 10;
+    private static final long SEARCH_DELAY_MS = 20;
+
+    private final Gson gson = new Gson();
+    private MockWebServer server;
+    private MusicRepository repository;
+    private String sseBody;
+
+    @Before
+    public void setUp() throws Exception {
+        sseBody = buildSseBody();
+
+        server = new MockWebServer();
+        server.setDispatcher(new okhttp3.mockwebserver.Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String path = request.getPath();
+                if (path.contains("streamGenerateContent")) {
+                    return new MockResponse()
+                            .setHeader("Content-Type", "text/event-stream")
+                            .setChunkedBody(sseBody, 64)
+                            .throttleBody(64, 50, TimeUnit.MILLISECONDS);
+                }
+                if (path.contains("generateContent")) {
+                    return new MockResponse()
+                            .setBody(buildGeminiEvent(buildSongArray()))
+                            .setHeadersDelay(streamDurationMs(), TimeUnit.MILLISECONDS);
+                }
+                if (path.startsWith("/v1/search")) {
+                    String query = request.getRequestUrl().queryParameter("q");
+                    return new MockResponse()
+                            .setBody(buildSearchBody(query))
+                            .setHeadersDelay(SEARCH_DELAY_MS, TimeUnit.MILLISECONDS);
+                }
+                return new MockResponse().setResponseCode(404);
+            }
+        });
+        server.start();
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(256);
+        dispatcher.setMaxRequestsPerHost(256);
+        OkHttpClient client = new OkHttpClient.Builder().dispatcher(dispatcher).build();
+        Retrofit retrofit = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .client(client)
+                .addConverterFactory(GsonConverterFactory.create())
+                .build();
+
+        ExecutorService executor = Executors.newFixedThreadPool(POOL_SIZE);
+        repository = new MusicRepository(
+                retrofit.create(GeminiApiService.class),
+                retrofit.create(SpotifyApiService.class),
+                executor,
+                null,
+                null,
+                null);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        repository.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void concurrentRequestsCompleteWithoutPoolStarvation() throws Exception {
+        CountDownLatch latch = new CountDownLatch(CONCURRENT_REQUESTS);
+        ConcurrentLinkedQueue<Integer> resultSizes = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<String> errors = new ConcurrentLinkedQueue<>();
+
+        MusicRepository.ProgressiveMusicCallback callback = new MusicRepository.ProgressiveMusicCallback() {
+            @Override
+            public void onItemResolved(MusicItem item, int slot) {
+            }
+
+            @Override
+            public void onComplete(List<MusicItem> musicItems) {
+                resultSizes.add(musicItems.size());
+                latch.countDown();
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+                errors.add(errorMessage);
+                latch.countDown();
+            }
+        };
+
+        long start = System.nanoTime();
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            // 不同的情緒數值，避免被合併為同一請求
+            EmotionInput emotionInput = new EmotionInput(i, 100 - i, 0, 0, 0);
+            if (i % 2 == 0) {
+                repository.getMusicRecommendationsProgressive(emotionInput, "token", callback);
+            } else {
+                repository.getMusicByDirectTextProgressive("mood " + i, "token", callback);
+            }
+        }
+
+        assertTrue("請求未在時限內全部完成", latch.await(30, TimeUnit.SECONDS));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue("出現錯誤: " + errors, errors.isEmpty());
+        assertEquals(CONCURRENT_REQUESTS, resultSizes.size());
+        for (int size : resultSizes) {
+            assertEquals(8, size);
+        }
+
+        // 若每個請求佔用一個線程直到結束，20 個請求至少要分 4 批串行執行
+        long batchedLowerBoundMs = (long) Math.ceil((double) CONCURRENT_REQUESTS / POOL_SIZE) * streamDurationMs();
+        // Spotify 搜索經過共用的並發限制器排隊，這裡只要求快於分批執行
+        assertTrue("耗時 " + elapsedMs + "ms，未快於分批執行的下限 " + batchedLowerBoundMs + "ms",
+                elapsedMs < batchedLowerBoundMs);
+    }
+
+    /**
+     * 推薦串流按 64 bytes / 50ms 限速時的大致時長
+     */
+    private long streamDurationMs() {
+        return sseBody.length() / 64 * 50;
+    }
+
+    private String buildSongArray() {
+        JsonArray songs = new JsonArray();
+        for (int i = 0; i < SONG_COUNT; i++) {
+            JsonObject song = new JsonObject();
+            song.addProperty("song_name", "Song " + i);
+            song.addProperty("artist", "Artist " + i);
+            songs.add(song);
+        }
+        return gson.toJson(songs);
+    }
+
+    /**
+     * 將歌曲陣列逐首切成 SSE 事件
+     */
+    private String buildSseBody() {
+        String songArray = buildSongArray();
+        StringBuilder body = new StringBuilder();
+        int chunkSize = songArray.length() / SONG_COUNT;
+        for (int offset = 0; offset < songArray.length(); offset += chunkSize) {
+            String fragment = songArray.substring(offset, Math.min(songArray.length(), offset + chunkSize));
+            body.append("data: ").append(buildGeminiEvent(fragment)).append("\r\n\r\n");
+        }
+        return body.toString();
+    }
+
+    private String buildGeminiEvent(String text) {
+        JsonObject part = new JsonObject();
+        part.addProperty("text", text);
+        JsonArray parts = new JsonArray();
+        parts.add(part);
+        JsonObject content = new JsonObject();
+        content.add("parts", parts);
+        content.addProperty("role", "model");
+        JsonObject candidate = new JsonObject();
+        candidate.add("content", content);
+        JsonArray candidates = new JsonArray();
+        candidates.add(candidate);
+        JsonObject event = new JsonObject();
+        event.add("candidates", candidates);
+        return gson.toJson(event);
+    }
+
+    private String buildSearchBody(String query) {
+        String songName = query.substring("track:".length(), query.indexOf(" artist:"));
+        JsonObject artist = new JsonObject();
+        artist.addProperty("name", "Artist");
+        JsonArray artists = new JsonArray();
+        artists.add(artist);
+        JsonObject track = new JsonObject();
+        track.addProperty("id", "id-" + songName);
+        track.addProperty("name", songName);
+        track.add("artists", artists);
+        track.addProperty("duration_ms", 180000);
+        JsonArray items = new JsonArray();
+        items.add(track);
+        JsonObject tracks = new JsonObject();
+        tracks.add("items", items);
+        JsonObject root = new JsonObject();
+        root.add("tracks", tracks);
+        return gson.toJson(root);
+    }
+}
@@ -0,0 +1,412 @@
+package Model.Repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import Model.Api.GeminiApiService;
+import Model.Api.SpotifyApiService;
+import Model.POJO.EmotionInput;
+import Model.POJO.GeminiSong;
+import Model.POJO.MusicItem;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * 串流推薦流程測試
+ * 以 MockWebServer 重放分段的 Gemini SSE 串流，驗證歌曲在串流結束前就開始 Spotify 搜索
+ */
+public class MusicRepositoryStreamingTest {
+
+    // 故意在字串、轉義符和物件中間切開，並帶上 Markdown 標記
+    private static final String[] FRAGMENTS = {
+            "```json\n[{\"song_name\":\"Hap",
+            "py\",\"artist\":\"Pharrell Williams\"},",
+            " {\"song_name\":\"Say \\\"Hi\\",
+            "\\\\\"\",\"artist\":\"A {curly} band\"}",
+            ",{\"song_name\":\"Unknown Song\",\"artist\":\"Nobody\"},",
+            "{\"song_name\":\"Walking on Sunshine\",",
+            "\"artist\":\"Katrina and the Waves\"}]",
+            "\n```"
+    };
+
+    private final Gson gson = new Gson();
+    private MockWebServer server;
+    private ExecutorService executor;
+    private MusicRepository repository;
+
+    private final AtomicLong geminiRequestAt = new AtomicLong();
+    private final AtomicLong firstSearchAt = new AtomicLong();
+    private final AtomicInteger geminiRequestCount = new AtomicInteger();
+    private final AtomicInteger searchRequestCount = new AtomicInteger();
+    private final AtomicReference<String> geminiRequestBody = new AtomicReference<>();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String path = request.getPath();
+                if (path.contains("streamGenerateContent")) {
+                    geminiRequestAt.compareAndSet(0, System.nanoTime());
+                    geminiRequestCount.incrementAndGet();
+                    geminiRequestBody.compareAndSet(null, request.getBody().readUtf8());
+                    return new MockResponse()
+                            .setHeader("Content-Type", "text/event-stream")
+                            .setChunkedBody(buildSseBody(), 64)
+                            .throttleBody(64, 50, TimeUnit.MILLISECONDS);
+                }
+                if (path.startsWith("/v1/search")) {
+                    firstSearchAt.compareAndSet(0, System.nanoTime());
+                    searchRequestCount.incrementAndGet();
+                    String query = request.getRequestUrl().queryParameter("q");
+                    return new MockResponse().setBody(buildSearchBody(query));
+                }
+                return new MockResponse().setResponseCode(404);
+            }
+        });
+        server.start();
+
+        OkHttpClient client = new OkHttpClient();
+        Retrofit retrofit = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .client(client)
+                .addConverterFactory(GsonConverterFactory.create())
+                .build();
+
+        executor = Executors.newFixedThreadPool(5);
+        repository = new MusicRepository(
+                retrofit.create(GeminiApiService.class),
+                retrofit.create(SpotifyApiService.class),
+                executor,
+                null,
+                null,
+                null);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        repository.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void streamingResolvesTracksInGeminiOrder() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<List<MusicItem>> result = new AtomicReference<>();
+        AtomicReference<String> error = new AtomicReference<>();
+
+        repository.getMusicRecommendationsStreaming(new EmotionInput(80, 10, 0, 0, 5), "token",
+                new MusicRepository.MusicRepositoryCallback() {
+                    @Override
+                    public void onSuccess(List<MusicItem> musicItems) {
+                        result.set(musicItems);
+                        latch.countDown();
+                    }
+
+                    @Override
+                    public void onError(String errorMessage) {
+                        error.set(errorMessage);
+                        latch.countDown();
+                    }
+                });
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertNull(error.get());
+
+        List<MusicItem> items = result.get();
+        assertNotNull(items);
+        // "Unknown Song" 搜索無結果，被過濾
+        assertEquals(3, items.size());
+        assertEquals("id-Happy", items.get(0).getSpotifyTrackId());
+        assertEquals("id-Say \"Hi\\\"", items.get(1).getSpotifyTrackId());
+        assertEquals("id-Walking on Sunshine", items.get(2).getSpotifyTrackId());
+    }
+
+    @Test
+    public void firstSearchStartsBeforeStreamEnds() throws Exception {
+        long streamBytes = buildSseBody().length();
+        long streamDurationMs = streamBytes / 64 * 50;
+
+        CountDownLatch latch = new CountDownLatch(1);
+        repository.getMusicRecommendationsStreaming(new EmotionInput(80, 10, 0, 0, 5), "token",
+                new MusicRepository.MusicRepositoryCallback() {
+                    @Override
+                    public void onSuccess(List<MusicItem> musicItems) {
+                        latch.countDown();
+                    }
+
+                    @Override
+                    public void onError(String errorMessage) {
+                        latch.countDown();
+                    }
+                });
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        long firstSearchDelayMs = TimeUnit.NANOSECONDS.toMillis(firstSearchAt.get() - geminiRequestAt.get());
+        assertTrue("首個搜索在 " + firstSearchDelayMs + "ms 後才開始，串流總長約 " + streamDurationMs + "ms",
+                firstSearchDelayMs < streamDurationMs / 2);
+    }
+
+    @Test
+    public void geminiRequestUsesStructuredOutput() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        repository.getMusicByDirectTextProgressive("feeling great", "token", new MusicRepository.ProgressiveMusicCallback() {
+            @Override
+            public void onItemResolved(MusicItem item, int slot) {
+            }
+
+            @Override
+            public void onComplete(List<MusicItem> musicItems) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        JsonObject config = gson.fromJson(geminiRequestBody.get(), JsonObject.class)
+                .getAsJsonObject("generationConfig");
+        assertEquals("application/json", config.get("responseMimeType").getAsString());
+        assertTrue(config.get("maxOutputTokens").getAsInt() > 0);
+
+        JsonObject schema = config.getAsJsonObject("responseSchema");
+        assertEquals("ARRAY", schema.get("type").getAsString());
+        assertEquals(15, schema.get("maxItems").getAsInt());
+        JsonObject properties = schema.getAsJsonObject("items").getAsJsonObject("properties");
+        // 字段名必須與 GeminiSong 的 @SerializedName 一致
+        assertTrue(properties.has("song_name"));
+        assertTrue(properties.has("artist"));
+    }
+
+    @Test
+    public void progressiveCallbackReportsEverySlotBeforeComplete() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        List<Integer> resolvedSlots = Collections.synchronizedList(new ArrayList<>());
+        AtomicReference<List<Integer>> slotsAtComplete = new AtomicReference<>();
+        AtomicReference<List<MusicItem>> result = new AtomicReference<>();
+
+        repository.getMusicRecommendationsProgressive(new EmotionInput(80, 10, 0, 0, 5), "token",
+                new MusicRepository.ProgressiveMusicCallback() {
+                    @Override
+                    public void onItemResolved(MusicItem item, int slot) {
+                        resolvedSlots.add(slot);
+                    }
+
+                    @Override
+                    public void onComplete(List<MusicItem> musicItems) {
+                        slotsAtComplete.set(new ArrayList<>(resolvedSlots));
+                        result.set(musicItems);
+                        latch.countDown();
+                    }
+
+                    @Override
+                    public void onError(String errorMessage) {
+                        latch.countDown();
+                    }
+                });
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        List<Integer> slots = new ArrayList<>(slotsAtComplete.get());
+        Collections.sort(slots);
+        // slot 2（"Unknown Song"）無結果，不會回調
+        assertEquals(List.of(0, 1, 3), slots);
+        assertEquals("id-Happy", result.get().get(0).getSpotifyTrackId());
+    }
+
+    @Test
+    public void concurrentIdenticalRequestsShareOnePipeline() throws Exception {
+        int callers = 3;
+        CountDownLatch latch = new CountDownLatch(callers);
+        List<List<MusicItem>> results = Collections.synchronizedList(new ArrayList<>());
+
+        for (int i = 0; i < callers; i++) {
+            repository.getMusicRecommendationsProgressive(new EmotionInput(80, 10, 0, 0, 5), "token",
+                    new MusicRepository.ProgressiveMusicCallback() {
+                        @Override
+                        public void onItemResolved(MusicItem item, int slot) {
+                        }
+
+                        @Override
+                        public void onComplete(List<MusicItem> musicItems) {
+                            results.add(musicItems);
+                            latch.countDown();
+                        }
+
+                        @Override
+                        public void onError(String errorMessage) {
+                            latch.countDown();
+                        }
+                    });
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(1, geminiRequestCount.get());
+        assertEquals(callers - 1, repository.getCoalescedRequestCount());
+        assertEquals(callers, results.size());
+        for (List<MusicItem> items : results) {
+            assertEquals(3, items.size());
+        }
+    }
+
+    @Test
+    public void bypassCacheRefreshDoesNotJoinInFlightRequest() throws Exception {
+        CountDownLatch latch = new CountDownLatch(2);
+        MusicRepository.ProgressiveMusicCallback callback = new MusicRepository.ProgressiveMusicCallback() {
+            @Override
+            public void onItemResolved(MusicItem item, int slot) {
+            }
+
+            @Override
+            public void onComplete(List<MusicItem> musicItems) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+                latch.countDown();
+            }
+        };
+
+        EmotionInput emotionInput = new EmotionInput(80, 10, 0, 0, 5);
+        repository.getMusicRecommendationsProgressive(emotionInput, "token", callback);
+        // 同一情緒的刷新在普通請求進行中發出，必須發起自己的 Gemini 請求
+        repository.getMusicRecommendationsProgressive(emotionInput, "token", true, callback);
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(2, geminiRequestCount.get());
+        assertEquals(0, repository.getCoalescedRequestCount());
+    }
+
+    @Test
+    public void cancelStopsStreamAndSuppressesCallbacks() throws Exception {
+        CountDownLatch firstItem = new CountDownLatch(1);
+        AtomicInteger terminalCallbacks = new AtomicInteger();
+        AtomicReference<RecommendationRequest> request = new AtomicReference<>();
+
+        request.set(repository.getMusicRecommendationsProgressive(new EmotionInput(80, 10, 0, 0, 5), "token",
+                new MusicRepository.ProgressiveMusicCallback() {
+                    @Override
+                    public void onItemResolved(MusicItem item, int slot) {
+                        firstItem.countDown();
+                    }
+
+                    @Override
+                    public void onComplete(List<MusicItem> musicItems) {
+                        terminalCallbacks.incrementAndGet();
+                    }
+
+                    @Override
+                    public void onError(String errorMessage) {
+                        terminalCallbacks.incrementAndGet();
+                    }
+                }));
+
+        assertTrue(firstItem.await(10, TimeUnit.SECONDS));
+        request.get().cancel();
+
+        // 等待超過整個串流的時長，確認剩餘歌曲沒有被解析和搜索
+        long streamDurationMs = buildSseBody().length() / 64 * 50;
+        Thread.sleep(streamDurationMs + 500);
+
+        assertTrue(request.get().isCancelled());
+        assertEquals(0, terminalCallbacks.get());
+        assertTrue("取消後仍發出了 " + searchRequestCount.get() + " 個搜索", searchRequestCount.get() <= 2);
+    }
+
+    @Test
+    public void parserEmitsEachObjectWhenItsClosingBraceArrives() {
+        List<GeminiSong> songs = new ArrayList<>();
+        List<Integer> emittedAfterFragment = new ArrayList<>();
+        SongStreamParser parser = new SongStreamParser(gson.getAdapter(GeminiSong.class), (song, index) -> songs.add(song));
+
+        for (String fragment : FRAGMENTS) {
+            parser.feed(fragment);
+            emittedAfterFragment.add(songs.size());
+        }
+
+        assertEquals(List.of(0, 1, 1, 2, 3, 3, 4, 4), emittedAfterFragment);
+        assertTrue(parser.isComplete());
+        assertEquals("Say \"Hi\\\"", songs.get(1).getSongName());
+        assertEquals("A {curly} band", songs.get(1).getArtist());
+    }
+
+    /**
+     * 將每個片段包裝成一個 Gemini SSE 事件
+     */
+    private String buildSseBody() {
+        StringBuilder body = new StringBuilder();
+        for (String fragment : FRAGMENTS) {
+            JsonObject part = new JsonObject();
+            part.addProperty("text", fragment);
+            JsonArray parts = new JsonArray();
+            parts.add(part);
+            JsonObject content = new JsonObject();
+            content.add("parts", parts);
+            content.addProperty("role", "model");
+            JsonObject candidate = new JsonObject();
+            candidate.add("content", content);
+            JsonArray candidates = new JsonArray();
+            candidates.add(candidate);
+            JsonObject event = new JsonObject();
+            event.add("candidates", candidates);
+
+            body.append("data: ").append(gson.toJson(event)).append("\r\n\r\n");
+        }
+        return body.toString();
+    }
+
+    /**
+     * 以歌名生成假的 Spotify 搜索結果，"Unknown Song" 返回空列表
+     */
+    private String buildSearchBody(String query) {
+        String songName = query.substring("track:".length(), query.indexOf(" artist:"));
+        JsonArray items = new JsonArray();
+        if (!songName.equals("Unknown Song")) {
+            JsonObject artist = new JsonObject();
+            artist.addProperty("name", "Artist");
+            JsonArray artists = new JsonArray();
+            artists.add(artist);
+            JsonObject track = new JsonObject();
+            track.addProperty("id", "id-" + songName);
+            track.addProperty("name", songName);
+            track.add("artists", artists);
+            track.addProperty("duration_ms", 180000);
+            items.add(track);
+        }
+        JsonObject tracks = new JsonObject();
+        tracks.add("items", items);
+        JsonObject root = new JsonObject();
+        root.add("tracks", tracks);
+        return gson.toJson(root);
+    }
+}
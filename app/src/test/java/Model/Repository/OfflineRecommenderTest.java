@@ -0,0 +1,292 @@
+package Model.Repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.lifecycle.LiveData;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import Model.Api.GeminiApiService;
+import Model.Api.GeminiQuotaManager;
+import Model.Api.SpotifyApiService;
+import Model.Dao.FavoriteDao;
+import Model.Dao.TrackEmotionDao;
+import Model.Entity.FavoriteEntity;
+import Model.Entity.TrackEmotionEntity;
+import Model.POJO.EmotionInput;
+import Model.POJO.MusicItem;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * 離線推薦測試
+ */
+public class OfflineRecommenderTest {
+
+    private static MusicItem track(String id) {
+        return new MusicItem("song-" + id, "artist", null, null, id, 1000);
+    }
+
+    private static List<String> ids(List<MusicItem> items) {
+        List<String> ids = new ArrayList<>();
+        for (MusicItem item : items) {
+            ids.add(item.getSpotifyTrackId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void returnsNearestTracksByEmotionDistance() {
+        OfflineRecommender recommender = new OfflineRecommender(null);
+        recommender.record(new EmotionInput(90, 0, 0, 0, 0), track("happy"), TrackEmotionEntity.SOURCE_PLAYED);
+        recommender.record(new EmotionInput(70, 20, 0, 0, 0), track("mostly-happy"), TrackEmotionEntity.SOURCE_PLAYED);
+        recommender.record(new EmotionInput(0, 90, 0, 0, 10), track("sad"), TrackEmotionEntity.SOURCE_PLAYED);
+        recommender.record(new EmotionInput(0, 0, 90, 0, 0), track("angry"), TrackEmotionEntity.SOURCE_PLAYED);
+
+        assertEquals(List.of("happy", "mostly-happy"), ids(recommender.recommend(new EmotionInput(85, 5, 0, 0, 0), 2)));
+        assertEquals(List.of("sad"), ids(recommender.recommend(new EmotionInput(0, 80, 0, 0, 20), 1)));
+        assertEquals(4, recommender.recommend(new EmotionInput(50, 50, 50, 50, 50), 10).size());
+    }
+
+    @Test
+    public void favoritesRankAheadAndDuplicatesCollapse() {
+        OfflineRecommender recommender = new OfflineRecommender(null);
+        recommender.record(new EmotionInput(60, 0, 0, 0, 0), track("played"), TrackEmotionEntity.SOURCE_PLAYED);
+        // 距離 11 的收藏按 0.8 加權後比距離 10 的播放記錄更近
+        recommender.record(new EmotionInput(61, 0, 0, 0, 0), track("favorite"), TrackEmotionEntity.SOURCE_FAVORITE);
+        recommender.record(new EmotionInput(0, 0, 0, 0, 90), track("favorite"), TrackEmotionEntity.SOURCE_PLAYED);
+
+        assertEquals(List.of("favorite", "played"), ids(recommender.recommend(new EmotionInput(50, 0, 0, 0, 0), 5)));
+
+        recommender.forget("favorite", TrackEmotionEntity.SOURCE_FAVORITE);
+        assertEquals(List.of("played", "favorite"), ids(recommender.recommend(new EmotionInput(50, 0, 0, 0, 0), 5)));
+        assertEquals(2, recommender.size());
+    }
+
+    @Test
+    public void favoritesFollowTheFavoritesTable() {
+        // 索引中：仍收藏的 kept、已在其他頁面取消的 removed、只播放過但已在其他頁面收藏的 added
+        MemoryTrackEmotionDao dao = new MemoryTrackEmotionDao(
+                point("kept", 0, TrackEmotionEntity.SOURCE_FAVORITE),
+                point("removed", 0, TrackEmotionEntity.SOURCE_FAVORITE),
+                point("added", 30, TrackEmotionEntity.SOURCE_PLAYED));
+        OfflineRecommender recommender = new OfflineRecommender(dao, new FixedFavoriteDao("kept", "added"), null);
+
+        assertEquals(List.of("added", "kept"), ids(recommender.recommend(new EmotionInput(50, 0, 0, 0, 0), 5)));
+        assertTrue(dao.contains("added", TrackEmotionEntity.SOURCE_FAVORITE));
+        assertFalse(dao.contains("removed", TrackEmotionEntity.SOURCE_FAVORITE));
+    }
+
+    @Test
+    public void favoriteWithoutEmotionUsesPlayedEmotion() {
+        OfflineRecommender recommender = new OfflineRecommender(null);
+        recommender.record(new EmotionInput(0, 80, 0, 0, 0), track("sad"), TrackEmotionEntity.SOURCE_PLAYED);
+
+        // 在播放器中收藏：沒有歌單的情緒輸入
+        recommender.recordFavorite(track("sad"), null);
+        recommender.recordFavorite(track("never-played"), null);
+
+        assertEquals(2, recommender.size());
+        assertEquals(List.of("sad"), ids(recommender.recommend(new EmotionInput(0, 80, 0, 0, 0), 5)));
+    }
+
+    private static TrackEmotionEntity point(String id, int happy, int source) {
+        return TrackEmotionEntity.create(new EmotionInput(happy, 0, 0, 0, 0), track(id), source, 1000);
+    }
+
+    @Test
+    public void repositoryFallsBackWhenGeminiFails() throws Exception {
+        OfflineResult result = recommendWithFallback(null);
+
+        assertNull(result.error);
+        assertEquals(List.of("remembered"), ids(result.items));
+        assertEquals(0, result.retryAfterMs);
+    }
+
+    @Test
+    public void quotaFallbackStillReportsRetryAfter() throws Exception {
+        GeminiQuotaManager quotaManager = new GeminiQuotaManager(null, 1, 100);
+        assertTrue(quotaManager.tryAcquire().isGranted());
+
+        OfflineResult result = recommendWithFallback(quotaManager);
+
+        // 有離線結果，但調用方仍要按配額恢復時間冷卻
+        assertNull(result.error);
+        assertEquals(List.of("remembered"), ids(result.items));
+        assertTrue(result.retryAfterMs > 0 && result.retryAfterMs <= 60_000);
+    }
+
+    private static final class OfflineResult {
+        List<MusicItem> items;
+        long retryAfterMs = -1;
+        String error;
+    }
+
+    /**
+     * Gemini 總是返回 400（或配額已耗盡），以一首收藏作為離線推薦
+     */
+    private static OfflineResult recommendWithFallback(GeminiQuotaManager quotaManager) throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setResponseCode(400).setBody("{\"error\":\"bad request\"}");
+            }
+        });
+        server.start();
+        Retrofit retrofit = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .addConverterFactory(GsonConverterFactory.create())
+                .build();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        OfflineRecommender recommender = new OfflineRecommender(null);
+        recommender.record(new EmotionInput(80, 10, 0, 0, 5), track("remembered"), TrackEmotionEntity.SOURCE_FAVORITE);
+        MusicRepository repository = new MusicRepository(retrofit.create(GeminiApiService.class),
+                retrofit.create(SpotifyApiService.class), executor, null, null, quotaManager, recommender);
+
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            OfflineResult result = new OfflineResult();
+            repository.getMusicRecommendationsProgressive(new EmotionInput(75, 10, 0, 0, 0), "token",
+                    new MusicRepository.ProgressiveMusicCallback() {
+                        @Override
+                        public void onItemResolved(MusicItem item, int slot) {
+                        }
+
+                        @Override
+                        public void onComplete(List<MusicItem> musicItems) {
+                            latch.countDown();
+                        }
+
+                        @Override
+                        public void onOfflineComplete(List<MusicItem> musicItems, long retryAfterMs) {
+                            result.items = musicItems;
+                            result.retryAfterMs = retryAfterMs;
+                            latch.countDown();
+                        }
+
+                        @Override
+                        public void onError(String errorMessage) {
+                            result.error = errorMessage;
+                            latch.countDown();
+                        }
+                    });
+
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            return result;
+        } finally {
+            repository.shutdown();
+            server.shutdown();
+        }
+    }
+
+    /**
+     * 內存中的情緒記錄
+     */
+    private static final class MemoryTrackEmotionDao implements TrackEmotionDao {
+        private final List<TrackEmotionEntity> rows = new ArrayList<>();
+
+        MemoryTrackEmotionDao(TrackEmotionEntity... rows) {
+            this.rows.addAll(Arrays.asList(rows));
+        }
+
+        boolean contains(String trackId, int source) {
+            for (TrackEmotionEntity row : rows) {
+                if (row.getTrackId().equals(trackId) && row.getSource() == source) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void insert(TrackEmotionEntity entity) {
+            delete(entity.getTrackId(), entity.getSource());
+            rows.add(entity);
+        }
+
+        @Override
+        public void delete(String trackId, int source) {
+            rows.removeIf(row -> row.getTrackId().equals(trackId) && row.getSource() == source);
+        }
+
+        @Override
+        public List<TrackEmotionEntity> getRecentSync(int limit) {
+            List<TrackEmotionEntity> recent = new ArrayList<>(rows);
+            Collections.reverse(recent);
+            return recent.subList(0, Math.min(limit, recent.size()));
+        }
+
+        @Override
+        public int trimToSize(int keep) {
+            return 0;
+        }
+    }
+
+    /**
+     * 固定內容的收藏表
+     */
+    private static final class FixedFavoriteDao implements FavoriteDao {
+        private final List<String> trackIds;
+
+        FixedFavoriteDao(String... trackIds) {
+            this.trackIds = Arrays.asList(trackIds);
+        }
+
+        @Override
+        public List<String> getAllTrackIdsSync() {
+            return trackIds;
+        }
+
+        @Override
+        public boolean isFavorite(String trackId) {
+            return trackIds.contains(trackId);
+        }
+
+        @Override
+        public int getCount() {
+            return trackIds.size();
+        }
+
+        @Override
+        public void insert(FavoriteEntity entity) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void deleteByTrackId(String trackId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public LiveData<List<FavoriteEntity>> getAllLive() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public LiveData<List<FavoriteEntity>> getByDateRange(long startTime, long endTime) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<FavoriteEntity> getRecentSync() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package Model.Repository;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import Model.Api.ApiClient;
+import Model.Api.RecordedExchange;
+import Model.Api.ReplayDispatcher;
+import Model.POJO.EmotionInput;
+import Model.POJO.MusicItem;
+import Util.LatencyHistogram;
+import okhttp3.mockwebserver.MockWebServer;
+
+/**
+ * 端到端推薦延遲基準（離線）
+ * 以錄製的 Gemini 和 Spotify 交換重放，經過 ApiClient 的真實配置跑完整條推薦流水線，
+ * 報告從發出請求到 onComplete 的 p50 / p95 / p99。
+ * 運行時間較長，默認跳過：
+ * ./gradlew :app:testDebugUnitTest --tests '*RecommendationLatencyBenchmark' -Preplay.benchmark=true
+ * 可用 -Preplay.runs、-Preplay.concurrency 調整次數和並發數
+ */
+public class RecommendationLatencyBenchmark {
+
+    private static final String FIXTURE = "replay/recommendation.jsonl";
+
+    private final int runs = Integer.getInteger("replay.runs", 30);
+    private final int concurrency = Integer.getInteger("replay.concurrency", 3);
+
+    private MockWebServer server;
+    private ExecutorService executor;
+    private MusicRepository repository;
+
+    @Before
+    public void setUp() {
+        assumeTrue("設置 -Preplay.benchmark=true 以運行", Boolean.getBoolean("replay.benchmark"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (repository != null) {
+            repository.shutdown();
+        }
+        if (server != null) {
+            server.shutdown();
+        }
+        ApiClient.resetBaseUrls();
+    }
+
+    @Test
+    public void recordedLatency() throws Exception {
+        report("recorded", ReplayDispatcher.LatencyProfile.recorded());
+    }
+
+    @Test
+    public void recordedLatencyWithJitterAndFailures() throws Exception {
+        report("recorded+jitter100ms+3%fail", ReplayDispatcher.LatencyProfile.recorded()
+                .withJitter(100)
+                .withFailures(0.02, 0.01));
+    }
+
+    private void report(String name, ReplayDispatcher.LatencyProfile profile) throws Exception {
+        List<RecordedExchange> exchanges = ReplayDispatcher.load(FIXTURE);
+        server = new MockWebServer();
+        server.setDispatcher(new ReplayDispatcher(exchanges, profile, 42));
+        server.start();
+
+        String baseUrl = server.url("/").toString();
+        ApiClient.setBaseUrls(baseUrl, baseUrl);
+        executor = Executors.newFixedThreadPool(5);
+        repository = new MusicRepository(ApiClient.getGeminiApiService(), ApiClient.getSpotifyApiService(),
+                executor, null, null, null);
+
+        LatencyHistogram histogram = new LatencyHistogram(runs);
+        AtomicInteger failures = new AtomicInteger();
+        Semaphore slots = new Semaphore(concurrency);
+        CountDownLatch done = new CountDownLatch(runs);
+
+        for (int i = 0; i < runs; i++) {
+            slots.acquire();
+            long start = System.nanoTime();
+            // 每次使用不同的情緒數值，避免被合併為同一請求
+            EmotionInput input = new EmotionInput(i % 101, 100 - i % 101, i % 7, i % 11, i % 13);
+            repository.getMusicRecommendationsProgressive(input, "token", new MusicRepository.ProgressiveMusicCallback() {
+                @Override
+                public void onItemResolved(MusicItem item, int slot) {
+                }
+
+                @Override
+                public void onComplete(List<MusicItem> musicItems) {
+                    histogram.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    finish();
+                }
+
+                @Override
+                public void onError(String errorMessage) {
+                    failures.incrementAndGet();
+                    finish();
+                }
+
+                private void finish() {
+                    slots.release();
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue("基準未在時限內完成", done.await(10, TimeUnit.MINUTES));
+
+        System.out.println(String.format(Locale.US,
+                "[%s] runs=%d concurrency=%d ok=%d failed=%d p50=%dms p95=%dms p99=%dms",
+                name, runs, concurrency, histogram.getCount(), failures.get(),
+                histogram.percentile(0.50), histogram.percentile(0.95), histogram.percentile(0.99)));
+        assertTrue("成功次數過少", histogram.getCount() >= runs * 0.9);
+    }
+}
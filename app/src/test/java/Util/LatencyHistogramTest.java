@@ -0,0 +1,43 @@
+package Util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * 滾動延遲直方圖測試
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentilesFromSamples() {
+        LatencyHistogram histogram = new LatencyHistogram(100);
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(50, histogram.percentile(0.5));
+        assertEquals(90, histogram.percentile(0.9));
+        assertEquals(99, histogram.percentile(0.99));
+        assertEquals(100, histogram.percentile(1.0));
+    }
+
+    @Test
+    public void keepsOnlyMostRecentSamples() {
+        LatencyHistogram histogram = new LatencyHistogram(10);
+        for (int i = 0; i < 10; i++) {
+            histogram.record(1000);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(10);
+        }
+
+        assertEquals(10, histogram.getCount());
+        assertEquals(10, histogram.percentile(0.99));
+    }
+
+    @Test
+    public void emptyHistogramReturnsMinusOne() {
+        assertEquals(-1, new LatencyHistogram(10).percentile(0.9));
+    }
+}
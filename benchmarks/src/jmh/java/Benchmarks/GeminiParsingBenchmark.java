@@ -0,0 +1,69 @@
+package Benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import Model.POJO.GeminiResponse;
+import Model.POJO.GeminiSong;
+
+/**
+ * Gemini 回應解析：GeminiResponse → getResponseText → GeminiSong 列表
+ * 比較反射解析與 ApiGson 適配器解碼一次性回應的開銷。
+ * 正式流程不會整體解析歌曲列表：回應文本交給 MusicRecommendationProcessor 的 PARSE 階段，
+ * 由 SongStreamParser 增量切出每個物件，再以同一個 TypeAdapter&lt;GeminiSong&gt; 解析
+ */
+@State(Scope.Benchmark)
+public class GeminiParsingBenchmark {
+
+    private static final TypeToken<List<GeminiSong>> SONG_LIST = new TypeToken<List<GeminiSong>>(){};
+
+    @Param({"REFLECTIVE", "ADAPTERS"})
+    public Parser parser;
+
+    private String responseJson;
+    private Gson gson;
+    private TypeAdapter<GeminiResponse> responseAdapter;
+    private TypeAdapter<List<GeminiSong>> songListAdapter;
+
+    @Setup
+    public void setUp() {
+        responseJson = Payloads.geminiResponse();
+        gson = parser.newGson();
+        responseAdapter = gson.getAdapter(GeminiResponse.class);
+        songListAdapter = gson.getAdapter(SONG_LIST);
+    }
+
+    /**
+     * 穩態：適配器已預先創建
+     */
+    @Benchmark
+    public List<GeminiSong> parseResponseAndSongs() throws Exception {
+        String text = responseAdapter.fromJson(responseJson).getResponseText();
+        return songListAdapter.fromJson(text);
+    }
+
+    /**
+     * 冷啟動：新的 Gson 實例第一次解析，包括創建適配器的開銷
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<GeminiSong> firstParse() {
+        Gson fresh = parser.newGson();
+        String text = fresh.fromJson(responseJson, GeminiResponse.class).getResponseText();
+        return fresh.fromJson(text, SONG_LIST.getType());
+    }
+}
@@ -0,0 +1,30 @@
+package Benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import Model.Api.ApiTypeAdapters;
+
+/**
+ * 對比的兩種 Gson 配置
+ */
+public enum Parser {
+    /**
+     * 默認的反射 Gson（手寫適配器之前的做法）
+     */
+    REFLECTIVE,
+    /**
+     * 註冊了 ApiTypeAdapters 的 Gson（與 ApiGson 相同的配置）
+     */
+    ADAPTERS;
+
+    /**
+     * 創建新的 Gson 實例，尚未緩存任何適配器
+     */
+    Gson newGson() {
+        if (this == REFLECTIVE) {
+            return new Gson();
+        }
+        return new GsonBuilder().registerTypeAdapterFactory(ApiTypeAdapters.FACTORY).create();
+    }
+}
@@ -0,0 +1,58 @@
+package Benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 基準測試用的 API 回應
+ * 樣本取自真實回應的結構（包括 available_markets、external_urls 等解析時會略過的大字段）
+ */
+final class Payloads {
+
+    private Payloads() {
+    }
+
+    /**
+     * Gemini generateContent 回應，文本為 15 首歌的 JSON 陣列
+     */
+    static String geminiResponse() {
+        return resource("payloads/gemini_response.json");
+    }
+
+    /**
+     * Spotify 搜索回應，包含 itemCount 首歌曲，每首的 id 和名稱不同
+     */
+    static String spotifySearch(int itemCount) {
+        String track = resource("payloads/spotify_track.json");
+        StringBuilder json = new StringBuilder("{\"tracks\":{\"href\":\"https://api.spotify.com/v1/search?offset=0&limit=")
+                .append(itemCount)
+                .append("&query=track%3AHappy&type=track\",\"items\":[");
+        for (int i = 0; i < itemCount; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(track
+                    .replace("60nZcImufyMA1MKQY3dcCH", "60nZcImufyMA1MKQY3d" + String.format("%03d", i))
+                    .replace("\"popularity\": 79", "\"popularity\": " + (79 - i % 40)));
+        }
+        return json.append("],\"limit\":").append(itemCount)
+                .append(",\"next\":null,\"offset\":0,\"previous\":null,\"total\":893}}")
+                .toString();
+    }
+
+    private static String resource(String name) {
+        try (InputStream in = Payloads.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IllegalStateException("找不到測試數據: " + name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            in.transferTo(out);
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package Benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import Model.POJO.EmotionInput;
+
+/**
+ * Prompt 與緩存 key 的構建
+ * 每次推薦都會執行，輪流使用不同的情緒數值，避免 JIT 把結果當作常量
+ */
+@State(Scope.Thread)
+public class PromptBenchmark {
+
+    private static final int INPUT_COUNT = 64;
+
+    private final EmotionInput[] inputs = new EmotionInput[INPUT_COUNT];
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < INPUT_COUNT; i++) {
+            inputs[i] = new EmotionInput(i, 100 - i, (i * 7) % 101, (i * 13) % 101, (i * 29) % 101);
+        }
+    }
+
+    @Benchmark
+    public String buildPrompt() {
+        return nextInput().buildPrompt();
+    }
+
+    @Benchmark
+    public String quantizedKey() {
+        return nextInput().toQuantizedKey(1);
+    }
+
+    private EmotionInput nextInput() {
+        EmotionInput input = inputs[next];
+        next = (next + 1) % INPUT_COUNT;
+        return input;
+    }
+}
@@ -0,0 +1,57 @@
+package Benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import Model.POJO.SpotifySearchResponse;
+
+/**
+ * Spotify 搜索回應解析
+ * 推薦流程每次搜索 limit=1；50 條對應瀏覽或分頁場景的較大回應
+ */
+@State(Scope.Benchmark)
+public class SpotifySearchParsingBenchmark {
+
+    @Param({"1", "50"})
+    public int items;
+
+    @Param({"REFLECTIVE", "ADAPTERS"})
+    public Parser parser;
+
+    private String json;
+    private Gson gson;
+    private TypeAdapter<SpotifySearchResponse> adapter;
+
+    @Setup
+    public void setUp() {
+        json = Payloads.spotifySearch(items);
+        gson = parser.newGson();
+        adapter = gson.getAdapter(SpotifySearchResponse.class);
+    }
+
+    @Benchmark
+    public SpotifySearchResponse parse() throws Exception {
+        return adapter.fromJson(json);
+    }
+
+    /**
+     * 冷啟動：新的 Gson 實例第一次解析
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public SpotifySearchResponse firstParse() {
+        return parser.newGson().fromJson(json, SpotifySearchResponse.class);
+    }
+}